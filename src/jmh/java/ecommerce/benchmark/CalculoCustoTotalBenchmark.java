@@ -0,0 +1,55 @@
+package ecommerce.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.benchmark.CarrinhosBenchmark.Cenario;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.service.CompraService;
+
+/**
+ * Mede {@link CompraService#calcularCustoTotal} isoladamente, variando o tamanho
+ * do carrinho e o cenário de faixas de desconto/frete.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoCustoTotalBenchmark
+{
+	@Param({ "1", "10", "100", "1000", "10000" })
+	public int tamanhoCarrinho;
+
+	@Param({ "MISTO", "FRAGEIS", "LIMITE_DESCONTO", "LIMITE_FRETE" })
+	public Cenario cenario;
+
+	private CompraService compraService;
+	private CarrinhoDeCompras carrinho;
+
+	@Setup
+	public void setUp()
+	{
+		compraService = new CompraService(null, null, null, null);
+		carrinho = CarrinhosBenchmark.criar(1L, null, tamanhoCarrinho, cenario);
+	}
+
+	@Benchmark
+	public BigDecimal calcularCustoTotal()
+	{
+		return compraService.calcularCustoTotal(carrinho);
+	}
+}
@@ -0,0 +1,96 @@
+package ecommerce.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Monta carrinhos determinísticos (semente fixa) para os benchmarks, de forma
+ * que execuções diferentes meçam exatamente a mesma carga.
+ */
+public final class CarrinhosBenchmark
+{
+	private static final long SEMENTE = 42L;
+
+	public enum Cenario
+	{
+		/** Preços, pesos e quantidades variados, ~20% de itens frágeis. */
+		MISTO,
+		/** Todos os itens frágeis: exercita a taxa de R$ 5,00 por unidade. */
+		FRAGEIS,
+		/** Subtotal exatamente em R$ 1000,00 (início da faixa de 20%). */
+		LIMITE_DESCONTO,
+		/** Peso total exatamente em 50,00 kg (último valor da faixa de R$ 4,00/kg). */
+		LIMITE_FRETE
+	}
+
+	private CarrinhosBenchmark()
+	{
+	}
+
+	static CarrinhoDeCompras criar(Long carrinhoId, Cliente cliente, int tamanho, Cenario cenario)
+	{
+		Random random = new Random(SEMENTE);
+		List<ItemCompra> itens = new ArrayList<>(tamanho);
+
+		for (int i = 0; i < tamanho; i++)
+		{
+			Produto produto = switch (cenario)
+			{
+				case MISTO -> produto(i, centavos(100 + random.nextInt(19_900)), gramas(100 + random.nextInt(4_900)),
+						random.nextInt(5) == 0);
+				case FRAGEIS -> produto(i, centavos(100 + random.nextInt(19_900)), gramas(100 + random.nextInt(4_900)),
+						true);
+				case LIMITE_DESCONTO -> produto(i, parcela(new BigDecimal("1000.00"), tamanho, i),
+						parcela(new BigDecimal("4.000"), tamanho, i), false);
+				case LIMITE_FRETE -> produto(i, parcela(new BigDecimal("400.00"), tamanho, i),
+						parcela(new BigDecimal("50.000"), tamanho, i), false);
+			};
+
+			long quantidade = cenario == Cenario.MISTO || cenario == Cenario.FRAGEIS ? 1 + random.nextInt(3) : 1;
+			itens.add(new ItemCompra((long) i + 1, produto, quantidade));
+		}
+
+		return new CarrinhoDeCompras(carrinhoId, cliente, itens, LocalDate.now());
+	}
+
+	private static Produto produto(int indice, BigDecimal preco, BigDecimal peso, boolean fragil)
+	{
+		return new Produto((long) indice + 1, "Produto " + indice, null, preco, peso, BigDecimal.TEN, BigDecimal.TEN,
+				BigDecimal.TEN, fragil, TipoProduto.ELETRONICO);
+	}
+
+	private static BigDecimal centavos(long valor)
+	{
+		return BigDecimal.valueOf(valor, 2);
+	}
+
+	private static BigDecimal gramas(long valor)
+	{
+		return BigDecimal.valueOf(valor, 3);
+	}
+
+	/**
+	 * Parte do item {@code indice} em {@code total} dividido igualmente, na
+	 * escala do total; o último item leva o resto, para que a soma dê
+	 * exatamente o total qualquer que seja o tamanho do carrinho.
+	 */
+	static BigDecimal parcela(BigDecimal total, int partes, int indice)
+	{
+		long unidades = total.unscaledValue().longValueExact();
+		long parcela = unidades / partes;
+		if (indice == partes - 1)
+		{
+			parcela += unidades - parcela * partes;
+		}
+		return BigDecimal.valueOf(parcela, total.scale());
+	}
+}
@@ -0,0 +1,102 @@
+package ecommerce.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ecommerce.benchmark.CarrinhosBenchmark.Cenario;
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+
+/**
+ * Mede {@link CompraService#finalizarCompra} de ponta a ponta contra os
+ * simuladores de estoque e pagamento. Cliente e carrinho vêm de serviços em
+ * memória para que o banco não entre na medição.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinalizarCompraBenchmark
+{
+	private static final Long CLIENTE_ID = 1L;
+	private static final Long CARRINHO_ID = 1L;
+
+	@Param({ "1", "100", "10000" })
+	public int tamanhoCarrinho;
+
+	@Param({ "MISTO", "FRAGEIS" })
+	public Cenario cenario;
+
+	private CompraService compraService;
+
+	@Setup
+	public void setUp()
+	{
+		Cliente cliente = new Cliente(CLIENTE_ID, "Cliente Benchmark", Regiao.SUDESTE, TipoCliente.OURO);
+		CarrinhoDeCompras carrinho = CarrinhosBenchmark.criar(CARRINHO_ID, cliente, tamanhoCarrinho, cenario);
+
+		compraService = new CompraService(new CarrinhoEmMemoria(carrinho), new ClienteEmMemoria(cliente),
+				new EstoqueSimulado(), new PagamentoSimulado());
+	}
+
+	@Benchmark
+	public CompraDTO finalizarCompra()
+	{
+		return compraService.finalizarCompra(CARRINHO_ID, CLIENTE_ID);
+	}
+
+	static class ClienteEmMemoria extends ClienteService
+	{
+		private final Cliente cliente;
+
+		ClienteEmMemoria(Cliente cliente)
+		{
+			super(null);
+			this.cliente = cliente;
+		}
+
+		@Override
+		public Cliente buscarPorId(Long clienteId)
+		{
+			return cliente;
+		}
+	}
+
+	static class CarrinhoEmMemoria extends CarrinhoDeComprasService
+	{
+		private final CarrinhoDeCompras carrinho;
+
+		CarrinhoEmMemoria(CarrinhoDeCompras carrinho)
+		{
+			super(null);
+			this.carrinho = carrinho;
+		}
+
+		@Override
+		public CarrinhoDeCompras buscarPorCarrinhoIdEClienteId(Long carrinhoId, Cliente cliente)
+		{
+			return carrinho;
+		}
+	}
+}
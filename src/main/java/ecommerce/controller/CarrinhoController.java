@@ -0,0 +1,49 @@
+package ecommerce.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import ecommerce.dto.CarrinhoImportacaoDTO;
+import ecommerce.service.ImportacaoCarrinhosService;
+
+@RestController
+@RequestMapping("/carrinhos")
+public class CarrinhoController
+{
+	private final ImportacaoCarrinhosService importacaoCarrinhosService;
+
+	@Autowired
+	public CarrinhoController(ImportacaoCarrinhosService importacaoCarrinhosService)
+	{
+		this.importacaoCarrinhosService = importacaoCarrinhosService;
+	}
+
+	/**
+	 * Cria os carrinhos recebidos e responde com os ids, na mesma ordem. Um
+	 * carrinho inválido, ou com cliente ou produto inexistente, rejeita todos
+	 * com 400.
+	 */
+	@PostMapping("/importar")
+	public ResponseEntity<List<Long>> importar(@RequestBody List<CarrinhoImportacaoDTO> carrinhos)
+	{
+		try
+		{
+			return ResponseEntity.ok(importacaoCarrinhosService.importar(carrinhos));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+		}
+		catch (Exception e)
+		{
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		}
+	}
+}
@@ -1,46 +1,157 @@
 package ecommerce.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraLoteDTO;
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.service.CompraPipelineService;
 import ecommerce.service.CompraService;
+import ecommerce.service.CotacaoLoteService;
 
 @RestController
 @RequestMapping("/")
 public class CompraController
 {
+	private static final int TAMANHO_MAXIMO_CHAVE = 255;
 
 	private final CompraService compraService;
+	private final CompraPipelineService compraPipelineService;
+	private final CotacaoLoteService cotacaoLoteService;
+	private final RespostasIdempotentes respostasIdempotentes;
+	private final ObjectMapper objectMapper;
+	private final boolean pipelineHabilitado;
 
 	@Autowired
-	public CompraController(CompraService compraService)
+	public CompraController(CompraService compraService, CompraPipelineService compraPipelineService,
+			CotacaoLoteService cotacaoLoteService, RespostasIdempotentes respostasIdempotentes,
+			ObjectMapper objectMapper,
+			@Value("${ecommerce.compra.pipeline.habilitado:false}") boolean pipelineHabilitado)
 	{
 		this.compraService = compraService;
+		this.compraPipelineService = compraPipelineService;
+		this.cotacaoLoteService = cotacaoLoteService;
+		this.respostasIdempotentes = respostasIdempotentes;
+		this.objectMapper = objectMapper;
+		this.pipelineHabilitado = pipelineHabilitado;
 	}
 
+	/**
+	 * Com o cabeçalho {@code Idempotency-Key}, novas tentativas com a mesma chave
+	 * recebem a resposta da primeira em vez de finalizar de novo (ver
+	 * {@link RespostasIdempotentes}).
+	 */
 	@PostMapping("/finalizar")
-	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId)
+	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId,
+			@RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia)
+	{
+		if (chaveIdempotencia == null || chaveIdempotencia.isBlank())
+		{
+			return finalizar(carrinhoId, clienteId);
+		}
+		if (chaveIdempotencia.length() > TAMANHO_MAXIMO_CHAVE)
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+					.body(new CompraDTO(false, null, "Chave de idempotência inválida."));
+		}
+		return respostasIdempotentes.executar(clienteId, chaveIdempotencia, carrinhoId,
+				() -> finalizar(carrinhoId, clienteId));
+	}
+
+	/**
+	 * Recusas de negócio chegam como {@link ResultadoCompra} e viram status em
+	 * {@link RespostasCompra}; as exceções restantes são entrada inválida (400),
+	 * falhas dos serviços externos (409) e erros inesperados (500).
+	 */
+	private ResponseEntity<CompraDTO> finalizar(Long carrinhoId, Long clienteId)
 	{
 		try
 		{
-			CompraDTO compraDTO = compraService.finalizarCompra(carrinhoId, clienteId);
-			return ResponseEntity.ok(compraDTO);
+			ResultadoCompra resultado = pipelineHabilitado ? compraPipelineService.finalizar(carrinhoId, clienteId)
+					: compraService.finalizar(carrinhoId, clienteId);
+			return RespostasCompra.de(resultado);
 		}
 		catch (IllegalArgumentException e)
 		{
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, e.getMessage()));
+			return RespostasCompra.requisicaoInvalida(e.getMessage());
 		}
 		catch (IllegalStateException e)
 		{
-			return ResponseEntity.status(HttpStatus.CONFLICT).body(new CompraDTO(false, null, e.getMessage()));
+			return RespostasCompra.conflito(e.getMessage());
 		}
 		catch (Exception e)
 		{
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-					.body(new CompraDTO(false, null, "Erro ao processar compra."));
+			return RespostasCompra.ERRO;
 		}
 	}
+
+	/**
+	 * Finaliza vários carrinhos do mesmo cliente. Responde 200 com o resultado de
+	 * cada carrinho, mesmo que alguns tenham falhado.
+	 */
+	@PostMapping("/finalizar-lote")
+	public ResponseEntity<List<CompraLoteDTO>> finalizarCompraLote(@RequestParam Long clienteId,
+			@RequestBody List<Long> carrinhoIds)
+	{
+		try
+		{
+			return ResponseEntity.ok(compraService.finalizarCompraLote(carrinhoIds, clienteId));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+		}
+		catch (Exception e)
+		{
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+		}
+	}
+
+	/**
+	 * Cota vários carrinhos de uma vez. A resposta é NDJSON (uma
+	 * {@link CotacaoDTO} por linha), enviada à medida que os blocos ficam prontos.
+	 */
+	@PostMapping(value = "/cotar-lote", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> cotarLote(@RequestBody List<Long> carrinhoIds)
+	{
+		StreamingResponseBody corpo = saida -> {
+			try
+			{
+				cotacaoLoteService.cotar(carrinhoIds, bloco -> {
+					try
+					{
+						for (CotacaoDTO cotacao : bloco)
+						{
+							saida.write(objectMapper.writeValueAsBytes(cotacao));
+							saida.write('\n');
+						}
+						saida.flush();
+					}
+					catch (IOException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+		};
+
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(corpo);
+	}
 }
@@ -0,0 +1,42 @@
+package ecommerce.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.service.CompraReativaService;
+import reactor.core.publisher.Mono;
+
+/**
+ * Variante de {@code /finalizar} que devolve um {@link Mono}: o Spring MVC
+ * responde de forma assíncrona e a thread do Tomcat volta ao pool enquanto a
+ * compra espera estoque e pagamento. As respostas são as mesmas de
+ * {@link CompraController}.
+ */
+@RestController
+@RequestMapping("/reativo")
+public class CompraReativaController
+{
+	private final CompraReativaService compraReativaService;
+
+	@Autowired
+	public CompraReativaController(CompraReativaService compraReativaService)
+	{
+		this.compraReativaService = compraReativaService;
+	}
+
+	@PostMapping("/finalizar")
+	public Mono<ResponseEntity<CompraDTO>> finalizarCompra(@RequestParam Long carrinhoId,
+			@RequestParam Long clienteId)
+	{
+		return compraReativaService.finalizarCompra(carrinhoId, clienteId).map(RespostasCompra::de)
+				.onErrorResume(IllegalArgumentException.class,
+						e -> Mono.just(RespostasCompra.requisicaoInvalida(e.getMessage())))
+				.onErrorResume(IllegalStateException.class, e -> Mono.just(RespostasCompra.conflito(e.getMessage())))
+				.onErrorResume(e -> Mono.just(RespostasCompra.ERRO));
+	}
+}
@@ -0,0 +1,64 @@
+package ecommerce.controller;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.ResultadoCompra;
+
+/**
+ * Status HTTP de cada desfecho de compra, compartilhado pelos controllers de
+ * {@code /finalizar}. As respostas de falha são montadas uma vez: elas não
+ * mudam e o {@link ResponseEntity} é imutável.
+ */
+final class RespostasCompra
+{
+	private static final Map<MotivoFalha, ResponseEntity<CompraDTO>> FALHAS = new EnumMap<>(MotivoFalha.class);
+
+	static final ResponseEntity<CompraDTO> ERRO = ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+			.body(new CompraDTO(false, null, "Erro ao processar compra."));
+
+	static
+	{
+		for (MotivoFalha motivo : MotivoFalha.values())
+		{
+			FALHAS.put(motivo, ResponseEntity.status(status(motivo)).body(motivo.resposta()));
+		}
+	}
+
+	private RespostasCompra()
+	{
+	}
+
+	/** Toda falha de negócio é um conflito com o estado do estoque ou do pagamento. */
+	static HttpStatus status(MotivoFalha motivo)
+	{
+		return switch (motivo)
+		{
+			case ESTOQUE_INDISPONIVEL, PAGAMENTO_NAO_AUTORIZADO, ERRO_BAIXA_ESTOQUE -> HttpStatus.CONFLICT;
+		};
+	}
+
+	static ResponseEntity<CompraDTO> de(ResultadoCompra resultado)
+	{
+		if (resultado.sucesso())
+		{
+			return ResponseEntity.ok(resultado.paraDTO());
+		}
+		return FALHAS.get(resultado.motivo());
+	}
+
+	static ResponseEntity<CompraDTO> requisicaoInvalida(String mensagem)
+	{
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, mensagem));
+	}
+
+	static ResponseEntity<CompraDTO> conflito(String mensagem)
+	{
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(new CompraDTO(false, null, mensagem));
+	}
+}
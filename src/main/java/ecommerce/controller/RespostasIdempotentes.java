@@ -0,0 +1,139 @@
+package ecommerce.controller;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ecommerce.dto.CompraDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Respostas de {@code /finalizar} por chave de idempotência, para que novas
+ * tentativas do cliente não repitam a compra. A chave vale por cliente. A
+ * primeira requisição executa a finalização; as repetições recebem a mesma
+ * resposta, e as que chegam enquanto a primeira ainda roda esperam por ela
+ * (até {@code esperaMaxima}, depois 409).
+ *
+ * <p>
+ * Toda resposta fica guardada, inclusive recusas (409, como falta de estoque ou
+ * pagamento indisponível): uma nova tentativa da compra precisa de outra chave.
+ * Um 5xx ou uma exceção deixa a compra em estado desconhecido (o pagamento pode
+ * ter sido autorizado), então a chave não é executada de novo: as repetições
+ * recebem 409. A mesma chave com outro carrinho é rejeitada com 422.
+ *
+ * <p>
+ * O armazenamento é limitado por tamanho e expira por tempo desde a gravação;
+ * as estatísticas aparecem com a tag {@code cache=idempotencia} e as
+ * repetições atendidas em {@code compra.idempotencia.repeticoes}.
+ */
+@Component
+public class RespostasIdempotentes
+{
+	public static final String NOME = "idempotencia";
+
+	private static final ResponseEntity<CompraDTO> ESTADO_DESCONHECIDO = ResponseEntity.status(HttpStatus.CONFLICT)
+			.body(new CompraDTO(false, null, "Compra com a mesma chave terminou em estado desconhecido."));
+
+	private final Cache<Chave, Registro> respostas;
+	private final Duration esperaMaxima;
+	private final Counter repeticoes;
+
+	@Autowired
+	public RespostasIdempotentes(MeterRegistry registry,
+			@Value("${ecommerce.compra.idempotencia.tamanho-maximo:100000}") long tamanhoMaximo,
+			@Value("${ecommerce.compra.idempotencia.expiracao:PT24H}") Duration expiracao,
+			@Value("${ecommerce.compra.idempotencia.espera-maxima:PT30S}") Duration esperaMaxima)
+	{
+		this.respostas = Caffeine.newBuilder().maximumSize(tamanhoMaximo).expireAfterWrite(expiracao).recordStats()
+				.build();
+		this.esperaMaxima = esperaMaxima;
+		this.repeticoes = Counter.builder("compra.idempotencia.repeticoes").register(registry);
+		CaffeineCacheMetrics.monitor(registry, respostas, NOME);
+	}
+
+	public ResponseEntity<CompraDTO> executar(Long clienteId, String chave, Long carrinhoId,
+			Supplier<ResponseEntity<CompraDTO>> finalizacao)
+	{
+		Chave chaveCliente = new Chave(clienteId, chave);
+		Registro registro = new Registro(carrinhoId, new CompletableFuture<>());
+		Registro existente = respostas.asMap().putIfAbsent(chaveCliente, registro);
+
+		if (existente != null)
+		{
+			if (!Objects.equals(existente.carrinhoId(), carrinhoId))
+			{
+				return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+						.body(new CompraDTO(false, null, "Chave de idempotência usada em outra compra."));
+			}
+			repeticoes.increment();
+			return aguardar(existente.resposta());
+		}
+
+		ResponseEntity<CompraDTO> resposta;
+		try
+		{
+			resposta = finalizacao.get();
+		}
+		catch (RuntimeException e)
+		{
+			registro.resposta().complete(ESTADO_DESCONHECIDO);
+			throw e;
+		}
+
+		registro.resposta().complete(resposta.getStatusCode().is5xxServerError() ? ESTADO_DESCONHECIDO : resposta);
+		return resposta;
+	}
+
+	/** Quantidade aproximada de respostas guardadas. */
+	public long tamanho()
+	{
+		return respostas.estimatedSize();
+	}
+
+	private ResponseEntity<CompraDTO> aguardar(CompletableFuture<ResponseEntity<CompraDTO>> resposta)
+	{
+		try
+		{
+			return resposta.get(esperaMaxima.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			return ResponseEntity.status(HttpStatus.CONFLICT)
+					.body(new CompraDTO(false, null, "Compra com a mesma chave ainda em processamento."));
+		}
+		catch (ExecutionException e)
+		{
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new CompraDTO(false, null, "Erro ao processar compra."));
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new CompraDTO(false, null, "Erro ao processar compra."));
+		}
+	}
+
+	private record Chave(Long clienteId, String chave)
+	{
+	}
+
+	private record Registro(Long carrinhoId, CompletableFuture<ResponseEntity<CompraDTO>> resposta)
+	{
+	}
+}
@@ -0,0 +1,6 @@
+package ecommerce.dto;
+
+/** Uma autorização dentro de um lote; {@code chaveIdempotencia} pode ser nula. */
+public record AutorizacaoPagamentoDTO(Long clienteId, Double custoTotal, String chaveIdempotencia)
+{
+}
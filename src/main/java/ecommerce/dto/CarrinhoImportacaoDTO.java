@@ -0,0 +1,8 @@
+package ecommerce.dto;
+
+import java.util.List;
+
+/** Carrinho a ser criado por {@code POST /carrinhos/importar}. */
+public record CarrinhoImportacaoDTO(Long clienteId, List<ItemImportacaoDTO> itens)
+{
+}
@@ -0,0 +1,5 @@
+package ecommerce.dto;
+
+public record CompraLoteDTO(Long carrinhoId, CompraDTO compra)
+{
+}
@@ -0,0 +1,7 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+public record CotacaoDTO(Long carrinhoId, BigDecimal custoTotal, String erro)
+{
+}
@@ -0,0 +1,5 @@
+package ecommerce.dto;
+
+public record ItemImportacaoDTO(Long produtoId, Long quantidade)
+{
+}
@@ -0,0 +1,33 @@
+package ecommerce.dto;
+
+/**
+ * Motivos pelos quais uma compra não é concluída sem que nada tenha dado
+ * errado: são desfechos normais do negócio, devolvidos em
+ * {@link ResultadoCompra} em vez de exceção. Cada motivo guarda a resposta
+ * pronta, que não muda.
+ */
+public enum MotivoFalha
+{
+	ESTOQUE_INDISPONIVEL("Itens fora de estoque."),
+	PAGAMENTO_NAO_AUTORIZADO("Pagamento não autorizado."),
+	ERRO_BAIXA_ESTOQUE("Erro ao dar baixa no estoque.");
+
+	private final String mensagem;
+	private final CompraDTO resposta;
+
+	MotivoFalha(String mensagem)
+	{
+		this.mensagem = mensagem;
+		this.resposta = new CompraDTO(false, null, mensagem);
+	}
+
+	public String mensagem()
+	{
+		return mensagem;
+	}
+
+	public CompraDTO resposta()
+	{
+		return resposta;
+	}
+}
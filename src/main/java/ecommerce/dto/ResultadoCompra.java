@@ -0,0 +1,46 @@
+package ecommerce.dto;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Desfecho de uma finalização de compra: a transação de pagamento, quando a
+ * compra foi concluída, ou o {@link MotivoFalha}. Os resultados de falha são
+ * criados uma única vez, então uma recusa não aloca nada.
+ */
+public record ResultadoCompra(Long transacaoPagamentoId, MotivoFalha motivo)
+{
+	private static final Map<MotivoFalha, ResultadoCompra> FALHAS = new EnumMap<>(MotivoFalha.class);
+
+	static
+	{
+		for (MotivoFalha motivo : MotivoFalha.values())
+		{
+			FALHAS.put(motivo, new ResultadoCompra(null, motivo));
+		}
+	}
+
+	public static ResultadoCompra sucesso(Long transacaoPagamentoId)
+	{
+		return new ResultadoCompra(transacaoPagamentoId, null);
+	}
+
+	public static ResultadoCompra falha(MotivoFalha motivo)
+	{
+		return FALHAS.get(motivo);
+	}
+
+	public boolean sucesso()
+	{
+		return motivo == null;
+	}
+
+	public CompraDTO paraDTO()
+	{
+		if (motivo != null)
+		{
+			return motivo.resposta();
+		}
+		return new CompraDTO(true, transacaoPagamentoId, "Compra finalizada com sucesso.");
+	}
+}
@@ -0,0 +1,12 @@
+package ecommerce.dto;
+
+import java.util.BitSet;
+
+/**
+ * Resposta das operações de estoque por linhas ({@code long[]}). Os bits de
+ * {@code linhasIndisponiveis} são as posições, nos arrays enviados, dos
+ * produtos sem saldo. {@code reservaId} só é preenchido por reservas feitas.
+ */
+public record ResultadoEstoqueDTO(boolean sucesso, Long reservaId, BitSet linhasIndisponiveis)
+{
+}
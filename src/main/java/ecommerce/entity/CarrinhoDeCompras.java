@@ -12,13 +12,26 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 @Entity
 public class CarrinhoDeCompras
 {
 
+	/*
+	 * Ids de sequência reservados em blocos de 50: persistir não vai ao banco
+	 * por entidade, e os inserts de carrinhos e itens saem em lotes JDBC
+	 * (IDENTITY obrigaria um insert imediato por linha).
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carrinho_de_compras_seq")
+	@SequenceGenerator(name = "carrinho_de_compras_seq", sequenceName = "carrinho_de_compras_seq",
+			allocationSize = 50)
 	private Long id;
 
 	@ManyToOne // Um cliente pode ter vários carrinhos
@@ -26,11 +39,31 @@ public class CarrinhoDeCompras
 	private Cliente cliente;
 
 	@OneToMany(cascade = CascadeType.ALL, orphanRemoval = true) // Um carrinho tem vários itens
-	@JoinColumn(name = "carrinho_id") // Mapeamento de chave estrangeira na tabela ItemCompra
+	// Chave estrangeira na tabela ItemCompra, gravada já no insert do item (sem update depois)
+	@JoinColumn(name = "carrinho_id", nullable = false, updatable = false)
 	private List<ItemCompra> itens = new ArrayList<>();
 
 	private LocalDate data;
 
+	/**
+	 * Revisão do carrinho, incrementada pelo Hibernate a cada alteração gravada:
+	 * inclusão ou remoção de itens (coleção) e alteração de um item (via
+	 * {@link #revisaoItens}).
+	 */
+	@Version
+	private Long versao;
+
+	/*
+	 * Conta as alterações de itens já presentes, avisadas pelos setters de
+	 * ItemCompra. O Hibernate só avança a versão quando o próprio carrinho muda,
+	 * e uma quantidade alterada no item não mudaria nada no carrinho.
+	 */
+	private long revisaoItens;
+
+	/** Alterado em memória desde a última leitura ou gravação; a revisão ainda não reflete isso. */
+	@Transient
+	private boolean alteracoesPendentes;
+
 	public CarrinhoDeCompras()
 	{
 	}
@@ -41,6 +74,7 @@ public class CarrinhoDeCompras
 		this.cliente = cliente;
 		this.itens = itens;
 		this.data = data;
+		pertencer(itens);
 	}
 
 	// Getters e Setters
@@ -72,6 +106,8 @@ public class CarrinhoDeCompras
 	public void setItens(List<ItemCompra> itens)
 	{
 		this.itens = itens;
+		pertencer(itens);
+		alteracoesPendentes = true;
 	}
 
 	public LocalDate getData()
@@ -83,4 +119,67 @@ public class CarrinhoDeCompras
 	{
 		this.data = data;
 	}
+
+	public Long getVersao()
+	{
+		return versao;
+	}
+
+	public boolean possuiAlteracoesPendentes()
+	{
+		return alteracoesPendentes;
+	}
+
+	@PostLoad
+	@PostPersist
+	@PostUpdate
+	void sincronizado()
+	{
+		alteracoesPendentes = false;
+	}
+
+	/*
+	 * Os itens só devem mudar por estes métodos ou pelos setters de ItemCompra.
+	 * Alterar a lista devolvida por getItens diretamente também avança a versão
+	 * na gravação, mas até lá o carrinho não aparece como alterado.
+	 */
+	public void adicionarItem(ItemCompra item)
+	{
+		alteracoesPendentes = true;
+		item.pertencerA(this);
+		itens.add(item);
+	}
+
+	public void removerItem(ItemCompra item)
+	{
+		alteracoesPendentes = true;
+		if (itens.remove(item))
+		{
+			item.pertencerA(null);
+		}
+	}
+
+	public void atualizarQuantidade(ItemCompra item, Long novaQuantidade)
+	{
+		alteracoesPendentes = true;
+		item.setQuantidade(novaQuantidade);
+	}
+
+	/** Avisado por um item deste carrinho que mudou. */
+	void itemAlterado()
+	{
+		alteracoesPendentes = true;
+		revisaoItens++;
+	}
+
+	private void pertencer(List<ItemCompra> itens)
+	{
+		if (itens != null)
+		{
+			for (ItemCompra item : itens)
+			{
+				item.pertencerA(this);
+			}
+		}
+	}
 }
@@ -0,0 +1,136 @@
+package ecommerce.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+/**
+ * Cancelamento de pagamento pendente (outbox): gravado quando uma compra
+ * precisa desfazer a autorização e executado depois, fora da requisição. Sai
+ * da tabela quando o cancelamento dá certo; esgotadas as tentativas, fica
+ * {@link Situacao#ABANDONADA} para tratamento manual.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_compensacao_pendente", columnList = "situacao, proximaTentativa"))
+public class CompensacaoPagamento
+{
+	public enum Situacao
+	{
+		PENDENTE, ABANDONADA
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compensacao_pagamento_seq")
+	@SequenceGenerator(name = "compensacao_pagamento_seq", sequenceName = "compensacao_pagamento_seq",
+			allocationSize = 50)
+	private Long id;
+
+	private Long clienteId;
+
+	private Long transacaoId;
+
+	@Enumerated(EnumType.STRING)
+	private Situacao situacao;
+
+	private int tentativas;
+
+	private Instant criadaEm;
+
+	private Instant proximaTentativa;
+
+	@Column(length = 500)
+	private String ultimoErro;
+
+	/** Impede que dois processadores peguem a mesma compensação. */
+	@Version
+	private Long versao;
+
+	public CompensacaoPagamento()
+	{
+	}
+
+	public CompensacaoPagamento(Long clienteId, Long transacaoId, Instant agora)
+	{
+		this.clienteId = clienteId;
+		this.transacaoId = transacaoId;
+		this.situacao = Situacao.PENDENTE;
+		this.criadaEm = agora;
+		this.proximaTentativa = agora;
+	}
+
+	public Long getId()
+	{
+		return id;
+	}
+
+	public Long getClienteId()
+	{
+		return clienteId;
+	}
+
+	public Long getTransacaoId()
+	{
+		return transacaoId;
+	}
+
+	public Situacao getSituacao()
+	{
+		return situacao;
+	}
+
+	public int getTentativas()
+	{
+		return tentativas;
+	}
+
+	public Instant getCriadaEm()
+	{
+		return criadaEm;
+	}
+
+	public Instant getProximaTentativa()
+	{
+		return proximaTentativa;
+	}
+
+	public String getUltimoErro()
+	{
+		return ultimoErro;
+	}
+
+	public boolean pendenteEm(Instant agora)
+	{
+		return situacao == Situacao.PENDENTE && !proximaTentativa.isAfter(agora);
+	}
+
+	/** Reserva a compensação para um processador até {@code ate}. */
+	public void reservarAte(Instant ate)
+	{
+		this.proximaTentativa = ate;
+	}
+
+	/** Registra a falha e agenda a próxima tentativa, ou abandona se for {@code null}. */
+	public void falhar(String erro, Instant proxima)
+	{
+		this.tentativas++;
+		this.ultimoErro = erro == null || erro.length() <= 500 ? erro : erro.substring(0, 500);
+		if (proxima == null)
+		{
+			this.situacao = Situacao.ABANDONADA;
+		}
+		else
+		{
+			this.proximaTentativa = proxima;
+		}
+	}
+}
@@ -1,18 +1,21 @@
 package ecommerce.entity;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 
 @Entity
 public class ItemCompra
 {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_compra_seq")
+	@SequenceGenerator(name = "item_compra_seq", sequenceName = "item_compra_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne // Vários itens podem se referir ao mesmo produto
@@ -21,6 +24,14 @@ public class ItemCompra
 
 	private Long quantidade;
 
+	/*
+	 * Carrinho dono do item, avisado a cada alteração para que a versão dele
+	 * avance. Só leitura: a chave estrangeira é gravada pela coleção do carrinho.
+	 */
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "carrinho_id", insertable = false, updatable = false)
+	private CarrinhoDeCompras carrinho;
+
 	public ItemCompra()
 	{
 	}
@@ -51,6 +62,7 @@ public class ItemCompra
 	public void setProduto(Produto produto)
 	{
 		this.produto = produto;
+		avisarCarrinho();
 	}
 
 	public Long getQuantidade()
@@ -61,5 +73,19 @@ public class ItemCompra
 	public void setQuantidade(Long quantidade)
 	{
 		this.quantidade = quantidade;
+		avisarCarrinho();
+	}
+
+	void pertencerA(CarrinhoDeCompras carrinho)
+	{
+		this.carrinho = carrinho;
+	}
+
+	private void avisarCarrinho()
+	{
+		if (carrinho != null)
+		{
+			carrinho.itemAlterado();
+		}
 	}
 }
@@ -2,19 +2,24 @@ package ecommerce.entity;
 
 import java.math.BigDecimal;
 
+import ecommerce.service.CatalogoPrecificacaoListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 
 @Entity
+@EntityListeners(CatalogoPrecificacaoListener.class)
 public class Produto
 {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produto_seq")
+	@SequenceGenerator(name = "produto_seq", sequenceName = "produto_seq", allocationSize = 50)
 	private Long id;
 
 	private String nome;
@@ -0,0 +1,26 @@
+package ecommerce.external;
+
+/**
+ * {@link IllegalStateException} que não captura a pilha. Para falhas que
+ * acontecem em rajada (disjuntor aberto, tempo esgotado) e cujo ponto de
+ * origem já é conhecido pela mensagem: criar a exceção custa o mesmo que
+ * qualquer objeto.
+ *
+ * <p>
+ * Crie uma instância por lançamento. Uma instância compartilhada acumularia
+ * as exceções suprimidas (o {@code block()} do Reactor acrescenta uma) e
+ * misturaria causas entre threads.
+ */
+public class FalhaSemPilha extends IllegalStateException
+{
+	public FalhaSemPilha(String mensagem)
+	{
+		super(mensagem);
+	}
+
+	@Override
+	public Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
@@ -1,9 +1,16 @@
 package ecommerce.external;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
 
 public interface IEstoqueExternal
 {
@@ -12,4 +19,97 @@ public interface IEstoqueExternal
 
 	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades);
 
+	/**
+	 * Separa as quantidades de uma vez, por no máximo {@code validade}; depois
+	 * disso a reserva expira e o saldo volta. Sem reserva nativa, apenas
+	 * verifica a disponibilidade e devolve {@code reservaId} nulo.
+	 */
+	public default ReservaEstoqueDTO reservar(List<Long> produtosIds, List<Long> produtosQuantidades,
+			Duration validade)
+	{
+		DisponibilidadeDTO disponibilidade = verificarDisponibilidade(produtosIds, produtosQuantidades);
+		return new ReservaEstoqueDTO(disponibilidade.disponivel(), null, disponibilidade.idsProdutosIndisponiveis());
+	}
+
+	/**
+	 * Baixa as quantidades informadas, que podem ser parte do que foi reservado;
+	 * o restante da reserva é liberado. Com {@code reservaId} nulo, desconhecido
+	 * ou expirado, equivale a {@link #darBaixa}.
+	 */
+	public default EstoqueBaixaDTO confirmarReserva(Long reservaId, List<Long> produtosIds,
+			List<Long> produtosQuantidades)
+	{
+		return darBaixa(produtosIds, produtosQuantidades);
+	}
+
+	/** Devolve ao saldo tudo o que a reserva separou. Ignora reservas nulas ou já encerradas. */
+	public default void liberarReserva(Long reservaId)
+	{
+	}
+
+	/*
+	 * Variantes por linhas, com ids e quantidades em arrays paralelos e os
+	 * indisponíveis num BitSet de posições, para quem já tem o carrinho em
+	 * forma primitiva. As implementações padrão convertem para as listas
+	 * acima; implementações nativas evitam o boxing.
+	 */
+
+	public default ResultadoEstoqueDTO verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		DisponibilidadeDTO disponibilidade = verificarDisponibilidade(paraLista(produtosIds),
+				paraLista(produtosQuantidades));
+		return new ResultadoEstoqueDTO(Boolean.TRUE.equals(disponibilidade.disponivel()), null,
+				posicoes(produtosIds, disponibilidade.idsProdutosIndisponiveis()));
+	}
+
+	public default ResultadoEstoqueDTO baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		EstoqueBaixaDTO baixa = darBaixa(paraLista(produtosIds), paraLista(produtosQuantidades));
+		return new ResultadoEstoqueDTO(Boolean.TRUE.equals(baixa.sucesso()), null, new BitSet());
+	}
+
+	public default ResultadoEstoqueDTO reservarLinhas(long[] produtosIds, long[] produtosQuantidades,
+			Duration validade)
+	{
+		ReservaEstoqueDTO reserva = reservar(paraLista(produtosIds), paraLista(produtosQuantidades), validade);
+		return new ResultadoEstoqueDTO(Boolean.TRUE.equals(reserva.reservado()), reserva.reservaId(),
+				posicoes(produtosIds, reserva.idsProdutosIndisponiveis()));
+	}
+
+	public default ResultadoEstoqueDTO confirmarLinhas(Long reservaId, long[] produtosIds,
+			long[] produtosQuantidades)
+	{
+		EstoqueBaixaDTO baixa = confirmarReserva(reservaId, paraLista(produtosIds), paraLista(produtosQuantidades));
+		return new ResultadoEstoqueDTO(Boolean.TRUE.equals(baixa.sucesso()), null, new BitSet());
+	}
+
+	private static List<Long> paraLista(long[] valores)
+	{
+		List<Long> lista = new ArrayList<>(valores.length);
+		for (long valor : valores)
+		{
+			lista.add(valor);
+		}
+		return lista;
+	}
+
+	private static BitSet posicoes(long[] produtosIds, List<Long> idsIndisponiveis)
+	{
+		BitSet posicoes = new BitSet(produtosIds.length);
+		if (idsIndisponiveis == null || idsIndisponiveis.isEmpty())
+		{
+			return posicoes;
+		}
+
+		Set<Long> indisponiveis = new HashSet<>(idsIndisponiveis);
+		for (int i = 0; i < produtosIds.length; i++)
+		{
+			if (indisponiveis.contains(produtosIds[i]))
+			{
+				posicoes.set(i);
+			}
+		}
+		return posicoes;
+	}
+
 }
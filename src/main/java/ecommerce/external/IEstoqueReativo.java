@@ -0,0 +1,23 @@
+package ecommerce.external;
+
+import java.time.Duration;
+
+import ecommerce.dto.ResultadoEstoqueDTO;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versão não bloqueante das operações por linhas de {@link IEstoqueExternal},
+ * com a mesma semântica. Nenhum método bloqueia a thread de quem assina.
+ */
+public interface IEstoqueReativo
+{
+	Mono<ResultadoEstoqueDTO> verificarLinhas(long[] produtosIds, long[] produtosQuantidades);
+
+	Mono<ResultadoEstoqueDTO> baixarLinhas(long[] produtosIds, long[] produtosQuantidades);
+
+	Mono<ResultadoEstoqueDTO> reservarLinhas(long[] produtosIds, long[] produtosQuantidades, Duration validade);
+
+	Mono<ResultadoEstoqueDTO> confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades);
+
+	Mono<Void> liberarReserva(Long reservaId);
+}
@@ -1,5 +1,9 @@
 package ecommerce.external;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
 import ecommerce.dto.PagamentoDTO;
 
 public interface IPagamentoExternal
@@ -7,5 +11,44 @@ public interface IPagamentoExternal
 
 	PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal);
 
+	/** Mesmo que {@link #autorizarPagamento(Long, Double)}, com o valor em centavos e sem boxing. */
+	default PagamentoDTO autorizarPagamento(long clienteId, long valorCentavos)
+	{
+		return autorizarPagamento(Long.valueOf(clienteId), Double.valueOf(valorCentavos / 100.0));
+	}
+
+	/**
+	 * Autorização idempotente: chamadas com a mesma chave resultam numa única
+	 * autorização, e todas recebem a mesma resposta. Só vale quando
+	 * {@link #suportaIdempotencia()} é verdadeiro; sem suporte, a chave é
+	 * ignorada.
+	 */
+	default PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia)
+	{
+		return autorizarPagamento(clienteId, custoTotal);
+	}
+
+	default boolean suportaIdempotencia()
+	{
+		return false;
+	}
+
+	/**
+	 * Autoriza vários pagamentos numa só chamada ao provedor. A resposta na
+	 * posição {@code i} corresponde à autorização na posição {@code i}. Uma
+	 * exceção vale para o lote inteiro. A implementação padrão autoriza um a
+	 * um.
+	 */
+	default List<PagamentoDTO> autorizarPagamentos(List<AutorizacaoPagamentoDTO> autorizacoes)
+	{
+		List<PagamentoDTO> pagamentos = new ArrayList<>(autorizacoes.size());
+		for (AutorizacaoPagamentoDTO autorizacao : autorizacoes)
+		{
+			pagamentos.add(autorizarPagamento(autorizacao.clienteId(), autorizacao.custoTotal(),
+					autorizacao.chaveIdempotencia()));
+		}
+		return pagamentos;
+	}
+
 	void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId);
 }
@@ -0,0 +1,15 @@
+package ecommerce.external;
+
+import ecommerce.dto.PagamentoDTO;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versão não bloqueante de {@link IPagamentoExternal}, com a mesma semântica.
+ * Nenhum método bloqueia a thread de quem assina.
+ */
+public interface IPagamentoReativo
+{
+	Mono<PagamentoDTO> autorizarPagamento(long clienteId, long valorCentavos);
+
+	Mono<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId);
+}
@@ -0,0 +1,200 @@
+package ecommerce.external.agrupamento;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Fila que forma lotes: um lote sai quando atinge {@code tamanhoMaximo} ou
+ * quando o seu item mais antigo completa {@code janela} na fila. Um único
+ * coletor monta os lotes e até {@code threads} lotes são entregues a
+ * {@code envio} em paralelo. Registra o tamanho de cada lote e a espera de
+ * cada item até o envio.
+ *
+ * <p>
+ * Ao encerrar, os lotes já entregues aos envios terminam normalmente; todo item
+ * ainda não enviado, inclusive de um lote formado durante o encerramento, vai
+ * para {@code aoEncerrar}.
+ */
+final class ColetorLotes<T>
+{
+	private final BlockingQueue<Entrada<T>> fila = new LinkedBlockingQueue<>();
+	private final int tamanhoMaximo;
+	private final long janelaNanos;
+	private final Consumer<List<T>> envio;
+	private final Consumer<T> aoEncerrar;
+	private final DistributionSummary tamanhoLote;
+	private final Timer espera;
+	private final ThreadPoolExecutor envios;
+	private final Thread coletor;
+	private volatile boolean encerrado;
+
+	/**
+	 * @param aoEncerrar recebe os itens que ainda não foram enviados quando o
+	 *                   coletor é encerrado
+	 */
+	ColetorLotes(String prefixoThreads, int tamanhoMaximo, Duration janela, int threads,
+			DistributionSummary tamanhoLote, Timer espera, Consumer<List<T>> envio, Consumer<T> aoEncerrar)
+	{
+		if (tamanhoMaximo <= 0 || threads <= 0 || janela.isNegative())
+		{
+			throw new IllegalArgumentException("Parametros de agrupamento invalidos");
+		}
+		this.tamanhoMaximo = tamanhoMaximo;
+		this.janelaNanos = janela.toNanos();
+		this.envio = envio;
+		this.aoEncerrar = aoEncerrar;
+		this.tamanhoLote = tamanhoLote;
+		this.espera = espera;
+
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory(prefixoThreads);
+		fabrica.setDaemon(true);
+		// Sem thread livre e com a fila cheia, o próprio coletor envia: segura a formação de novos lotes
+		this.envios = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads * 4), fabrica, new EnvioRecusado());
+		this.envios.allowCoreThreadTimeOut(true);
+
+		this.coletor = fabrica.newThread(this::coletar);
+		this.coletor.start();
+	}
+
+	/** @throws IllegalStateException depois de {@link #encerrar()} */
+	void adicionar(T item)
+	{
+		if (encerrado)
+		{
+			throw new IllegalStateException("Agrupamento encerrado.");
+		}
+		Entrada<T> entrada = new Entrada<>(item, System.nanoTime());
+		fila.add(entrada);
+		// Encerrado entre a verificação e a inclusão: o coletor pode já ter esvaziado a fila
+		if (encerrado && fila.remove(entrada))
+		{
+			throw new IllegalStateException("Agrupamento encerrado.");
+		}
+	}
+
+	void encerrar()
+	{
+		encerrado = true;
+		coletor.interrupt();
+		envios.shutdown();
+	}
+
+	private void coletar()
+	{
+		List<Entrada<T>> lote = new ArrayList<>(tamanhoMaximo);
+
+		try
+		{
+			while (!encerrado && !Thread.currentThread().isInterrupted())
+			{
+				Entrada<T> primeira = fila.take();
+				lote.add(primeira);
+				long limite = primeira.enfileiradaEm() + janelaNanos;
+
+				while (lote.size() < tamanhoMaximo)
+				{
+					fila.drainTo(lote, tamanhoMaximo - lote.size());
+					long restante = limite - System.nanoTime();
+					if (lote.size() >= tamanhoMaximo || restante <= 0)
+					{
+						break;
+					}
+					Entrada<T> proxima = fila.poll(restante, TimeUnit.NANOSECONDS);
+					if (proxima == null)
+					{
+						break;
+					}
+					lote.add(proxima);
+				}
+
+				List<T> itens = registrar(lote);
+				lote.clear();
+				envios.execute(new Envio(itens));
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		// Encerrado: quem ainda espera não fica preso
+		lote.forEach(entrada -> aoEncerrar.accept(entrada.item()));
+		Entrada<T> pendente;
+		while ((pendente = fila.poll()) != null)
+		{
+			aoEncerrar.accept(pendente.item());
+		}
+	}
+
+	private List<T> registrar(List<Entrada<T>> lote)
+	{
+		long agora = System.nanoTime();
+		List<T> itens = new ArrayList<>(lote.size());
+		for (Entrada<T> entrada : lote)
+		{
+			espera.record(agora - entrada.enfileiradaEm(), TimeUnit.NANOSECONDS);
+			itens.add(entrada.item());
+		}
+		tamanhoLote.record(lote.size());
+		return itens;
+	}
+
+	private record Entrada<T>(T item, long enfileiradaEm)
+	{
+	}
+
+	private final class Envio implements Runnable
+	{
+		private final List<T> itens;
+
+		Envio(List<T> itens)
+		{
+			this.itens = itens;
+		}
+
+		@Override
+		public void run()
+		{
+			envio.accept(itens);
+		}
+
+		void descartar()
+		{
+			itens.forEach(aoEncerrar);
+		}
+	}
+
+	/**
+	 * Fila cheia: o coletor envia ele mesmo. Envios já encerrados: o lote não
+	 * sai, e os itens vão para {@code aoEncerrar} em vez de sumir.
+	 */
+	private final class EnvioRecusado implements RejectedExecutionHandler
+	{
+		@Override
+		@SuppressWarnings("unchecked")
+		public void rejectedExecution(Runnable tarefa, ThreadPoolExecutor executor)
+		{
+			Envio lote = (Envio) tarefa;
+			if (executor.isShutdown())
+			{
+				lote.descartar();
+				return;
+			}
+			lote.run();
+		}
+	}
+}
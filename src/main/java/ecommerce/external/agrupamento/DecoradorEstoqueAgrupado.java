@@ -0,0 +1,54 @@
+package ecommerce.external.agrupamento;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.IEstoqueExternal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Envolve o gateway de estoque ativo num {@link EstoqueAgrupado} quando
+ * {@code ecommerce.estoque.agrupamento.habilitado=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "ecommerce.estoque.agrupamento.habilitado", havingValue = "true")
+public class DecoradorEstoqueAgrupado implements BeanPostProcessor
+{
+	private final ObjectProvider<MeterRegistry> registry;
+	private final int tamanhoMaximo;
+	private final Duration janela;
+	private final int threads;
+	private final Duration tempoLimite;
+
+	@Autowired
+	public DecoradorEstoqueAgrupado(ObjectProvider<MeterRegistry> registry,
+			@Value("${ecommerce.estoque.agrupamento.tamanho-maximo:100}") int tamanhoMaximo,
+			@Value("${ecommerce.estoque.agrupamento.janela:PT0.002S}") Duration janela,
+			@Value("${ecommerce.estoque.agrupamento.threads:4}") int threads,
+			@Value("${ecommerce.estoque.agrupamento.tempo-limite:PT30S}") Duration tempoLimite)
+	{
+		this.registry = registry;
+		this.tamanhoMaximo = tamanhoMaximo;
+		this.janela = janela;
+		this.threads = threads;
+		this.tempoLimite = tempoLimite;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String nome)
+	{
+		if (bean instanceof IEstoqueExternal estoque && !(bean instanceof EstoqueAgrupado))
+		{
+			return new EstoqueAgrupado(estoque, tamanhoMaximo, janela, threads, tempoLimite,
+					registry.getIfAvailable(SimpleMeterRegistry::new));
+		}
+		return bean;
+	}
+}
@@ -0,0 +1,65 @@
+package ecommerce.external.agrupamento;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Envolve o gateway de pagamento ativo num {@link PagamentoAgrupado} quando
+ * {@code ecommerce.pagamento.agrupamento.habilitado=true}. Roda antes dos
+ * demais decoradores, então o agrupamento fica mais perto do provedor: hedge
+ * e disjuntor, quando ativos, ficam por fora.
+ */
+@Component
+@ConditionalOnProperty(name = "ecommerce.pagamento.agrupamento.habilitado", havingValue = "true")
+public class DecoradorPagamentoAgrupado implements BeanPostProcessor, Ordered
+{
+	public static final int ORDEM = Ordered.LOWEST_PRECEDENCE - 100;
+
+	private final ObjectProvider<MeterRegistry> registry;
+	private final int tamanhoMaximo;
+	private final Duration janela;
+	private final int threads;
+	private final Duration tempoLimite;
+
+	@Autowired
+	public DecoradorPagamentoAgrupado(ObjectProvider<MeterRegistry> registry,
+			@Value("${ecommerce.pagamento.agrupamento.tamanho-maximo:50}") int tamanhoMaximo,
+			@Value("${ecommerce.pagamento.agrupamento.janela:PT0.005S}") Duration janela,
+			@Value("${ecommerce.pagamento.agrupamento.threads:8}") int threads,
+			@Value("${ecommerce.pagamento.agrupamento.tempo-limite:PT30S}") Duration tempoLimite)
+	{
+		this.registry = registry;
+		this.tamanhoMaximo = tamanhoMaximo;
+		this.janela = janela;
+		this.threads = threads;
+		this.tempoLimite = tempoLimite;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String nome)
+	{
+		if (bean instanceof IPagamentoExternal pagamento && !(bean instanceof PagamentoAgrupado))
+		{
+			return new PagamentoAgrupado(pagamento, tamanhoMaximo, janela, threads, tempoLimite,
+					registry.getIfAvailable(SimpleMeterRegistry::new));
+		}
+		return bean;
+	}
+
+	@Override
+	public int getOrder()
+	{
+		return ORDEM;
+	}
+}
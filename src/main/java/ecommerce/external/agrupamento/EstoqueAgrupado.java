@@ -0,0 +1,347 @@
+package ecommerce.external.agrupamento;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Decorador que junta as baixas diretas de compras concorrentes (group
+ * commit): as baixas que chegam juntas, num lote formado por
+ * {@link ColetorLotes}, viram uma única {@link IEstoqueExternal#baixarLinhas}
+ * com as quantidades somadas por produto.
+ *
+ * <p>
+ * A baixa é tudo ou nada, então uma falha do lote não diz de quem é a culpa.
+ * Nesse caso os produtos sem saldo são consultados: as compras que não tocam
+ * nenhum deles são baixadas juntas de novo, e as demais uma a uma. Cada compra
+ * recebe o próprio resultado, e só as que de fato ficaram sem estoque veem
+ * falha (e cancelam o pagamento).
+ *
+ * <p>
+ * Passam pelo agrupamento {@code darBaixa}, {@code baixarLinhas} e as
+ * confirmações sem reserva ({@code reservaId} nulo); o resto vai direto ao
+ * gateway decorado. Cada chamador espera no máximo {@code tempoLimite}; sem
+ * resposta nesse prazo a baixa falha com {@link IllegalStateException}, mas o
+ * lote pode já ter sido enviado. Métricas: {@code estoque.lote.tamanho},
+ * {@code estoque.lote.espera} e {@code estoque.lote.reprocessamentos} (lotes
+ * que falharam e foram separados).
+ */
+public class EstoqueAgrupado implements IEstoqueExternal, DisposableBean
+{
+	static final Duration TEMPO_LIMITE_PADRAO = Duration.ofSeconds(30);
+
+	private final IEstoqueExternal delegado;
+	private final ColetorLotes<Baixa> coletor;
+	private final Counter reprocessamentos;
+	private final long tempoLimiteNanos;
+
+	public EstoqueAgrupado(IEstoqueExternal delegado, int tamanhoMaximo, Duration janela, int threads,
+			MeterRegistry registry)
+	{
+		this(delegado, tamanhoMaximo, janela, threads, TEMPO_LIMITE_PADRAO, registry);
+	}
+
+	public EstoqueAgrupado(IEstoqueExternal delegado, int tamanhoMaximo, Duration janela, int threads,
+			Duration tempoLimite, MeterRegistry registry)
+	{
+		this.delegado = delegado;
+		this.tempoLimiteNanos = tempoLimite.toNanos();
+		this.reprocessamentos = Counter.builder("estoque.lote.reprocessamentos").register(registry);
+		this.coletor = new ColetorLotes<>("estoque-lote-", tamanhoMaximo, janela, threads,
+				DistributionSummary.builder("estoque.lote.tamanho").register(registry),
+				Timer.builder("estoque.lote.espera").register(registry), this::enviar,
+				baixa -> baixa.resultado().completeExceptionally(
+						new IllegalStateException("Serviço de estoque encerrado.")));
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		long[] ids = paraArray(produtosIds);
+		long[] quantidades = paraArray(produtosQuantidades);
+		if (ids == null || quantidades == null)
+		{
+			return delegado.darBaixa(produtosIds, produtosQuantidades);
+		}
+		return new EstoqueBaixaDTO(baixarLinhas(ids, quantidades).sucesso());
+	}
+
+	@Override
+	public ResultadoEstoqueDTO baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		if (!valida(produtosIds, produtosQuantidades))
+		{
+			// Uma linha inválida derrubaria o lote inteiro: vai sozinha
+			return delegado.baixarLinhas(produtosIds, produtosQuantidades);
+		}
+
+		Baixa baixa = new Baixa(produtosIds, produtosQuantidades, new CompletableFuture<>());
+		coletor.adicionar(baixa);
+
+		try
+		{
+			return baixa.resultado().get(tempoLimiteNanos, TimeUnit.NANOSECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			throw (RuntimeException) e.getCause();
+		}
+		catch (TimeoutException e)
+		{
+			throw new IllegalStateException("Tempo limite da baixa de estoque esgotado.");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Baixa de estoque interrompida.", e);
+		}
+	}
+
+	@Override
+	public EstoqueBaixaDTO confirmarReserva(Long reservaId, List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		if (reservaId == null)
+		{
+			return darBaixa(produtosIds, produtosQuantidades);
+		}
+		return delegado.confirmarReserva(reservaId, produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades)
+	{
+		if (reservaId == null)
+		{
+			return baixarLinhas(produtosIds, produtosQuantidades);
+		}
+		return delegado.confirmarLinhas(reservaId, produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return delegado.verificarDisponibilidade(produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return delegado.verificarLinhas(produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public ReservaEstoqueDTO reservar(List<Long> produtosIds, List<Long> produtosQuantidades, Duration validade)
+	{
+		return delegado.reservar(produtosIds, produtosQuantidades, validade);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO reservarLinhas(long[] produtosIds, long[] produtosQuantidades, Duration validade)
+	{
+		return delegado.reservarLinhas(produtosIds, produtosQuantidades, validade);
+	}
+
+	@Override
+	public void liberarReserva(Long reservaId)
+	{
+		delegado.liberarReserva(reservaId);
+	}
+
+	/** Gateway decorado. */
+	public IEstoqueExternal delegado()
+	{
+		return delegado;
+	}
+
+	@Override
+	public void destroy()
+	{
+		coletor.encerrar();
+	}
+
+	private void enviar(List<Baixa> lote)
+	{
+		try
+		{
+			if (lote.size() == 1)
+			{
+				baixarSozinha(lote.get(0));
+				return;
+			}
+
+			Linhas total = somar(lote);
+			if (delegado.baixarLinhas(total.ids(), total.quantidades()).sucesso())
+			{
+				lote.forEach(EstoqueAgrupado::concluirComSucesso);
+				return;
+			}
+
+			reprocessamentos.increment();
+			Set<Long> semSaldo = idsIndisponiveis(total,
+					delegado.verificarLinhas(total.ids(), total.quantidades()));
+
+			List<Baixa> livres = new ArrayList<>();
+			List<Baixa> conflitantes = new ArrayList<>();
+			for (Baixa baixa : lote)
+			{
+				// Sem indicação de produto (corrida com outra baixa), todas vão uma a uma
+				(semSaldo.isEmpty() || toca(baixa, semSaldo) ? conflitantes : livres).add(baixa);
+			}
+
+			if (livres.size() > 1)
+			{
+				Linhas soma = somar(livres);
+				if (delegado.baixarLinhas(soma.ids(), soma.quantidades()).sucesso())
+				{
+					livres.forEach(EstoqueAgrupado::concluirComSucesso);
+				}
+				else
+				{
+					conflitantes.addAll(livres);
+				}
+			}
+			else
+			{
+				conflitantes.addAll(livres);
+			}
+
+			conflitantes.forEach(this::baixarSozinha);
+		}
+		catch (RuntimeException e)
+		{
+			// Só alcança quem ainda não recebeu resultado
+			lote.forEach(baixa -> baixa.resultado().completeExceptionally(e));
+		}
+	}
+
+	private void baixarSozinha(Baixa baixa)
+	{
+		try
+		{
+			baixa.resultado().complete(delegado.baixarLinhas(baixa.ids(), baixa.quantidades()));
+		}
+		catch (RuntimeException e)
+		{
+			baixa.resultado().completeExceptionally(e);
+		}
+	}
+
+	private static void concluirComSucesso(Baixa baixa)
+	{
+		baixa.resultado().complete(new ResultadoEstoqueDTO(true, null, new BitSet()));
+	}
+
+	private static Linhas somar(List<Baixa> baixas)
+	{
+		Map<Long, Long> totais = new HashMap<>();
+		for (Baixa baixa : baixas)
+		{
+			for (int i = 0; i < baixa.ids().length; i++)
+			{
+				totais.merge(baixa.ids()[i], baixa.quantidades()[i], Long::sum);
+			}
+		}
+
+		long[] ids = new long[totais.size()];
+		long[] quantidades = new long[totais.size()];
+		int posicao = 0;
+		for (Map.Entry<Long, Long> total : totais.entrySet())
+		{
+			ids[posicao] = total.getKey();
+			quantidades[posicao++] = total.getValue();
+		}
+		return new Linhas(ids, quantidades);
+	}
+
+	private static Set<Long> idsIndisponiveis(Linhas linhas, ResultadoEstoqueDTO verificacao)
+	{
+		Set<Long> ids = new HashSet<>();
+		BitSet posicoes = verificacao.linhasIndisponiveis();
+		if (verificacao.sucesso() || posicoes == null)
+		{
+			return ids;
+		}
+		for (int i = posicoes.nextSetBit(0); i >= 0; i = posicoes.nextSetBit(i + 1))
+		{
+			ids.add(linhas.ids()[i]);
+		}
+		return ids;
+	}
+
+	private static boolean toca(Baixa baixa, Set<Long> produtos)
+	{
+		for (long id : baixa.ids())
+		{
+			if (produtos.contains(id))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean valida(long[] ids, long[] quantidades)
+	{
+		if (ids == null || quantidades == null || ids.length == 0 || ids.length != quantidades.length)
+		{
+			return false;
+		}
+		for (long quantidade : quantidades)
+		{
+			if (quantidade <= 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return null se a lista for nula ou tiver elementos nulos */
+	private static long[] paraArray(List<Long> valores)
+	{
+		if (valores == null)
+		{
+			return null;
+		}
+		long[] array = new long[valores.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			Long valor = valores.get(i);
+			if (valor == null)
+			{
+				return null;
+			}
+			array[i] = valor;
+		}
+		return array;
+	}
+
+	private record Baixa(long[] ids, long[] quantidades, CompletableFuture<ResultadoEstoqueDTO> resultado)
+	{
+	}
+
+	private record Linhas(long[] ids, long[] quantidades)
+	{
+	}
+}
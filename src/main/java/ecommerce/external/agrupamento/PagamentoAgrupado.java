@@ -0,0 +1,173 @@
+package ecommerce.external.agrupamento;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Decorador que junta autorizações concorrentes em lotes para
+ * {@link IPagamentoExternal#autorizarPagamentos(List)}, formados por um
+ * {@link ColetorLotes}. Cada chamador continua bloqueado até receber a sua
+ * própria resposta, por no máximo {@code tempoLimite}; uma exceção no envio do
+ * lote chega a todos os chamadores daquele lote. Uma autorização que chegar
+ * depois do tempo limite é cancelada, já que o chamador desistiu dela.
+ *
+ * <p>
+ * Métricas: {@code pagamento.lote.tamanho} (autorizações por lote) e
+ * {@code pagamento.lote.espera} (tempo de cada autorização na fila até o
+ * envio). Cancelamentos não são agrupados.
+ */
+public class PagamentoAgrupado implements IPagamentoExternal, DisposableBean
+{
+	private static final Logger log = LoggerFactory.getLogger(PagamentoAgrupado.class);
+
+	static final Duration TEMPO_LIMITE_PADRAO = Duration.ofSeconds(30);
+
+	private final IPagamentoExternal delegado;
+	private final ColetorLotes<Pedido> coletor;
+	private final long tempoLimiteNanos;
+
+	public PagamentoAgrupado(IPagamentoExternal delegado, int tamanhoMaximo, Duration janela, int threads,
+			MeterRegistry registry)
+	{
+		this(delegado, tamanhoMaximo, janela, threads, TEMPO_LIMITE_PADRAO, registry);
+	}
+
+	public PagamentoAgrupado(IPagamentoExternal delegado, int tamanhoMaximo, Duration janela, int threads,
+			Duration tempoLimite, MeterRegistry registry)
+	{
+		this.delegado = delegado;
+		this.tempoLimiteNanos = tempoLimite.toNanos();
+		this.coletor = new ColetorLotes<>("pagamento-lote-", tamanhoMaximo, janela, threads,
+				DistributionSummary.builder("pagamento.lote.tamanho").register(registry),
+				Timer.builder("pagamento.lote.espera").register(registry), this::enviar,
+				pedido -> pedido.resultado().completeExceptionally(
+						new IllegalStateException("Serviço de pagamento encerrado.")));
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return autorizarPagamento(clienteId, custoTotal, null);
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia)
+	{
+		Pedido pedido = new Pedido(new AutorizacaoPagamentoDTO(clienteId, custoTotal, chaveIdempotencia),
+				new CompletableFuture<>());
+		coletor.adicionar(pedido);
+
+		try
+		{
+			return pedido.resultado().get(tempoLimiteNanos, TimeUnit.NANOSECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			throw (RuntimeException) e.getCause();
+		}
+		catch (TimeoutException e)
+		{
+			pedido.resultado().thenAccept(pagamento -> cancelarTardia(clienteId, pagamento));
+			throw new IllegalStateException("Tempo limite da autorização de pagamento esgotado.");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Autorização de pagamento interrompida.", e);
+		}
+	}
+
+	@Override
+	public List<PagamentoDTO> autorizarPagamentos(List<AutorizacaoPagamentoDTO> autorizacoes)
+	{
+		// Já é um lote: segue direto
+		return delegado.autorizarPagamentos(autorizacoes);
+	}
+
+	@Override
+	public boolean suportaIdempotencia()
+	{
+		return delegado.suportaIdempotencia();
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		delegado.cancelarPagamento(clienteId, pagamentoTransacaoId);
+	}
+
+	/** Gateway decorado. */
+	public IPagamentoExternal delegado()
+	{
+		return delegado;
+	}
+
+	@Override
+	public void destroy()
+	{
+		coletor.encerrar();
+	}
+
+	private void enviar(List<Pedido> lote)
+	{
+		List<AutorizacaoPagamentoDTO> autorizacoes = new ArrayList<>(lote.size());
+		for (Pedido pedido : lote)
+		{
+			autorizacoes.add(pedido.autorizacao());
+		}
+
+		try
+		{
+			List<PagamentoDTO> pagamentos = delegado.autorizarPagamentos(autorizacoes);
+			if (pagamentos == null || pagamentos.size() != lote.size())
+			{
+				throw new IllegalStateException("Resposta do lote de pagamentos inconsistente.");
+			}
+			for (int i = 0; i < lote.size(); i++)
+			{
+				lote.get(i).resultado().complete(pagamentos.get(i));
+			}
+		}
+		catch (RuntimeException e)
+		{
+			lote.forEach(pedido -> pedido.resultado().completeExceptionally(e));
+		}
+	}
+
+	private void cancelarTardia(Long clienteId, PagamentoDTO pagamento)
+	{
+		if (!Boolean.TRUE.equals(pagamento.autorizado()))
+		{
+			return;
+		}
+		try
+		{
+			delegado.cancelarPagamento(clienteId, pagamento.transacaoId());
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Falha ao cancelar a autorização {} do cliente {}, concluída após o tempo limite",
+					pagamento.transacaoId(), clienteId, e);
+		}
+	}
+
+	private record Pedido(AutorizacaoPagamentoDTO autorizacao, CompletableFuture<PagamentoDTO> resultado)
+	{
+	}
+}
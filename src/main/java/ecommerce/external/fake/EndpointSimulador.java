@@ -0,0 +1,73 @@
+package ecommerce.external.fake;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.fake.PerfilSimulacao.Distribuicao;
+
+/**
+ * {@code /actuator/simulador}: consulta e troca os perfis do {@link Simulador}
+ * com a aplicação rodando. {@code POST /actuator/simulador/estoque.reservar}
+ * com um JSON parcial (por exemplo
+ * {@code {"distribuicao":"LOG_NORMAL","latencia":"PT0.02S","sigma":0.8}})
+ * altera só os campos enviados; {@code DELETE} volta a operação a responder na
+ * hora.
+ */
+@Component
+@Endpoint(id = "simulador")
+public class EndpointSimulador
+{
+	private final Simulador simulador;
+
+	public EndpointSimulador(Simulador simulador)
+	{
+		this.simulador = simulador;
+	}
+
+	@ReadOperation
+	public Map<String, PerfilSimulacao> perfis()
+	{
+		return simulador.perfis();
+	}
+
+	@ReadOperation
+	public PerfilSimulacao perfil(@Selector String operacao)
+	{
+		return simulador.perfil(operacao);
+	}
+
+	@WriteOperation
+	public PerfilSimulacao alterar(@Selector String operacao, @Nullable Distribuicao distribuicao,
+			@Nullable Duration latencia, @Nullable Duration latenciaMaxima, @Nullable Double sigma,
+			@Nullable Double probabilidadeCauda, @Nullable Double taxaFalhas, @Nullable Double taxaTempoEsgotado,
+			@Nullable Duration tempoLimite, @Nullable Double taxaRecusa)
+	{
+		PerfilSimulacao atual = simulador.perfil(operacao);
+		PerfilSimulacao novo = new PerfilSimulacao(valor(distribuicao, atual.distribuicao()),
+				valor(latencia, atual.latencia()), valor(latenciaMaxima, atual.latenciaMaxima()),
+				valor(sigma, atual.sigma()), valor(probabilidadeCauda, atual.probabilidadeCauda()),
+				valor(taxaFalhas, atual.taxaFalhas()), valor(taxaTempoEsgotado, atual.taxaTempoEsgotado()),
+				valor(tempoLimite, atual.tempoLimite()), valor(taxaRecusa, atual.taxaRecusa()));
+		simulador.definir(operacao, novo);
+		return novo;
+	}
+
+	@DeleteOperation
+	public void remover(@Selector String operacao)
+	{
+		simulador.remover(operacao);
+	}
+
+	private static <T> T valor(T enviado, T atual)
+	{
+		return enviado == null ? atual : enviado;
+	}
+}
@@ -1,26 +1,119 @@
 package ecommerce.external.fake;
 
+import java.time.Duration;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
 import ecommerce.external.IEstoqueExternal;
 
+/**
+ * Sempre aprova, a menos que o {@link Simulador} tenha um perfil para a
+ * operação; a recusa sorteada marca um produto do pedido como sem saldo.
+ */
 @Service
+@ConditionalOnProperty(name = "ecommerce.estoque.modo", havingValue = "simulado", matchIfMissing = true)
 public class EstoqueSimulado implements IEstoqueExternal
 {
+	private final Simulador simulador;
+
+	public EstoqueSimulado()
+	{
+		this(Simulador.desligado());
+	}
+
+	@Autowired
+	public EstoqueSimulado(Simulador simulador)
+	{
+		this.simulador = simulador;
+	}
 
 	@Override
 	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
 	{
-		return new EstoqueBaixaDTO(true);
+		return new EstoqueBaixaDTO(!simulador.simular("estoque.baixar"));
 	}
 
 	@Override
 	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
 	{
+		if (simulador.simular("estoque.verificar"))
+		{
+			return new DisponibilidadeDTO(false, sortear(produtosIds));
+		}
 		return new DisponibilidadeDTO(true, produtosIds);
 	}
+
+	@Override
+	public ReservaEstoqueDTO reservar(List<Long> produtosIds, List<Long> produtosQuantidades, Duration validade)
+	{
+		if (simulador.simular("estoque.reservar"))
+		{
+			return new ReservaEstoqueDTO(false, null, sortear(produtosIds));
+		}
+		return new ReservaEstoqueDTO(true, null, List.of());
+	}
+
+	@Override
+	public EstoqueBaixaDTO confirmarReserva(Long reservaId, List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return new EstoqueBaixaDTO(!simulador.simular("estoque.confirmar"));
+	}
+
+	@Override
+	public void liberarReserva(Long reservaId)
+	{
+		simulador.simular("estoque.liberar");
+	}
+
+	@Override
+	public ResultadoEstoqueDTO verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado(simulador.simular("estoque.verificar"), produtosIds.length);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado(simulador.simular("estoque.baixar"), produtosIds.length);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO reservarLinhas(long[] produtosIds, long[] produtosQuantidades, Duration validade)
+	{
+		return resultado(simulador.simular("estoque.reservar"), produtosIds.length);
+	}
+
+	@Override
+	public ResultadoEstoqueDTO confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado(simulador.simular("estoque.confirmar"), produtosIds.length);
+	}
+
+	static ResultadoEstoqueDTO resultado(boolean recusar, int linhas)
+	{
+		BitSet indisponiveis = new BitSet();
+		if (recusar && linhas > 0)
+		{
+			indisponiveis.set(ThreadLocalRandom.current().nextInt(linhas));
+		}
+		return new ResultadoEstoqueDTO(!recusar, null, indisponiveis);
+	}
+
+	private static List<Long> sortear(List<Long> produtosIds)
+	{
+		if (produtosIds.isEmpty())
+		{
+			return List.of();
+		}
+		return List.of(produtosIds.get(ThreadLocalRandom.current().nextInt(produtosIds.size())));
+	}
 }
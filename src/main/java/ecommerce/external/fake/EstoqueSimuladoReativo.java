@@ -0,0 +1,57 @@
+package ecommerce.external.fake;
+
+import java.time.Duration;
+
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.IEstoqueReativo;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link EstoqueSimulado} sem bloquear: a latência do {@link Simulador} vira
+ * um timer, e nenhuma thread fica parada esperando.
+ */
+public class EstoqueSimuladoReativo implements IEstoqueReativo
+{
+	private final Simulador simulador;
+
+	public EstoqueSimuladoReativo(Simulador simulador)
+	{
+		this.simulador = simulador;
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado("estoque.verificar", produtosIds.length);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado("estoque.baixar", produtosIds.length);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> reservarLinhas(long[] produtosIds, long[] produtosQuantidades,
+			Duration validade)
+	{
+		return resultado("estoque.reservar", produtosIds.length);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades)
+	{
+		return resultado("estoque.confirmar", produtosIds.length);
+	}
+
+	@Override
+	public Mono<Void> liberarReserva(Long reservaId)
+	{
+		return simulador.simularSemBloquear("estoque.liberar").then();
+	}
+
+	private Mono<ResultadoEstoqueDTO> resultado(String operacao, int linhas)
+	{
+		return simulador.simularSemBloquear(operacao).map(recusar -> EstoqueSimulado.resultado(recusar, linhas));
+	}
+}
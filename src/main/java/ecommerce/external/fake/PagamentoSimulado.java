@@ -1,17 +1,55 @@
 package ecommerce.external.fake;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.PagamentoDTO;
 import ecommerce.external.IPagamentoExternal;
 
+/**
+ * Sempre autoriza, a menos que o {@link Simulador} tenha um perfil para a
+ * operação.
+ */
 @Service
+@ConditionalOnProperty(name = "ecommerce.pagamento.modo", havingValue = "simulado", matchIfMissing = true)
 public class PagamentoSimulado implements IPagamentoExternal
 {
+	private static final Logger log = LoggerFactory.getLogger(PagamentoSimulado.class);
+
+	private final Simulador simulador;
+
+	public PagamentoSimulado()
+	{
+		this(Simulador.desligado());
+	}
+
+	@Autowired
+	public PagamentoSimulado(Simulador simulador)
+	{
+		this.simulador = simulador;
+	}
 
 	@Override
 	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
 	{
+		return autorizar();
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(long clienteId, long valorCentavos)
+	{
+		return autorizar();
+	}
+
+	private PagamentoDTO autorizar()
+	{
+		if (simulador.simular("pagamento.autorizar"))
+		{
+			return new PagamentoDTO(false, null);
+		}
 		return new PagamentoDTO(true, System.currentTimeMillis());
 	}
 
@@ -19,6 +57,7 @@ public class PagamentoSimulado implements IPagamentoExternal
 	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
 	{
 		// Simula cancelamento
-		System.out.println("Pagamento cancelado: " + pagamentoTransacaoId);
+		simulador.simular("pagamento.cancelar");
+		log.debug("Pagamento cancelado: {}", pagamentoTransacaoId);
 	}
 }
@@ -0,0 +1,32 @@
+package ecommerce.external.fake;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoReativo;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link PagamentoSimulado} sem bloquear: a latência do {@link Simulador} vira
+ * um timer, e nenhuma thread fica parada esperando.
+ */
+public class PagamentoSimuladoReativo implements IPagamentoReativo
+{
+	private final Simulador simulador;
+
+	public PagamentoSimuladoReativo(Simulador simulador)
+	{
+		this.simulador = simulador;
+	}
+
+	@Override
+	public Mono<PagamentoDTO> autorizarPagamento(long clienteId, long valorCentavos)
+	{
+		return simulador.simularSemBloquear("pagamento.autorizar").map(
+				recusar -> recusar ? new PagamentoDTO(false, null) : new PagamentoDTO(true, System.currentTimeMillis()));
+	}
+
+	@Override
+	public Mono<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		return simulador.simularSemBloquear("pagamento.cancelar").then();
+	}
+}
@@ -0,0 +1,84 @@
+package ecommerce.external.fake;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Comportamento de uma operação simulada: quanto demora e com que frequência
+ * falha.
+ *
+ * <p>
+ * A latência segue {@code distribuicao}:
+ * <ul>
+ * <li>{@code NENHUMA}: responde na hora (padrão);</li>
+ * <li>{@code FIXA}: sempre {@code latencia};</li>
+ * <li>{@code UNIFORME}: entre {@code latencia} e {@code latenciaMaxima};</li>
+ * <li>{@code LOG_NORMAL}: mediana {@code latencia} e forma {@code sigma}
+ * (0,5 a 1 dá caudas parecidas com as de produção), limitada por
+ * {@code latenciaMaxima} quando informada;</li>
+ * <li>{@code BIMODAL}: {@code latencia}, ou {@code latenciaMaxima} com
+ * probabilidade {@code probabilidadeCauda}.</li>
+ * </ul>
+ *
+ * <p>
+ * Depois da espera, a chamada lança exceção com probabilidade
+ * {@code taxaFalhas}. Com probabilidade {@code taxaTempoEsgotado}, ela fica
+ * presa por {@code tempoLimite} e então lança exceção. Com probabilidade
+ * {@code taxaRecusa}, ela responde que não: estoque em falta ou pagamento
+ * recusado.
+ */
+public record PerfilSimulacao(Distribuicao distribuicao, Duration latencia, Duration latenciaMaxima, double sigma,
+		double probabilidadeCauda, double taxaFalhas, double taxaTempoEsgotado, Duration tempoLimite,
+		double taxaRecusa)
+{
+	public static final PerfilSimulacao NENHUM = new PerfilSimulacao(Distribuicao.NENHUMA, Duration.ZERO,
+			Duration.ZERO, 0, 0, 0, 0, Duration.ZERO, 0);
+
+	public enum Distribuicao
+	{
+		NENHUMA, FIXA, UNIFORME, LOG_NORMAL, BIMODAL
+	}
+
+	public PerfilSimulacao
+	{
+		distribuicao = distribuicao == null ? Distribuicao.NENHUMA : distribuicao;
+		latencia = latencia == null ? Duration.ZERO : latencia;
+		latenciaMaxima = latenciaMaxima == null ? Duration.ZERO : latenciaMaxima;
+		tempoLimite = tempoLimite == null ? Duration.ZERO : tempoLimite;
+		if (latencia.isNegative() || latenciaMaxima.isNegative() || tempoLimite.isNegative() || sigma < 0)
+		{
+			throw new IllegalArgumentException("Latências e sigma não podem ser negativos");
+		}
+		validarProbabilidade(probabilidadeCauda);
+		validarProbabilidade(taxaFalhas);
+		validarProbabilidade(taxaTempoEsgotado);
+		validarProbabilidade(taxaRecusa);
+	}
+
+	private static void validarProbabilidade(double probabilidade)
+	{
+		if (probabilidade < 0 || probabilidade > 1)
+		{
+			throw new IllegalArgumentException("Probabilidade fora de [0, 1]: " + probabilidade);
+		}
+	}
+
+	/** Sorteia a latência da próxima chamada, em nanossegundos. */
+	long sortearLatenciaNanos(RandomGenerator aleatorio)
+	{
+		long base = latencia.toNanos();
+		long maxima = latenciaMaxima.toNanos();
+		return switch (distribuicao)
+		{
+			case NENHUMA -> 0L;
+			case FIXA -> base;
+			case UNIFORME -> maxima <= base ? base : aleatorio.nextLong(base, maxima + 1);
+			case LOG_NORMAL ->
+			{
+				long sorteada = (long) (base * Math.exp(sigma * aleatorio.nextGaussian()));
+				yield maxima > 0 ? Math.min(sorteada, maxima) : sorteada;
+			}
+			case BIMODAL -> aleatorio.nextDouble() < probabilidadeCauda ? maxima : base;
+		};
+	}
+}
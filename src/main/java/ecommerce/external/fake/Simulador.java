@@ -0,0 +1,245 @@
+package ecommerce.external.fake;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.FalhaSemPilha;
+import reactor.core.publisher.Mono;
+
+/**
+ * Latência e falhas dos gateways simulados, por operação ({@code estoque.reservar},
+ * {@code pagamento.autorizar}...). Os perfis vêm de
+ * {@code ecommerce.simulador.estoque.<operacao>.*} e
+ * {@code ecommerce.simulador.pagamento.<operacao>.*} e podem ser trocados com
+ * a aplicação rodando pelo endpoint {@code /actuator/simulador}. Operações sem
+ * perfil respondem na hora e sempre com sucesso.
+ *
+ * <p>
+ * As exceções das falhas simuladas não têm pilha ({@link FalhaSemPilha}),
+ * como as do gateway real sob falha; só as mensagens são montadas uma vez por
+ * operação.
+ */
+@Component
+public class Simulador
+{
+	public static final String[] OPERACOES_ESTOQUE = { "verificar", "reservar", "confirmar", "baixar", "liberar" };
+	public static final String[] OPERACOES_PAGAMENTO = { "autorizar", "cancelar" };
+
+	private static final Map<String, String> FALHAS = mensagens("Falha simulada: ");
+	private static final Map<String, String> TEMPOS_ESGOTADOS = mensagens("Tempo limite esgotado (simulado): ");
+
+	private final Map<String, PerfilSimulacao> perfis = new ConcurrentHashMap<>();
+
+	@Autowired
+	public Simulador(Environment environment)
+	{
+		this(perfisConfigurados(environment));
+	}
+
+	public Simulador(Map<String, PerfilSimulacao> perfis)
+	{
+		perfis.forEach(this::definir);
+	}
+
+	/** Simulador sem perfis: todas as operações respondem na hora. */
+	public static Simulador desligado()
+	{
+		return new Simulador(Map.of());
+	}
+
+	private static Map<String, PerfilSimulacao> perfisConfigurados(Environment environment)
+	{
+		Binder binder = Binder.get(environment);
+		Bindable<Map<String, PerfilSimulacao>> mapa = Bindable.mapOf(String.class, PerfilSimulacao.class);
+
+		Map<String, PerfilSimulacao> perfis = new TreeMap<>();
+		for (String gateway : new String[] { "estoque", "pagamento" })
+		{
+			binder.bind("ecommerce.simulador." + gateway, mapa).orElse(Map.of())
+					.forEach((operacao, perfil) -> perfis.put(gateway + "." + operacao, perfil));
+		}
+		return perfis;
+	}
+
+	public Map<String, PerfilSimulacao> perfis()
+	{
+		return new TreeMap<>(perfis);
+	}
+
+	public PerfilSimulacao perfil(String operacao)
+	{
+		return perfis.getOrDefault(operacao, PerfilSimulacao.NENHUM);
+	}
+
+	public void definir(String operacao, PerfilSimulacao perfil)
+	{
+		if (!operacaoConhecida(operacao))
+		{
+			throw new IllegalArgumentException("Operação desconhecida: " + operacao);
+		}
+		perfis.put(operacao, perfil);
+	}
+
+	public void remover(String operacao)
+	{
+		perfis.remove(operacao);
+	}
+
+	private static boolean operacaoConhecida(String operacao)
+	{
+		return conhecida(operacao, "estoque.", OPERACOES_ESTOQUE)
+				|| conhecida(operacao, "pagamento.", OPERACOES_PAGAMENTO);
+	}
+
+	private static boolean conhecida(String operacao, String prefixo, String[] operacoes)
+	{
+		if (!operacao.startsWith(prefixo))
+		{
+			return false;
+		}
+		String nome = operacao.substring(prefixo.length());
+		for (String candidata : operacoes)
+		{
+			if (candidata.equals(nome))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Desfecho de uma chamada simulada, sorteado antes da espera. */
+	enum Desfecho
+	{
+		SUCESSO, RECUSA, FALHA, TEMPO_ESGOTADO
+	}
+
+	record Sorteio(long latenciaNanos, Desfecho desfecho, long tempoLimiteNanos)
+	{
+		static final Sorteio IMEDIATO = new Sorteio(0, Desfecho.SUCESSO, 0);
+	}
+
+	Sorteio sortear(String operacao)
+	{
+		PerfilSimulacao perfil = perfis.get(operacao);
+		if (perfil == null)
+		{
+			return Sorteio.IMEDIATO;
+		}
+
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		long latencia = perfil.sortearLatenciaNanos(aleatorio);
+		Desfecho desfecho = Desfecho.SUCESSO;
+		if (perfil.taxaTempoEsgotado() > 0 && aleatorio.nextDouble() < perfil.taxaTempoEsgotado())
+		{
+			desfecho = Desfecho.TEMPO_ESGOTADO;
+		}
+		else if (perfil.taxaFalhas() > 0 && aleatorio.nextDouble() < perfil.taxaFalhas())
+		{
+			desfecho = Desfecho.FALHA;
+		}
+		else if (perfil.taxaRecusa() > 0 && aleatorio.nextDouble() < perfil.taxaRecusa())
+		{
+			desfecho = Desfecho.RECUSA;
+		}
+		return new Sorteio(latencia, desfecho, perfil.tempoLimite().toNanos());
+	}
+
+	/**
+	 * Aplica o perfil da operação: espera a latência sorteada e, conforme as
+	 * taxas, lança exceção ou pede uma recusa.
+	 *
+	 * @return {@code true} quando a operação deve responder que não (estoque em
+	 *         falta, pagamento recusado)
+	 */
+	public boolean simular(String operacao)
+	{
+		Sorteio sorteio = sortear(operacao);
+		esperar(sorteio.latenciaNanos());
+
+		return switch (sorteio.desfecho())
+		{
+			case SUCESSO -> false;
+			case RECUSA -> true;
+			case FALHA -> throw falha(operacao);
+			case TEMPO_ESGOTADO ->
+			{
+				esperar(sorteio.tempoLimiteNanos());
+				throw tempoEsgotado(operacao);
+			}
+		};
+	}
+
+	/** Mesmo que {@link #simular(String)}, com as esperas em timers em vez de threads paradas. */
+	public Mono<Boolean> simularSemBloquear(String operacao)
+	{
+		return Mono.defer(() -> {
+			Sorteio sorteio = sortear(operacao);
+			Mono<Boolean> desfecho = switch (sorteio.desfecho())
+			{
+				case SUCESSO -> Mono.just(false);
+				case RECUSA -> Mono.just(true);
+				case FALHA -> Mono.error(falha(operacao));
+				case TEMPO_ESGOTADO -> Mono.delay(Duration.ofNanos(sorteio.tempoLimiteNanos()))
+						.then(Mono.error(tempoEsgotado(operacao)));
+			};
+			if (sorteio.latenciaNanos() <= 0)
+			{
+				return desfecho;
+			}
+			return Mono.delay(Duration.ofNanos(sorteio.latenciaNanos())).then(desfecho);
+		});
+	}
+
+	private static Map<String, String> mensagens(String prefixo)
+	{
+		Map<String, String> mensagens = new HashMap<>();
+		for (String operacao : OPERACOES_ESTOQUE)
+		{
+			mensagens.put("estoque." + operacao, prefixo + "estoque." + operacao);
+		}
+		for (String operacao : OPERACOES_PAGAMENTO)
+		{
+			mensagens.put("pagamento." + operacao, prefixo + "pagamento." + operacao);
+		}
+		return mensagens;
+	}
+
+	private static IllegalStateException falha(String operacao)
+	{
+		return new FalhaSemPilha(FALHAS.get(operacao));
+	}
+
+	private static IllegalStateException tempoEsgotado(String operacao)
+	{
+		return new FalhaSemPilha(TEMPOS_ESGOTADOS.get(operacao));
+	}
+
+	private static void esperar(long nanos)
+	{
+		if (nanos <= 0)
+		{
+			return;
+		}
+		try
+		{
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulação interrompida", e);
+		}
+	}
+}
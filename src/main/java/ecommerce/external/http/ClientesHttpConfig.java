@@ -0,0 +1,17 @@
+package ecommerce.external.http;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra os clientes Feign apenas quando algum gateway está em modo
+ * {@code http}; o pool de conexões e os tempos limite ficam em
+ * {@code application-http.properties}.
+ */
+@Configuration
+@ConditionalOnExpression("'${ecommerce.estoque.modo:simulado}' == 'http' or '${ecommerce.pagamento.modo:simulado}' == 'http'")
+@EnableFeignClients(clients = { EstoqueClient.class, PagamentoClient.class })
+public class ClientesHttpConfig
+{
+}
@@ -0,0 +1,41 @@
+package ecommerce.external.http;
+
+import java.util.List;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+
+/** API HTTP do serviço de estoque. */
+@FeignClient(name = "estoque", url = "${ecommerce.estoque.http.url:http://localhost:8081}")
+public interface EstoqueClient
+{
+	@PostMapping("/estoque/disponibilidade")
+	DisponibilidadeDTO verificarDisponibilidade(@RequestBody Itens itens);
+
+	@PostMapping("/estoque/baixa")
+	EstoqueBaixaDTO darBaixa(@RequestBody Itens itens);
+
+	@PostMapping("/estoque/reservas")
+	ReservaEstoqueDTO reservar(@RequestBody Reserva reserva);
+
+	@PostMapping("/estoque/reservas/{reservaId}/confirmacao")
+	EstoqueBaixaDTO confirmarReserva(@PathVariable("reservaId") Long reservaId, @RequestBody Itens itens);
+
+	@DeleteMapping("/estoque/reservas/{reservaId}")
+	void liberarReserva(@PathVariable("reservaId") Long reservaId);
+
+	record Itens(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+	}
+
+	record Reserva(List<Long> produtosIds, List<Long> produtosQuantidades, long validadeMillis)
+	{
+	}
+}
@@ -0,0 +1,67 @@
+package ecommerce.external.http;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+
+/**
+ * {@link IEstoqueExternal} sobre o serviço de estoque remoto. Erros HTTP e
+ * tempos esgotados chegam como {@link feign.FeignException}.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.estoque.modo", havingValue = "http")
+public class EstoqueHttp implements IEstoqueExternal
+{
+	private final EstoqueClient client;
+
+	@Autowired
+	public EstoqueHttp(EstoqueClient client)
+	{
+		this.client = client;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return client.darBaixa(new EstoqueClient.Itens(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		return client.verificarDisponibilidade(new EstoqueClient.Itens(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public ReservaEstoqueDTO reservar(List<Long> produtosIds, List<Long> produtosQuantidades, Duration validade)
+	{
+		return client.reservar(new EstoqueClient.Reserva(produtosIds, produtosQuantidades, validade.toMillis()));
+	}
+
+	@Override
+	public EstoqueBaixaDTO confirmarReserva(Long reservaId, List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		if (reservaId == null)
+		{
+			return darBaixa(produtosIds, produtosQuantidades);
+		}
+		return client.confirmarReserva(reservaId, new EstoqueClient.Itens(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public void liberarReserva(Long reservaId)
+	{
+		if (reservaId != null)
+		{
+			client.liberarReserva(reservaId);
+		}
+	}
+}
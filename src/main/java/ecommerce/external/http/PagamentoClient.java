@@ -0,0 +1,35 @@
+package ecommerce.external.http;
+
+import java.util.List;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+
+/** API HTTP do provedor de pagamentos. */
+@FeignClient(name = "pagamento", url = "${ecommerce.pagamento.http.url:http://localhost:8082}")
+public interface PagamentoClient
+{
+	/** Sem {@code chaveIdempotencia} (nula), o cabeçalho não é enviado. */
+	@PostMapping("/pagamentos/autorizacoes")
+	PagamentoDTO autorizar(@RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia,
+			@RequestBody Autorizacao autorizacao);
+
+	/** Respostas na mesma ordem das autorizações enviadas. */
+	@PostMapping("/pagamentos/autorizacoes/lote")
+	List<PagamentoDTO> autorizarLote(@RequestBody List<AutorizacaoPagamentoDTO> autorizacoes);
+
+	@DeleteMapping("/pagamentos/{transacaoId}")
+	void cancelar(@PathVariable("transacaoId") Long transacaoId, @RequestParam("clienteId") Long clienteId);
+
+	record Autorizacao(Long clienteId, Double custoTotal)
+	{
+	}
+}
@@ -0,0 +1,64 @@
+package ecommerce.external.http;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoExternal;
+
+/**
+ * {@link IPagamentoExternal} sobre o provedor de pagamentos remoto. Erros HTTP
+ * e tempos esgotados chegam como {@link feign.FeignException}.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.pagamento.modo", havingValue = "http")
+public class PagamentoHttp implements IPagamentoExternal
+{
+	private final PagamentoClient client;
+
+	@Autowired
+	public PagamentoHttp(PagamentoClient client)
+	{
+		this.client = client;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return client.autorizar(null, new PagamentoClient.Autorizacao(clienteId, custoTotal));
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia)
+	{
+		return client.autorizar(chaveIdempotencia, new PagamentoClient.Autorizacao(clienteId, custoTotal));
+	}
+
+	@Override
+	public List<PagamentoDTO> autorizarPagamentos(List<AutorizacaoPagamentoDTO> autorizacoes)
+	{
+		List<PagamentoDTO> pagamentos = client.autorizarLote(autorizacoes);
+		if (pagamentos == null || pagamentos.size() != autorizacoes.size())
+		{
+			throw new IllegalStateException("Resposta do lote de pagamentos inconsistente.");
+		}
+		return pagamentos;
+	}
+
+	/** O provedor deduplica autorizações pelo cabeçalho {@code Idempotency-Key}. */
+	@Override
+	public boolean suportaIdempotencia()
+	{
+		return true;
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		client.cancelar(pagamentoTransacaoId, clienteId);
+	}
+}
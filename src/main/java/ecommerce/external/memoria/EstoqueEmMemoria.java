@@ -0,0 +1,434 @@
+package ecommerce.external.memoria;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+
+/**
+ * Estoque mantido na própria aplicação, com um contador atômico por produto e
+ * sem trava global: compras de produtos diferentes não disputam nada, e compras
+ * do mesmo produto disputam apenas o contador dele (compare-and-set).
+ *
+ * <p>
+ * A baixa de um carrinho é tudo ou nada: as linhas são somadas por produto e
+ * retiradas em ordem de id; se algum produto não tiver saldo, o que já foi
+ * retirado é devolvido. Durante esse intervalo outra compra pode enxergar o
+ * saldo já reduzido, mas nunca há venda acima do saldo.
+ *
+ * <p>
+ * Reservas retiram o saldo na hora e guardam o que foi retirado; a confirmação
+ * só devolve o que não foi confirmado, e reservas vencidas são devolvidas por
+ * {@link #liberarExpiradas()}, que roda a cada
+ * {@code ecommerce.estoque.memoria.varredura} (1 s por padrão).
+ *
+ * <p>
+ * As operações trabalham sobre arrays primitivos; as variantes com listas
+ * apenas convertem a entrada e a saída.
+ *
+ * <p>
+ * Produtos sem saldo definido começam com
+ * {@code ecommerce.estoque.memoria.saldo-inicial} (0 por padrão). Ativado com
+ * {@code ecommerce.estoque.modo=memoria}.
+ */
+@Service
+@ConditionalOnProperty(name = "ecommerce.estoque.modo", havingValue = "memoria")
+public class EstoqueEmMemoria implements IEstoqueExternal
+{
+	private final ConcurrentHashMap<Long, AtomicLong> saldos = new ConcurrentHashMap<>();
+	private final long saldoInicial;
+
+	private final ConcurrentHashMap<Long, Reserva> reservas = new ConcurrentHashMap<>();
+	private final AtomicLong sequenciaReservas = new AtomicLong();
+
+	@Autowired
+	public EstoqueEmMemoria(@Value("${ecommerce.estoque.memoria.saldo-inicial:0}") long saldoInicial)
+	{
+		this.saldoInicial = saldoInicial;
+	}
+
+	public void definirSaldo(Long produtoId, long quantidade)
+	{
+		saldos.computeIfAbsent(produtoId, id -> new AtomicLong()).set(quantidade);
+	}
+
+	public void repor(Long produtoId, long quantidade)
+	{
+		saldos.computeIfAbsent(produtoId, id -> new AtomicLong(saldoInicial)).addAndGet(quantidade);
+	}
+
+	public long saldo(Long produtoId)
+	{
+		AtomicLong saldo = saldos.get(produtoId);
+		return saldo == null ? saldoInicial : saldo.get();
+	}
+
+	@Override
+	public ResultadoEstoqueDTO verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		Pedido pedido = Pedido.de(produtosIds, produtosQuantidades);
+		if (pedido == null)
+		{
+			return new ResultadoEstoqueDTO(false, null, new BitSet());
+		}
+
+		BitSet indisponiveis = indisponiveis(pedido);
+		return new ResultadoEstoqueDTO(indisponiveis.isEmpty(), null, pedido.paraLinhas(indisponiveis, produtosIds));
+	}
+
+	@Override
+	public ResultadoEstoqueDTO baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		Pedido pedido = Pedido.de(produtosIds, produtosQuantidades);
+		return new ResultadoEstoqueDTO(pedido != null && retirarTudo(pedido) != null, null, new BitSet());
+	}
+
+	@Override
+	public ResultadoEstoqueDTO reservarLinhas(long[] produtosIds, long[] produtosQuantidades, Duration validade)
+	{
+		Pedido pedido = Pedido.de(produtosIds, produtosQuantidades);
+		if (pedido == null)
+		{
+			return new ResultadoEstoqueDTO(false, null, new BitSet());
+		}
+
+		AtomicLong[] contadores = new AtomicLong[pedido.tamanho()];
+		int faltante = retirarTudo(pedido, contadores);
+		if (faltante >= 0)
+		{
+			BitSet indisponiveis = indisponiveis(pedido);
+			// O saldo pode ter sido devolvido entre a tentativa e a consulta
+			if (indisponiveis.isEmpty())
+			{
+				indisponiveis.set(faltante);
+			}
+			return new ResultadoEstoqueDTO(false, null, pedido.paraLinhas(indisponiveis, produtosIds));
+		}
+
+		Long reservaId = sequenciaReservas.incrementAndGet();
+		reservas.put(reservaId, new Reserva(pedido, contadores, System.nanoTime() + validade.toNanos()));
+		return new ResultadoEstoqueDTO(true, reservaId, new BitSet());
+	}
+
+	@Override
+	public ResultadoEstoqueDTO confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades)
+	{
+		Reserva reserva = reservaId == null ? null : reservas.remove(reservaId);
+		if (reserva == null)
+		{
+			return baixarLinhas(produtosIds, produtosQuantidades);
+		}
+
+		Pedido pedido = Pedido.de(produtosIds, produtosQuantidades);
+		if (pedido == null)
+		{
+			reserva.devolver();
+			return new ResultadoEstoqueDTO(false, null, new BitSet());
+		}
+
+		long[] sobras = reserva.sobras(pedido);
+		if (reserva.expirada(System.nanoTime()) || sobras == null)
+		{
+			reserva.devolver();
+			return baixarLinhas(produtosIds, produtosQuantidades);
+		}
+
+		// Confirmação parcial: o que não foi confirmado volta ao saldo
+		for (int i = 0; i < sobras.length; i++)
+		{
+			if (sobras[i] > 0)
+			{
+				reserva.contadores()[i].addAndGet(sobras[i]);
+			}
+		}
+		return new ResultadoEstoqueDTO(true, null, new BitSet());
+	}
+
+	@Override
+	public void liberarReserva(Long reservaId)
+	{
+		Reserva reserva = reservaId == null ? null : reservas.remove(reservaId);
+		if (reserva != null)
+		{
+			reserva.devolver();
+		}
+	}
+
+	/** @return quantidade de reservas expiradas devolvidas ao saldo */
+	@Scheduled(fixedDelayString = "${ecommerce.estoque.memoria.varredura:PT1S}")
+	public int liberarExpiradas()
+	{
+		long agora = System.nanoTime();
+		int liberadas = 0;
+
+		for (Map.Entry<Long, Reserva> entrada : reservas.entrySet())
+		{
+			// remove(chave, valor) disputa com confirmarLinhas e liberarReserva: só um deles devolve
+			if (entrada.getValue().expirada(agora) && reservas.remove(entrada.getKey(), entrada.getValue()))
+			{
+				entrada.getValue().devolver();
+				liberadas++;
+			}
+		}
+		return liberadas;
+	}
+
+	public int reservasAbertas()
+	{
+		return reservas.size();
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		long[] ids = paraArray(produtosIds);
+		long[] quantidades = paraArray(produtosQuantidades);
+		if (ids == null || quantidades == null)
+		{
+			return new DisponibilidadeDTO(false, List.of());
+		}
+
+		ResultadoEstoqueDTO resultado = verificarLinhas(ids, quantidades);
+		return new DisponibilidadeDTO(resultado.sucesso(), idsDistintos(ids, resultado.linhasIndisponiveis()));
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		long[] ids = paraArray(produtosIds);
+		long[] quantidades = paraArray(produtosQuantidades);
+		return new EstoqueBaixaDTO(ids != null && quantidades != null && baixarLinhas(ids, quantidades).sucesso());
+	}
+
+	@Override
+	public ReservaEstoqueDTO reservar(List<Long> produtosIds, List<Long> produtosQuantidades, Duration validade)
+	{
+		long[] ids = paraArray(produtosIds);
+		long[] quantidades = paraArray(produtosQuantidades);
+		if (ids == null || quantidades == null)
+		{
+			return new ReservaEstoqueDTO(false, null, List.of());
+		}
+
+		ResultadoEstoqueDTO resultado = reservarLinhas(ids, quantidades, validade);
+		return new ReservaEstoqueDTO(resultado.sucesso(), resultado.reservaId(),
+				idsDistintos(ids, resultado.linhasIndisponiveis()));
+	}
+
+	@Override
+	public EstoqueBaixaDTO confirmarReserva(Long reservaId, List<Long> produtosIds, List<Long> produtosQuantidades)
+	{
+		long[] ids = paraArray(produtosIds);
+		long[] quantidades = paraArray(produtosQuantidades);
+		if (ids == null || quantidades == null)
+		{
+			liberarReserva(reservaId);
+			return new EstoqueBaixaDTO(false);
+		}
+		return new EstoqueBaixaDTO(confirmarLinhas(reservaId, ids, quantidades).sucesso());
+	}
+
+	/** Posições (no pedido) dos produtos sem saldo. */
+	private BitSet indisponiveis(Pedido pedido)
+	{
+		BitSet indisponiveis = new BitSet(pedido.tamanho());
+		for (int i = 0; i < pedido.tamanho(); i++)
+		{
+			if (saldo(pedido.produtosIds()[i]) < pedido.quantidades()[i])
+			{
+				indisponiveis.set(i);
+			}
+		}
+		return indisponiveis;
+	}
+
+	private AtomicLong[] retirarTudo(Pedido pedido)
+	{
+		AtomicLong[] contadores = new AtomicLong[pedido.tamanho()];
+		return retirarTudo(pedido, contadores) < 0 ? contadores : null;
+	}
+
+	/**
+	 * Retira todas as linhas ou nenhuma, guardando em {@code contadores} os
+	 * contadores usados.
+	 *
+	 * @return a posição (no pedido) do produto sem saldo, ou -1 se tudo foi retirado
+	 */
+	private int retirarTudo(Pedido pedido, AtomicLong[] contadores)
+	{
+		for (int i = 0; i < pedido.tamanho(); i++)
+		{
+			AtomicLong saldo = contador(pedido.produtosIds()[i]);
+			if (saldo == null || !retirar(saldo, pedido.quantidades()[i]))
+			{
+				for (int j = 0; j < i; j++)
+				{
+					contadores[j].addAndGet(pedido.quantidades()[j]);
+				}
+				return i;
+			}
+			contadores[i] = saldo;
+		}
+		return -1;
+	}
+
+	/** Contador do produto; não cria contadores para produtos desconhecidos sem saldo inicial. */
+	private AtomicLong contador(long produtoId)
+	{
+		AtomicLong saldo = saldos.get(produtoId);
+		if (saldo == null && saldoInicial > 0)
+		{
+			saldo = saldos.computeIfAbsent(produtoId, id -> new AtomicLong(saldoInicial));
+		}
+		return saldo;
+	}
+
+	private static boolean retirar(AtomicLong saldo, long quantidade)
+	{
+		while (true)
+		{
+			long atual = saldo.get();
+			if (atual < quantidade)
+			{
+				return false;
+			}
+			if (saldo.compareAndSet(atual, atual - quantidade))
+			{
+				return true;
+			}
+		}
+	}
+
+	private static long[] paraArray(List<Long> valores)
+	{
+		if (valores == null)
+		{
+			return null;
+		}
+
+		long[] array = new long[valores.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			Long valor = valores.get(i);
+			if (valor == null)
+			{
+				return null;
+			}
+			array[i] = valor;
+		}
+		return array;
+	}
+
+	/** Ids das linhas marcadas, sem repetição e em ordem crescente. */
+	private static List<Long> idsDistintos(long[] produtosIds, BitSet linhas)
+	{
+		return linhas.stream().mapToLong(linha -> produtosIds[linha]).sorted().distinct().boxed().toList();
+	}
+
+	/** Quantidades somadas por produto, em ordem crescente de id. */
+	private record Pedido(long[] produtosIds, long[] quantidades)
+	{
+		/** Nulo se os arrays forem inválidos ou alguma quantidade não for positiva. */
+		static Pedido de(long[] produtosIds, long[] quantidades)
+		{
+			if (produtosIds == null || quantidades == null || produtosIds.length != quantidades.length)
+			{
+				return null;
+			}
+
+			long[] distintos = produtosIds.clone();
+			Arrays.sort(distintos);
+			int tamanho = 0;
+			for (int i = 0; i < distintos.length; i++)
+			{
+				if (i == 0 || distintos[i] != distintos[i - 1])
+				{
+					distintos[tamanho++] = distintos[i];
+				}
+			}
+			distintos = Arrays.copyOf(distintos, tamanho);
+
+			long[] somas = new long[tamanho];
+			for (int i = 0; i < produtosIds.length; i++)
+			{
+				if (quantidades[i] <= 0)
+				{
+					return null;
+				}
+				int posicao = Arrays.binarySearch(distintos, produtosIds[i]);
+				somas[posicao] = Math.addExact(somas[posicao], quantidades[i]);
+			}
+			return new Pedido(distintos, somas);
+		}
+
+		int tamanho()
+		{
+			return produtosIds.length;
+		}
+
+		/** Converte posições do pedido em posições dos arrays originais. */
+		BitSet paraLinhas(BitSet posicoes, long[] linhasIds)
+		{
+			BitSet linhas = new BitSet(linhasIds.length);
+			if (!posicoes.isEmpty())
+			{
+				for (int i = 0; i < linhasIds.length; i++)
+				{
+					if (posicoes.get(Arrays.binarySearch(produtosIds, linhasIds[i])))
+					{
+						linhas.set(i);
+					}
+				}
+			}
+			return linhas;
+		}
+	}
+
+	private record Reserva(Pedido pedido, AtomicLong[] contadores, long expiraEm)
+	{
+		boolean expirada(long agora)
+		{
+			return agora - expiraEm >= 0;
+		}
+
+		void devolver()
+		{
+			for (int i = 0; i < contadores.length; i++)
+			{
+				contadores[i].addAndGet(pedido.quantidades()[i]);
+			}
+		}
+
+		/** Quanto sobra de cada produto reservado após confirmar {@code confirmado}; nulo se não couber. */
+		long[] sobras(Pedido confirmado)
+		{
+			long[] sobras = pedido.quantidades().clone();
+			for (int i = 0; i < confirmado.tamanho(); i++)
+			{
+				int posicao = Arrays.binarySearch(pedido.produtosIds(), confirmado.produtosIds()[i]);
+				if (posicao < 0 || sobras[posicao] < confirmado.quantidades()[i])
+				{
+					return null;
+				}
+				sobras[posicao] -= confirmado.quantidades()[i];
+			}
+			return sobras;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package ecommerce.external.reativo;
+
+import java.time.Duration;
+
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueReativo;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Um {@link IEstoqueExternal} bloqueante atrás de {@link IEstoqueReativo}: cada
+ * chamada roda no agendador limitado, nunca na thread de quem assina.
+ */
+public class EstoqueReativoAdaptado implements IEstoqueReativo
+{
+	private final IEstoqueExternal delegado;
+	private final Scheduler agendador;
+
+	public EstoqueReativoAdaptado(IEstoqueExternal delegado, Scheduler agendador)
+	{
+		this.delegado = delegado;
+		this.agendador = agendador;
+	}
+
+	public IEstoqueExternal delegado()
+	{
+		return delegado;
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> verificarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return Mono.fromCallable(() -> delegado.verificarLinhas(produtosIds, produtosQuantidades))
+				.subscribeOn(agendador);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> baixarLinhas(long[] produtosIds, long[] produtosQuantidades)
+	{
+		return Mono.fromCallable(() -> delegado.baixarLinhas(produtosIds, produtosQuantidades))
+				.subscribeOn(agendador);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> reservarLinhas(long[] produtosIds, long[] produtosQuantidades,
+			Duration validade)
+	{
+		return Mono.fromCallable(() -> delegado.reservarLinhas(produtosIds, produtosQuantidades, validade))
+				.subscribeOn(agendador);
+	}
+
+	@Override
+	public Mono<ResultadoEstoqueDTO> confirmarLinhas(Long reservaId, long[] produtosIds, long[] produtosQuantidades)
+	{
+		return Mono.fromCallable(() -> delegado.confirmarLinhas(reservaId, produtosIds, produtosQuantidades))
+				.subscribeOn(agendador);
+	}
+
+	@Override
+	public Mono<Void> liberarReserva(Long reservaId)
+	{
+		return Mono.<Void>fromRunnable(() -> delegado.liberarReserva(reservaId)).subscribeOn(agendador);
+	}
+}
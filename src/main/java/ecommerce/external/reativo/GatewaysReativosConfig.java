@@ -0,0 +1,59 @@
+package ecommerce.external.reativo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IEstoqueReativo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.IPagamentoReativo;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.EstoqueSimuladoReativo;
+import ecommerce.external.fake.PagamentoSimulado;
+import ecommerce.external.fake.PagamentoSimuladoReativo;
+import ecommerce.external.fake.Simulador;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Gateways não bloqueantes da finalização reativa. Os simuladores têm versão
+ * própria, com a latência em timers. Os demais gateways (memória, HTTP, e os
+ * decorados com agrupamento, hedge ou disjuntor) rodam em
+ * {@code agendadorBloqueante}. Esse agendador tem no máximo
+ * {@code ecommerce.compra.reativo.threads} threads e
+ * {@code ecommerce.compra.reativo.fila} tarefas esperando. O trabalho de JPA
+ * da finalização reativa também roda nele.
+ */
+@Configuration
+public class GatewaysReativosConfig
+{
+	@Bean(destroyMethod = "dispose")
+	public Scheduler agendadorBloqueante(@Value("${ecommerce.compra.reativo.threads:64}") int threads,
+			@Value("${ecommerce.compra.reativo.fila:10000}") int fila)
+	{
+		return Schedulers.newBoundedElastic(threads, fila, "compra-reativa");
+	}
+
+	@Bean
+	public IEstoqueReativo estoqueReativo(IEstoqueExternal estoque, Simulador simulador, Scheduler agendadorBloqueante)
+	{
+		// Decorado, o simulador deixa de ser EstoqueSimulado e passa pelo agendador
+		if (estoque instanceof EstoqueSimulado)
+		{
+			return new EstoqueSimuladoReativo(simulador);
+		}
+		return new EstoqueReativoAdaptado(estoque, agendadorBloqueante);
+	}
+
+	@Bean
+	public IPagamentoReativo pagamentoReativo(IPagamentoExternal pagamento, Simulador simulador,
+			Scheduler agendadorBloqueante)
+	{
+		if (pagamento instanceof PagamentoSimulado)
+		{
+			return new PagamentoSimuladoReativo(simulador);
+		}
+		return new PagamentoReativoAdaptado(pagamento, agendadorBloqueante);
+	}
+}
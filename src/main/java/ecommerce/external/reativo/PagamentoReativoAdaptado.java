@@ -0,0 +1,41 @@
+package ecommerce.external.reativo;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.IPagamentoReativo;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Um {@link IPagamentoExternal} bloqueante atrás de {@link IPagamentoReativo}:
+ * cada chamada roda no agendador limitado, nunca na thread de quem assina.
+ */
+public class PagamentoReativoAdaptado implements IPagamentoReativo
+{
+	private final IPagamentoExternal delegado;
+	private final Scheduler agendador;
+
+	public PagamentoReativoAdaptado(IPagamentoExternal delegado, Scheduler agendador)
+	{
+		this.delegado = delegado;
+		this.agendador = agendador;
+	}
+
+	public IPagamentoExternal delegado()
+	{
+		return delegado;
+	}
+
+	@Override
+	public Mono<PagamentoDTO> autorizarPagamento(long clienteId, long valorCentavos)
+	{
+		return Mono.fromCallable(() -> delegado.autorizarPagamento(clienteId, valorCentavos)).subscribeOn(agendador);
+	}
+
+	@Override
+	public Mono<Void> cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		return Mono.<Void>fromRunnable(() -> delegado.cancelarPagamento(clienteId, pagamentoTransacaoId))
+				.subscribeOn(agendador);
+	}
+}
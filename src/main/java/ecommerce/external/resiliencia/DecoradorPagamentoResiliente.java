@@ -0,0 +1,82 @@
+package ecommerce.external.resiliencia;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.CompensacoesPagamento;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Envolve o gateway de pagamento ativo num {@link PagamentoResiliente} quando
+ * {@code ecommerce.pagamento.resiliencia.habilitada=true}. Os serviços
+ * continuam recebendo um {@link IPagamentoExternal}. Autorizações que chegam
+ * depois do tempo limite são anuladas pelas {@link CompensacoesPagamento}.
+ */
+@Component
+@ConditionalOnProperty(name = "ecommerce.pagamento.resiliencia.habilitada", havingValue = "true")
+public class DecoradorPagamentoResiliente implements BeanPostProcessor, Ordered
+{
+	/** Depois do agrupamento: hedge e disjuntor envolvem o gateway já agrupado. */
+	public static final int ORDEM = Ordered.LOWEST_PRECEDENCE;
+
+	private final ObjectProvider<MeterRegistry> registry;
+	private final ObjectProvider<CompensacoesPagamento> compensacoes;
+	private final PagamentoResiliente.Parametros parametros;
+
+	@Autowired
+	public DecoradorPagamentoResiliente(ObjectProvider<MeterRegistry> registry,
+			ObjectProvider<CompensacoesPagamento> compensacoes,
+			@Value("${ecommerce.pagamento.resiliencia.hedge.percentil:0.95}") double percentilHedge,
+			@Value("${ecommerce.pagamento.resiliencia.hedge.atraso-inicial:PT0.2S}") Duration atrasoInicial,
+			@Value("${ecommerce.pagamento.resiliencia.hedge.atraso-minimo:PT0.01S}") Duration atrasoMinimo,
+			@Value("${ecommerce.pagamento.resiliencia.tempo-limite:PT5S}") Duration tempoLimite,
+			@Value("${ecommerce.pagamento.resiliencia.disjuntor.janela:50}") int janela,
+			@Value("${ecommerce.pagamento.resiliencia.disjuntor.minimo-chamadas:20}") int minimoChamadas,
+			@Value("${ecommerce.pagamento.resiliencia.disjuntor.taxa-falhas:0.5}") double taxaFalhas,
+			@Value("${ecommerce.pagamento.resiliencia.disjuntor.espera:PT10S}") Duration espera,
+			@Value("${ecommerce.pagamento.resiliencia.threads:32}") int threads)
+	{
+		this.registry = registry;
+		this.compensacoes = compensacoes;
+		this.parametros = new PagamentoResiliente.Parametros(percentilHedge, atrasoInicial, atrasoMinimo,
+				tempoLimite, janela, minimoChamadas, taxaFalhas, espera, threads);
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String nome)
+	{
+		if (bean instanceof IPagamentoExternal pagamento && !(bean instanceof PagamentoResiliente))
+		{
+			// O registry só é resolvido aqui, depois que o gateway já existe; as compensações, só na anulação
+			return new PagamentoResiliente(pagamento, parametros, registry.getIfAvailable(SimpleMeterRegistry::new),
+					(clienteId, transacaoId) -> anular(pagamento, clienteId, transacaoId));
+		}
+		return bean;
+	}
+
+	private void anular(IPagamentoExternal pagamento, Long clienteId, Long transacaoId)
+	{
+		CompensacoesPagamento compensacao = compensacoes.getIfAvailable();
+		if (compensacao == null)
+		{
+			pagamento.cancelarPagamento(clienteId, transacaoId);
+			return;
+		}
+		compensacao.registrar(clienteId, transacaoId);
+	}
+
+	@Override
+	public int getOrder()
+	{
+		return ORDEM;
+	}
+}
@@ -0,0 +1,163 @@
+package ecommerce.external.resiliencia;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjuntor por taxa de falhas nas últimas {@code janela} chamadas. Aberto,
+ * recusa tudo até passar {@code espera}; depois deixa passar uma única
+ * chamada de sonda, que fecha o circuito se der certo ou o reabre se falhar.
+ *
+ * <p>
+ * Cada mudança de estado inicia uma nova geração, e a permissão devolvida por
+ * {@link #permitir()} é a geração em que a chamada saiu. O resultado de uma
+ * chamada de geração anterior (por exemplo, uma resposta lenta que saiu antes
+ * da abertura e chega durante a sonda) é ignorado.
+ */
+final class Disjuntor
+{
+	enum Estado
+	{
+		FECHADO, ABERTO, MEIO_ABERTO
+	}
+
+	/** Retorno de {@link #permitir()} para a chamada recusada. */
+	static final long RECUSADA = -1L;
+
+	private final boolean[] falhasNaJanela;
+	private final int minimoChamadas;
+	private final double taxaFalhas;
+	private final long esperaNanos;
+	private final LongSupplier relogio;
+	private final Runnable aoAbrir;
+
+	private Estado estado = Estado.FECHADO;
+	private int posicao;
+	private int chamadas;
+	private int falhas;
+	private long abertoEm;
+	private boolean sondaEmAndamento;
+	private long geracao;
+
+	Disjuntor(int janela, int minimoChamadas, double taxaFalhas, Duration espera, LongSupplier relogio,
+			Runnable aoAbrir)
+	{
+		if (janela <= 0 || minimoChamadas <= 0 || taxaFalhas <= 0 || taxaFalhas > 1)
+		{
+			throw new IllegalArgumentException("Parametros do disjuntor invalidos");
+		}
+		this.falhasNaJanela = new boolean[janela];
+		this.minimoChamadas = Math.min(minimoChamadas, janela);
+		this.taxaFalhas = taxaFalhas;
+		this.esperaNanos = espera.toNanos();
+		this.relogio = relogio;
+		this.aoAbrir = aoAbrir;
+	}
+
+	/**
+	 * @return permissão a informar no registro do resultado, ou {@link #RECUSADA};
+	 *         cada permissão deve ser seguida de um registro
+	 */
+	synchronized long permitir()
+	{
+		if (estado == Estado.ABERTO)
+		{
+			if (relogio.getAsLong() - abertoEm < esperaNanos)
+			{
+				return RECUSADA;
+			}
+			estado = Estado.MEIO_ABERTO;
+			sondaEmAndamento = false;
+			geracao++;
+		}
+
+		if (estado == Estado.MEIO_ABERTO)
+		{
+			if (sondaEmAndamento)
+			{
+				return RECUSADA;
+			}
+			sondaEmAndamento = true;
+		}
+		return geracao;
+	}
+
+	synchronized void registrarSucesso(long permissao)
+	{
+		if (permissao != geracao)
+		{
+			return;
+		}
+		if (estado == Estado.MEIO_ABERTO)
+		{
+			fechar();
+			return;
+		}
+		registrar(false);
+	}
+
+	synchronized void registrarFalha(long permissao)
+	{
+		if (permissao != geracao)
+		{
+			return;
+		}
+		if (estado == Estado.MEIO_ABERTO)
+		{
+			abrir();
+			return;
+		}
+		registrar(true);
+		if (estado == Estado.FECHADO && chamadas >= minimoChamadas && falhas >= taxaFalhas * chamadas)
+		{
+			abrir();
+		}
+	}
+
+	synchronized Estado estado()
+	{
+		return estado;
+	}
+
+	private void registrar(boolean falha)
+	{
+		if (chamadas == falhasNaJanela.length)
+		{
+			// Janela cheia: o registro mais antigo sai
+			if (falhasNaJanela[posicao])
+			{
+				falhas--;
+			}
+		}
+		else
+		{
+			chamadas++;
+		}
+
+		falhasNaJanela[posicao] = falha;
+		if (falha)
+		{
+			falhas++;
+		}
+		posicao = (posicao + 1) % falhasNaJanela.length;
+	}
+
+	private void abrir()
+	{
+		estado = Estado.ABERTO;
+		geracao++;
+		abertoEm = relogio.getAsLong();
+		aoAbrir.run();
+	}
+
+	private void fechar()
+	{
+		estado = Estado.FECHADO;
+		geracao++;
+		posicao = 0;
+		chamadas = 0;
+		falhas = 0;
+		Arrays.fill(falhasNaJanela, false);
+	}
+}
@@ -0,0 +1,57 @@
+package ecommerce.external.resiliencia;
+
+import java.util.Arrays;
+
+/**
+ * Últimas latências observadas, em nanossegundos, num buffer circular. O
+ * percentil é recalculado a cada {@code recalculo} registros e lido sem
+ * ordenar a janela a cada chamada.
+ */
+final class JanelaLatencias
+{
+	private final long[] amostras;
+	private final double percentil;
+	private final int minimoAmostras;
+	private final int recalculo;
+
+	private int posicao;
+	private int quantidade;
+	private int desdeRecalculo;
+	private volatile long valorPercentil = -1L;
+
+	JanelaLatencias(int tamanho, double percentil, int minimoAmostras)
+	{
+		if (tamanho <= 0 || percentil <= 0 || percentil > 1 || minimoAmostras <= 0)
+		{
+			throw new IllegalArgumentException("Janela de latencias invalida");
+		}
+		this.amostras = new long[tamanho];
+		this.percentil = percentil;
+		this.minimoAmostras = Math.min(minimoAmostras, tamanho);
+		this.recalculo = Math.max(1, tamanho / 16);
+	}
+
+	synchronized void registrar(long nanos)
+	{
+		amostras[posicao] = nanos;
+		posicao = (posicao + 1) % amostras.length;
+		if (quantidade < amostras.length)
+		{
+			quantidade++;
+		}
+
+		if (quantidade >= minimoAmostras && (++desdeRecalculo >= recalculo || valorPercentil < 0))
+		{
+			desdeRecalculo = 0;
+			long[] ordenadas = Arrays.copyOf(amostras, quantidade);
+			Arrays.sort(ordenadas);
+			valorPercentil = ordenadas[(int) Math.ceil(percentil * quantidade) - 1];
+		}
+	}
+
+	/** @return o percentil em nanossegundos, ou -1 enquanto não houver amostras suficientes */
+	long percentil()
+	{
+		return valorPercentil;
+	}
+}
@@ -0,0 +1,336 @@
+package ecommerce.external.resiliencia;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.FalhaSemPilha;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decorador do gateway de pagamento com requisição de reserva (hedge) e
+ * disjuntor.
+ *
+ * <p>
+ * Cada autorização leva uma chave de idempotência. Se a primeira tentativa não
+ * responde dentro do percentil configurado das latências recentes, uma segunda
+ * tentativa com a mesma chave é enviada e vale a primeira resposta. Como o
+ * provedor deduplica pela chave, no máximo uma autorização é criada. Sem
+ * suporte a idempotência no gateway decorado não há segunda tentativa.
+ *
+ * <p>
+ * O disjuntor conta como falha a autorização que termina em exceção ou passa
+ * do tempo limite; recusas do provedor são respostas normais. Com o circuito
+ * aberto a autorização falha na hora com {@link IllegalStateException}; essa
+ * exceção e a de tempo esgotado não têm pilha ({@link FalhaSemPilha}), já
+ * que com o provedor fora do ar quase toda autorização termina nelas.
+ * Cancelamentos passam direto, mesmo com o circuito aberto.
+ *
+ * <p>
+ * Esgotado o tempo limite, as tentativas em andamento não são interrompidas:
+ * se alguma ainda autorizar, ninguém vai usar a autorização, e ela é entregue
+ * à anulação informada na construção (por padrão, o cancelamento no próprio
+ * gateway decorado).
+ *
+ * <p>
+ * Métricas: {@code pagamento.hedge.disparos}, {@code pagamento.hedge.vitorias},
+ * {@code pagamento.disjuntor.aberturas}, {@code pagamento.disjuntor.rejeicoes},
+ * {@code pagamento.autorizacoes.tardias} e o atraso atual do hedge em
+ * {@code pagamento.hedge.atraso}.
+ */
+public class PagamentoResiliente implements IPagamentoExternal, DisposableBean
+{
+	/**
+	 * @param percentilHedge percentil das latências (0 a 1) após o qual a segunda tentativa sai
+	 * @param atrasoInicial  atraso do hedge enquanto não há amostras suficientes
+	 * @param atrasoMinimo   piso do atraso do hedge
+	 * @param tempoLimite    espera máxima pela autorização, somando as tentativas
+	 */
+	public record Parametros(double percentilHedge, Duration atrasoInicial, Duration atrasoMinimo,
+			Duration tempoLimite, int janelaDisjuntor, int minimoChamadas, double taxaFalhas,
+			Duration esperaDisjuntor, int threads)
+	{
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(PagamentoResiliente.class);
+
+	private static final int JANELA_LATENCIAS = 1024;
+	private static final int MINIMO_AMOSTRAS = 20;
+
+	private static final String INDISPONIVEL = "Serviço de pagamento indisponível.";
+	private static final String TEMPO_ESGOTADO = "Tempo limite do pagamento esgotado.";
+
+	private final IPagamentoExternal delegado;
+	private final Parametros parametros;
+	/** Recebe cliente e transação de uma autorização que chegou depois do tempo limite. */
+	private final BiConsumer<Long, Long> anulacaoTardia;
+	private final ThreadPoolExecutor executor;
+	private final JanelaLatencias latencias;
+	private final Disjuntor disjuntor;
+
+	private final Counter disparos;
+	private final Counter vitorias;
+	private final Counter rejeicoes;
+	private final Counter tardias;
+
+	public PagamentoResiliente(IPagamentoExternal delegado, Parametros parametros, MeterRegistry registry)
+	{
+		this(delegado, parametros, registry, delegado::cancelarPagamento);
+	}
+
+	public PagamentoResiliente(IPagamentoExternal delegado, Parametros parametros, MeterRegistry registry,
+			BiConsumer<Long, Long> anulacaoTardia)
+	{
+		this.delegado = delegado;
+		this.parametros = parametros;
+		this.anulacaoTardia = anulacaoTardia;
+		this.latencias = new JanelaLatencias(JANELA_LATENCIAS, parametros.percentilHedge(), MINIMO_AMOSTRAS);
+
+		Counter aberturas = Counter.builder("pagamento.disjuntor.aberturas").register(registry);
+		this.disjuntor = new Disjuntor(parametros.janelaDisjuntor(), parametros.minimoChamadas(),
+				parametros.taxaFalhas(), parametros.esperaDisjuntor(), System::nanoTime, aberturas::increment);
+		this.disparos = Counter.builder("pagamento.hedge.disparos").register(registry);
+		this.vitorias = Counter.builder("pagamento.hedge.vitorias").register(registry);
+		this.rejeicoes = Counter.builder("pagamento.disjuntor.rejeicoes").register(registry);
+		this.tardias = Counter.builder("pagamento.autorizacoes.tardias").register(registry);
+		Gauge.builder("pagamento.hedge.atraso", this, p -> p.atrasoHedgeNanos() / 1e9).baseUnit("seconds")
+				.register(registry);
+
+		CustomizableThreadFactory fabrica = new CustomizableThreadFactory("pagamento-");
+		fabrica.setDaemon(true);
+		// Fila curta: sem thread livre, a primeira tentativa roda no chamador e não há hedge
+		this.executor = new ThreadPoolExecutor(parametros.threads(), parametros.threads(), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(parametros.threads()), fabrica, new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal)
+	{
+		return autorizarPagamento(clienteId, custoTotal, UUID.randomUUID().toString());
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia)
+	{
+		long permissao = disjuntor.permitir();
+		if (permissao == Disjuntor.RECUSADA)
+		{
+			rejeicoes.increment();
+			throw new FalhaSemPilha(INDISPONIVEL);
+		}
+
+		try
+		{
+			PagamentoDTO pagamento = autorizarComHedge(clienteId, custoTotal, chaveIdempotencia);
+			disjuntor.registrarSucesso(permissao);
+			return pagamento;
+		}
+		catch (RuntimeException e)
+		{
+			disjuntor.registrarFalha(permissao);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean suportaIdempotencia()
+	{
+		return delegado.suportaIdempotencia();
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId)
+	{
+		delegado.cancelarPagamento(clienteId, pagamentoTransacaoId);
+	}
+
+	/** Gateway decorado. */
+	public IPagamentoExternal delegado()
+	{
+		return delegado;
+	}
+
+	@Override
+	public void destroy()
+	{
+		executor.shutdownNow();
+	}
+
+	private PagamentoDTO autorizarComHedge(Long clienteId, Double custoTotal, String chave)
+	{
+		Corrida corrida = new Corrida();
+		if (!corrida.disparar(clienteId, custoTotal, chave, false))
+		{
+			return tentar(clienteId, custoTotal, chave);
+		}
+
+		long limite = System.nanoTime() + parametros.tempoLimite().toNanos();
+		PagamentoDTO pagamento = corrida.aguardar(Math.min(atrasoHedgeNanos(), parametros.tempoLimite().toNanos()));
+		if (pagamento != null)
+		{
+			return pagamento;
+		}
+
+		if (delegado.suportaIdempotencia() && corrida.disparar(clienteId, custoTotal, chave, true))
+		{
+			disparos.increment();
+		}
+
+		pagamento = corrida.aguardar(limite - System.nanoTime());
+		if (pagamento == null)
+		{
+			corrida.anularQuandoAutorizar(clienteId);
+			throw new FalhaSemPilha(TEMPO_ESGOTADO);
+		}
+		return pagamento;
+	}
+
+	private void anularTardia(Long clienteId, PagamentoDTO pagamento)
+	{
+		if (!Boolean.TRUE.equals(pagamento.autorizado()))
+		{
+			return;
+		}
+		tardias.increment();
+		try
+		{
+			anulacaoTardia.accept(clienteId, pagamento.transacaoId());
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Falha ao anular a autorização {} do cliente {}, concluída após o tempo limite",
+					pagamento.transacaoId(), clienteId, e);
+		}
+	}
+
+	private PagamentoDTO tentar(Long clienteId, Double custoTotal, String chave)
+	{
+		long inicio = System.nanoTime();
+		PagamentoDTO pagamento = delegado.autorizarPagamento(clienteId, custoTotal, chave);
+		latencias.registrar(System.nanoTime() - inicio);
+		return pagamento;
+	}
+
+	private long atrasoHedgeNanos()
+	{
+		long percentil = latencias.percentil();
+		long atraso = percentil < 0 ? parametros.atrasoInicial().toNanos() : percentil;
+		return Math.max(atraso, parametros.atrasoMinimo().toNanos());
+	}
+
+	/**
+	 * Tentativas de uma mesma autorização: a primeira resposta vale, e só falha
+	 * quando todas as tentativas disparadas falharam.
+	 */
+	private final class Corrida
+	{
+		private final CompletableFuture<PagamentoDTO> resultado = new CompletableFuture<>();
+		private final AtomicInteger pendentes = new AtomicInteger();
+		private final AtomicReference<RuntimeException> primeiraFalha = new AtomicReference<>();
+		private final AtomicBoolean respondida = new AtomicBoolean();
+
+		boolean disparar(Long clienteId, Double custoTotal, String chave, boolean hedge)
+		{
+			if (resultado.isDone())
+			{
+				return false;
+			}
+
+			pendentes.incrementAndGet();
+			try
+			{
+				executor.execute(() -> executar(clienteId, custoTotal, chave, hedge));
+				return true;
+			}
+			catch (RejectedExecutionException e)
+			{
+				concluirFalha(null);
+				return false;
+			}
+		}
+
+		/**
+		 * Para depois do tempo limite: a autorização que ainda chegar é anulada.
+		 * Com a mesma chave em todas as tentativas, há no máximo uma.
+		 */
+		void anularQuandoAutorizar(Long clienteId)
+		{
+			resultado.thenAccept(pagamento -> anularTardia(clienteId, pagamento));
+		}
+
+		/** @return a autorização, ou null se nada chegou no prazo */
+		PagamentoDTO aguardar(long nanos)
+		{
+			try
+			{
+				return resultado.get(Math.max(nanos, 0L), TimeUnit.NANOSECONDS);
+			}
+			catch (TimeoutException e)
+			{
+				return null;
+			}
+			catch (ExecutionException e)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Autorização de pagamento interrompida.", e);
+			}
+		}
+
+		private void executar(Long clienteId, Double custoTotal, String chave, boolean hedge)
+		{
+			try
+			{
+				PagamentoDTO pagamento = tentar(clienteId, custoTotal, chave);
+				// A vitória é contada antes de liberar quem espera, para que o contador já a mostre
+				if (respondida.compareAndSet(false, true))
+				{
+					if (hedge)
+					{
+						vitorias.increment();
+					}
+					resultado.complete(pagamento);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				concluirFalha(e);
+			}
+		}
+
+		private void concluirFalha(RuntimeException falha)
+		{
+			if (falha != null)
+			{
+				primeiraFalha.compareAndSet(null, falha);
+			}
+			if (pendentes.decrementAndGet() == 0 && primeiraFalha.get() != null)
+			{
+				resultado.completeExceptionally(primeiraFalha.get());
+			}
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package ecommerce.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +16,12 @@ public interface CarrinhoDeComprasRepository extends JpaRepository<CarrinhoDeCom
 {
 
 	Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente);
+
+	/** Carrinho já com itens e produtos, numa única consulta, para a finalização da compra. */
+	@EntityGraph(attributePaths = { "itens", "itens.produto" })
+	Optional<CarrinhoDeCompras> findComItensByIdAndCliente(Long id, Cliente cliente);
+
+	/** Carrega os carrinhos já com itens e produtos, para precificação fora da sessão. */
+	@EntityGraph(attributePaths = { "itens", "itens.produto" })
+	List<CarrinhoDeCompras> findAllComItensByIdIn(Collection<Long> ids);
 }
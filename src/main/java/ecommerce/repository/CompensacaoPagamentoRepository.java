@@ -0,0 +1,25 @@
+package ecommerce.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import ecommerce.entity.CompensacaoPagamento;
+
+@Repository
+public interface CompensacaoPagamentoRepository extends JpaRepository<CompensacaoPagamento, Long>
+{
+
+	/** Ids na situação informada com tentativa vencida, das mais antigas para as mais novas. */
+	@Query("select c.id from CompensacaoPagamento c where c.situacao = :situacao and c.proximaTentativa <= :agora"
+			+ " order by c.proximaTentativa")
+	List<Long> buscarIdsVencidos(@Param("situacao") CompensacaoPagamento.Situacao situacao,
+			@Param("agora") Instant agora, Pageable pagina);
+
+	long countBySituacao(CompensacaoPagamento.Situacao situacao);
+}
@@ -18,9 +18,13 @@ public class CarrinhoDeComprasService
 		this.repository = repository;
 	}
 
+	/**
+	 * Usado na finalização da compra: traz itens e produtos junto com o carrinho,
+	 * sem uma consulta por item.
+	 */
 	public CarrinhoDeCompras buscarPorCarrinhoIdEClienteId(Long carrinhoId, Cliente cliente)
 	{
-		return repository.findByIdAndCliente(carrinhoId, cliente)
-				.orElseThrow(() -> new IllegalArgumentException("Carrinho não encontrado."));
+		return repository.findComItensByIdAndCliente(carrinhoId, cliente)
+				.orElseThrow(EntradaInvalida::carrinhoNaoEncontrado);
 	}
 }
@@ -0,0 +1,422 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import ecommerce.entity.Produto;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Cópia compacta, somente dos campos usados na precificação (preço, peso e
+ * fragilidade), de todos os produtos do catálogo.
+ *
+ * <p>
+ * Os dados ficam em arrays primitivos indexados por uma tabela de endereçamento
+ * aberto {@code long → int} (id do produto → posição), o que custa algumas
+ * dezenas de bytes por produto em vez do grafo de entidades com cinco
+ * {@link BigDecimal}. O catálogo é carregado na subida da aplicação e mantido
+ * incrementalmente por {@link CatalogoPrecificacaoListener} a cada inclusão,
+ * alteração ou remoção de {@link Produto}.
+ *
+ * <p>
+ * O listener só vê as alterações feitas por esta instância, via entidade.
+ * Alterações de outras instâncias, ou feitas por JPQL/SQL em massa, chegam na
+ * próxima recarga completa, a cada {@code ecommerce.catalogo.recarga.intervalo}
+ * (padrão {@code PT5M}); até lá as cotações desta instância podem usar o valor
+ * antigo. Por isso o catálogo serve às cotações, e a cobrança da finalização
+ * usa os produtos que ela acabou de ler do banco (ver
+ * {@link CompraService#calcularValorCobranca}).
+ *
+ * <p>
+ * Leituras não usam trava. Um {@link Indice} publicado não muda mais: cada
+ * escrita, serializada, altera uma edição que compartilha os blocos não
+ * alterados e a publica numa referência volátil, de modo que quem segura um
+ * índice vê sempre o mesmo retrato do catálogo. Toda escrita avança a
+ * {@linkplain #epoca() época} do catálogo depois de publicada; uma recarga
+ * que não encontra diferenças não avança.
+ */
+@Component
+public class CatalogoPrecificacao
+{
+	private static final int CAPACIDADE_INICIAL = 1024;
+	private static final int TAMANHO_PAGINA = 1000;
+
+	private final ProdutoRepository produtoRepository;
+
+	private volatile Indice indice = new Indice(CAPACIDADE_INICIAL);
+	private final AtomicLong epoca = new AtomicLong();
+
+	@Autowired
+	public CatalogoPrecificacao(ProdutoRepository produtoRepository)
+	{
+		this.produtoRepository = produtoRepository;
+	}
+
+	/** Estado atual do catálogo; uma mesma cotação deve usar uma única referência. */
+	public Indice indice()
+	{
+		return indice;
+	}
+
+	/**
+	 * Contador de alterações de preço, peso ou fragilidade. Quem guarda um valor
+	 * calculado com o catálogo deve ler a época antes do cálculo: se ela mudar
+	 * durante ou depois dele, o valor guardado fica associado à época antiga.
+	 */
+	public long epoca()
+	{
+		return epoca.get();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${ecommerce.catalogo.recarga.intervalo:PT5M}",
+			initialDelayString = "${ecommerce.catalogo.recarga.intervalo:PT5M}")
+	public synchronized void recarregar()
+	{
+		Indice novo = new Indice(CAPACIDADE_INICIAL);
+		Page<Produto> pagina;
+		int numeroPagina = 0;
+
+		do
+		{
+			pagina = produtoRepository.findAll(PageRequest.of(numeroPagina++, TAMANHO_PAGINA, Sort.by("id")));
+			for (Produto produto : pagina)
+			{
+				novo = gravar(novo, produto);
+			}
+		}
+		while (pagina.hasNext());
+
+		// Sem diferenças, as cotações guardadas com a época atual continuam válidas
+		if (novo.mesmoConteudo(indice))
+		{
+			return;
+		}
+		indice = novo;
+		epoca.incrementAndGet();
+	}
+
+	public synchronized void atualizar(Produto produto)
+	{
+		if (produto.getId() == null)
+		{
+			return;
+		}
+
+		indice = gravar(indice.editar(), produto);
+		epoca.incrementAndGet();
+	}
+
+	public synchronized void remover(Long produtoId)
+	{
+		Indice edicao = indice.editar();
+		edicao.remover(produtoId);
+		indice = edicao;
+		epoca.incrementAndGet();
+	}
+
+	private static Indice gravar(Indice destino, Produto produto)
+	{
+		long precoCentavos;
+		long pesoGramas;
+		try
+		{
+			precoCentavos = MotorPrecificacao.paraPontoFixo(produto.getPreco(), MotorPrecificacao.ESCALA_PRECO);
+			pesoGramas = MotorPrecificacao.paraPontoFixo(produto.getPesoFisico(), MotorPrecificacao.ESCALA_PESO);
+		}
+		catch (ArithmeticException | NullPointerException e)
+		{
+			// Fora do ponto fixo: a precificação usa a entidade para este produto
+			destino.remover(produto.getId());
+			return destino;
+		}
+
+		if (!destino.contem(produto.getId()) && destino.cheio())
+		{
+			destino = destino.ampliar();
+		}
+
+		destino.gravar(produto.getId(), precoCentavos, pesoGramas, Boolean.TRUE.equals(produto.isFragil()));
+		return destino;
+	}
+
+	/**
+	 * Tabela de endereçamento aberto (sondagem linear, ocupação máxima de 50%)
+	 * mais os dados dos produtos, ambos divididos em blocos de
+	 * {@value #TAMANHO_BLOCO} entradas. Os dados ficam intercalados por posição
+	 * (id, preço, peso e marcadores), e as posições ocupadas são sempre as
+	 * primeiras: uma remoção move o último produto para a posição liberada e
+	 * desloca a sequência de sondagem, sem deixar marcas de removido.
+	 *
+	 * <p>
+	 * Só é alterado antes de publicado. Uma {@linkplain #editar() edição}
+	 * compartilha os blocos do índice publicado e copia cada bloco na primeira
+	 * escrita: alterar um produto custa um bloco de dados e um da tabela, mais
+	 * a lista de blocos, e não o catálogo inteiro.
+	 */
+	public static final class Indice
+	{
+		private static final int BITS_BLOCO = 10;
+		private static final int TAMANHO_BLOCO = 1 << BITS_BLOCO;
+		private static final int MASCARA_BLOCO = TAMANHO_BLOCO - 1;
+
+		private static final int CAMPOS = 4;
+		private static final int ID = 0;
+		private static final int PRECO = 1;
+		private static final int PESO = 2;
+		private static final int MARCADORES = 3;
+		private static final long FRAGIL = 1L;
+
+		private static final int VAZIO = -1;
+
+		/** Slot da tabela → posição dos dados, ou {@link #VAZIO}. */
+		private final int[][] slots;
+		private final int mascara;
+		private final long[][] dados;
+		private int tamanho;
+
+		/** Blocos que esta edição já copiou e pode alterar. */
+		private final boolean[] slotsProprios;
+		private final boolean[] dadosProprios;
+
+		Indice(int capacidade)
+		{
+			int capacidadeBlocos = Math.max(TAMANHO_BLOCO, Integer.highestOneBit(Math.max(1, capacidade - 1)) << 1);
+			int tamanhoTabela = capacidadeBlocos * 2;
+
+			this.slots = new int[tamanhoTabela >>> BITS_BLOCO][];
+			for (int i = 0; i < slots.length; i++)
+			{
+				slots[i] = new int[TAMANHO_BLOCO];
+				Arrays.fill(slots[i], VAZIO);
+			}
+			this.mascara = tamanhoTabela - 1;
+			this.dados = new long[capacidadeBlocos >>> BITS_BLOCO][];
+			for (int i = 0; i < dados.length; i++)
+			{
+				dados[i] = new long[TAMANHO_BLOCO * CAMPOS];
+			}
+
+			this.slotsProprios = new boolean[slots.length];
+			this.dadosProprios = new boolean[dados.length];
+			Arrays.fill(slotsProprios, true);
+			Arrays.fill(dadosProprios, true);
+		}
+
+		private Indice(Indice origem)
+		{
+			this.slots = origem.slots.clone();
+			this.mascara = origem.mascara;
+			this.dados = origem.dados.clone();
+			this.tamanho = origem.tamanho;
+			this.slotsProprios = new boolean[slots.length];
+			this.dadosProprios = new boolean[dados.length];
+		}
+
+		/** Posição dos dados do produto, ou -1 se ele não estiver no catálogo. */
+		public int posicao(long produtoId)
+		{
+			return slot(localizar(produtoId));
+		}
+
+		public long precoCentavos(int posicao)
+		{
+			return campo(posicao, PRECO);
+		}
+
+		public long pesoGramas(int posicao)
+		{
+			return campo(posicao, PESO);
+		}
+
+		public boolean fragil(int posicao)
+		{
+			return (campo(posicao, MARCADORES) & FRAGIL) != 0;
+		}
+
+		/** Quantidade de produtos presentes. */
+		public int tamanho()
+		{
+			return tamanho;
+		}
+
+		boolean contem(long produtoId)
+		{
+			return posicao(produtoId) != VAZIO;
+		}
+
+		boolean cheio()
+		{
+			return tamanho == dados.length << BITS_BLOCO;
+		}
+
+		/** Versão alterável que compartilha os blocos deste índice até a primeira escrita em cada um. */
+		Indice editar()
+		{
+			return new Indice(this);
+		}
+
+		/** Mesmos produtos, com os mesmos valores, que o outro índice. */
+		boolean mesmoConteudo(Indice outro)
+		{
+			if (tamanho != outro.tamanho)
+			{
+				return false;
+			}
+			for (int posicao = 0; posicao < tamanho; posicao++)
+			{
+				int outra = outro.posicao(campo(posicao, ID));
+				if (outra == VAZIO || outro.campo(outra, PRECO) != campo(posicao, PRECO)
+						|| outro.campo(outra, PESO) != campo(posicao, PESO)
+						|| outro.campo(outra, MARCADORES) != campo(posicao, MARCADORES))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void gravar(long produtoId, long precoCentavos, long pesoGramas, boolean fragil)
+		{
+			int slot = localizar(produtoId);
+			int posicao = slot(slot);
+
+			if (posicao == VAZIO)
+			{
+				posicao = tamanho++;
+				gravarSlot(slot, posicao);
+			}
+
+			long[] bloco = blocoDados(posicao);
+			int base = (posicao & MASCARA_BLOCO) * CAMPOS;
+			bloco[base + ID] = produtoId;
+			bloco[base + PRECO] = precoCentavos;
+			bloco[base + PESO] = pesoGramas;
+			bloco[base + MARCADORES] = fragil ? FRAGIL : 0L;
+		}
+
+		void remover(long produtoId)
+		{
+			int slot = localizar(produtoId);
+			int posicao = slot(slot);
+			if (posicao == VAZIO)
+			{
+				return;
+			}
+
+			liberarSlot(slot);
+
+			// A última posição ocupa a liberada, para que as ocupadas continuem contíguas
+			int ultima = --tamanho;
+			if (posicao != ultima)
+			{
+				long idUltimo = campo(ultima, ID);
+				long[] destino = blocoDados(posicao);
+				int base = (posicao & MASCARA_BLOCO) * CAMPOS;
+				long[] origem = dados[ultima >>> BITS_BLOCO];
+				System.arraycopy(origem, (ultima & MASCARA_BLOCO) * CAMPOS, destino, base, CAMPOS);
+				gravarSlot(localizar(idUltimo), posicao);
+			}
+		}
+
+		Indice ampliar()
+		{
+			Indice maior = new Indice((dados.length << BITS_BLOCO) * 2);
+			for (int posicao = 0; posicao < tamanho; posicao++)
+			{
+				maior.gravar(campo(posicao, ID), campo(posicao, PRECO), campo(posicao, PESO), fragil(posicao));
+			}
+			return maior;
+		}
+
+		/** Slot com a chave ou o primeiro slot vazio da sequência de sondagem. */
+		private int localizar(long produtoId)
+		{
+			int slot = espalhar(produtoId) & mascara;
+			while (true)
+			{
+				int posicao = slot(slot);
+				if (posicao == VAZIO || campo(posicao, ID) == produtoId)
+				{
+					return slot;
+				}
+				slot = (slot + 1) & mascara;
+			}
+		}
+
+		/**
+		 * Esvazia o slot e traz de volta as chaves seguintes da mesma sequência
+		 * de sondagem que ficariam inalcançáveis depois do buraco.
+		 */
+		private void liberarSlot(int slot)
+		{
+			int vazio = slot;
+			int atual = slot;
+			while (true)
+			{
+				atual = (atual + 1) & mascara;
+				int posicao = slot(atual);
+				if (posicao == VAZIO)
+				{
+					break;
+				}
+				int ideal = espalhar(campo(posicao, ID)) & mascara;
+				// Move se o slot ideal não estiver entre o buraco (exclusive) e o atual
+				if (((atual - ideal) & mascara) >= ((atual - vazio) & mascara))
+				{
+					gravarSlot(vazio, posicao);
+					vazio = atual;
+				}
+			}
+			gravarSlot(vazio, VAZIO);
+		}
+
+		private int slot(int slot)
+		{
+			return slots[slot >>> BITS_BLOCO][slot & MASCARA_BLOCO];
+		}
+
+		private long campo(int posicao, int campo)
+		{
+			return dados[posicao >>> BITS_BLOCO][(posicao & MASCARA_BLOCO) * CAMPOS + campo];
+		}
+
+		private void gravarSlot(int slot, int posicao)
+		{
+			int bloco = slot >>> BITS_BLOCO;
+			if (!slotsProprios[bloco])
+			{
+				slots[bloco] = slots[bloco].clone();
+				slotsProprios[bloco] = true;
+			}
+			slots[bloco][slot & MASCARA_BLOCO] = posicao;
+		}
+
+		private long[] blocoDados(int posicao)
+		{
+			int bloco = posicao >>> BITS_BLOCO;
+			if (!dadosProprios[bloco])
+			{
+				dados[bloco] = dados[bloco].clone();
+				dadosProprios[bloco] = true;
+			}
+			return dados[bloco];
+		}
+
+		private static int espalhar(long chave)
+		{
+			long h = chave * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package ecommerce.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ecommerce.entity.Produto;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Replica no {@link CatalogoPrecificacao} as alterações de {@link Produto}.
+ * Dentro de uma transação, a réplica só acontece depois do commit.
+ *
+ * <p>
+ * Instanciado pelo Hibernate através do container de beans do Spring; o
+ * catálogo é resolvido sob demanda para não criar dependência circular com o
+ * {@code EntityManagerFactory}.
+ */
+public class CatalogoPrecificacaoListener
+{
+	private final ObjectProvider<CatalogoPrecificacao> catalogo;
+
+	public CatalogoPrecificacaoListener(ObjectProvider<CatalogoPrecificacao> catalogo)
+	{
+		this.catalogo = catalogo;
+	}
+
+	@PostPersist
+	@PostUpdate
+	public void produtoAlterado(Produto produto)
+	{
+		aposCommit(() -> catalogo.ifAvailable(c -> c.atualizar(produto)));
+	}
+
+	@PostRemove
+	public void produtoRemovido(Produto produto)
+	{
+		Long produtoId = produto.getId();
+		aposCommit(() -> catalogo.ifAvailable(c -> c.remover(produtoId)));
+	}
+
+	private static void aposCommit(Runnable acao)
+	{
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					acao.run();
+				}
+			});
+		}
+		else
+		{
+			acao.run();
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package ecommerce.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import ecommerce.entity.Cliente;
@@ -10,6 +12,9 @@ import ecommerce.repository.ClienteRepository;
 public class ClienteService
 {
 
+	/** Cache de clientes por id; limites e expiração em {@code spring.cache.caffeine.spec}. */
+	public static final String CACHE_CLIENTES = "clientes";
+
 	private final ClienteRepository repository;
 
 	@Autowired
@@ -18,9 +23,22 @@ public class ClienteService
 		this.repository = repository;
 	}
 
+	@Cacheable(cacheNames = CACHE_CLIENTES, key = "#clienteId")
 	public Cliente buscarPorId(Long clienteId)
 	{
-		return repository.findById(clienteId).orElseThrow(() -> new IllegalArgumentException("Cliente não encontrado"));
+		return repository.findById(clienteId).orElseThrow(EntradaInvalida::clienteNaoEncontrado);
+	}
+
+	@CacheEvict(cacheNames = CACHE_CLIENTES, key = "#cliente.id", condition = "#cliente.id != null")
+	public Cliente salvar(Cliente cliente)
+	{
+		return repository.save(cliente);
+	}
+
+	/** Invalida o cliente em cache após alterações feitas fora deste serviço. */
+	@CacheEvict(cacheNames = CACHE_CLIENTES, key = "#clienteId")
+	public void invalidar(Long clienteId)
+	{
 	}
 
 }
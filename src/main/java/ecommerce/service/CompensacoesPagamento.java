@@ -0,0 +1,191 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.CompensacaoPagamento;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.repository.CompensacaoPagamentoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cancelamentos de pagamento fora da requisição. A compra que precisa desfazer
+ * uma autorização só grava a compensação; {@link #processarPendentes()} roda
+ * em segundo plano e chama o provedor, com espera exponencial entre as
+ * tentativas (de {@code intervaloInicial} até {@code intervaloMaximo}, com
+ * variação aleatória). Esgotado {@code maximoTentativas}, a compensação fica
+ * abandonada e é registrada em log.
+ *
+ * <p>
+ * {@link #registrar} entra na transação de quem chama (ou abre uma, se não
+ * houver): a compensação é confirmada junto com a compra, sem ocupar uma
+ * segunda conexão do pool. Por isso as finalizações não desfazem a transação
+ * ao recusar a compra. Com mais de uma
+ * instância, a versão da compensação garante que só um processador a execute
+ * por vez. Métricas: {@code compensacao.concluidas},
+ * {@code compensacao.falhas} e {@code compensacao.abandonadas}.
+ */
+@Service
+public class CompensacoesPagamento
+{
+	private static final Logger log = LoggerFactory.getLogger(CompensacoesPagamento.class);
+
+	private final CompensacaoPagamentoRepository repository;
+	private final IPagamentoExternal pagamentoExternal;
+	private final TransactionTemplate transacao;
+
+	private final int tamanhoBloco;
+	private final int maximoTentativas;
+	private final Duration intervaloInicial;
+	private final Duration intervaloMaximo;
+	private final Duration reservaProcessamento;
+
+	private final Counter concluidas;
+	private final Counter falhas;
+	private final Counter abandonadas;
+
+	@Autowired
+	public CompensacoesPagamento(CompensacaoPagamentoRepository repository, IPagamentoExternal pagamentoExternal,
+			PlatformTransactionManager transactionManager, MeterRegistry registry,
+			@Value("${ecommerce.compensacao.tamanho-bloco:100}") int tamanhoBloco,
+			@Value("${ecommerce.compensacao.maximo-tentativas:10}") int maximoTentativas,
+			@Value("${ecommerce.compensacao.intervalo-inicial:PT1S}") Duration intervaloInicial,
+			@Value("${ecommerce.compensacao.intervalo-maximo:PT5M}") Duration intervaloMaximo,
+			@Value("${ecommerce.compensacao.reserva:PT1M}") Duration reservaProcessamento)
+	{
+		this.repository = repository;
+		this.pagamentoExternal = pagamentoExternal;
+		this.transacao = new TransactionTemplate(transactionManager);
+		this.transacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+		this.tamanhoBloco = tamanhoBloco;
+		this.maximoTentativas = maximoTentativas;
+		this.intervaloInicial = intervaloInicial;
+		this.intervaloMaximo = intervaloMaximo;
+		this.reservaProcessamento = reservaProcessamento;
+		this.concluidas = Counter.builder("compensacao.concluidas").register(registry);
+		this.falhas = Counter.builder("compensacao.falhas").register(registry);
+		this.abandonadas = Counter.builder("compensacao.abandonadas").register(registry);
+	}
+
+	/**
+	 * Agenda o cancelamento da autorização, na transação em andamento; não
+	 * chama o provedor.
+	 */
+	public void registrar(Long clienteId, Long transacaoId)
+	{
+		transacao.executeWithoutResult(
+				status -> repository.save(new CompensacaoPagamento(clienteId, transacaoId, Instant.now())));
+	}
+
+	/** @return quantidade de cancelamentos concluídos nesta rodada */
+	@Scheduled(fixedDelayString = "${ecommerce.compensacao.intervalo:PT1S}")
+	public int processarPendentes()
+	{
+		List<Long> ids = repository.buscarIdsVencidos(CompensacaoPagamento.Situacao.PENDENTE, Instant.now(),
+				PageRequest.of(0, tamanhoBloco));
+
+		int processadas = 0;
+		for (Long id : ids)
+		{
+			if (processar(id))
+			{
+				processadas++;
+			}
+		}
+		return processadas;
+	}
+
+	private boolean processar(Long id)
+	{
+		CompensacaoPagamento compensacao;
+		try
+		{
+			compensacao = transacao.execute(status -> reservar(id));
+		}
+		catch (ObjectOptimisticLockingFailureException e)
+		{
+			// Outro processador pegou a mesma compensação
+			return false;
+		}
+		if (compensacao == null)
+		{
+			return false;
+		}
+
+		RuntimeException erro = null;
+		try
+		{
+			pagamentoExternal.cancelarPagamento(compensacao.getClienteId(), compensacao.getTransacaoId());
+		}
+		catch (RuntimeException e)
+		{
+			erro = e;
+		}
+
+		if (erro == null)
+		{
+			transacao.executeWithoutResult(status -> repository.deleteById(id));
+			concluidas.increment();
+			return true;
+		}
+
+		RuntimeException falha = erro;
+		transacao
+				.executeWithoutResult(status -> repository.findById(id).ifPresent(atual -> agendar(atual, falha)));
+		return false;
+	}
+
+	private CompensacaoPagamento reservar(Long id)
+	{
+		CompensacaoPagamento compensacao = repository.findById(id).orElse(null);
+		Instant agora = Instant.now();
+		if (compensacao == null || !compensacao.pendenteEm(agora))
+		{
+			return null;
+		}
+
+		// Se o processo cair no meio da chamada, a compensação volta a vencer depois da reserva
+		compensacao.reservarAte(agora.plus(reservaProcessamento));
+		return repository.saveAndFlush(compensacao);
+	}
+
+	private void agendar(CompensacaoPagamento compensacao, RuntimeException erro)
+	{
+		if (compensacao.getTentativas() + 1 >= maximoTentativas)
+		{
+			compensacao.falhar(erro.toString(), null);
+			abandonadas.increment();
+			log.error("Cancelamento do pagamento {} do cliente {} abandonado após {} tentativas",
+					compensacao.getTransacaoId(), compensacao.getClienteId(), compensacao.getTentativas(), erro);
+			return;
+		}
+
+		compensacao.falhar(erro.toString(), Instant.now().plus(espera(compensacao.getTentativas() + 1)));
+		falhas.increment();
+		log.warn("Falha ao cancelar o pagamento {} (tentativa {}): {}", compensacao.getTransacaoId(),
+				compensacao.getTentativas(), erro.toString());
+	}
+
+	/** Espera exponencial limitada, sorteada entre metade e o valor cheio. */
+	private Duration espera(int tentativas)
+	{
+		long base = intervaloInicial.toMillis() << Math.min(tentativas - 1, 20);
+		long limite = Math.min(Math.max(base, 0L), intervaloMaximo.toMillis());
+		return Duration.ofMillis(limite / 2 + ThreadLocalRandom.current().nextLong(limite / 2 + 1));
+	}
+}
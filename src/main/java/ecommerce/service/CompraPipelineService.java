@@ -0,0 +1,339 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.MetricasCompra.Etapa;
+import ecommerce.service.MetricasCompra.Motivo;
+import ecommerce.service.MetricasCompra.Resultado;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+
+/**
+ * Variante de {@link CompraService#finalizarCompra} que sobrepõe as etapas
+ * independentes. A reserva de estoque roda em paralelo com a precificação e
+ * com a autorização do pagamento, que é feita de forma especulativa; se a
+ * reserva falhar, a autorização é anulada assim que terminar. A confirmação da
+ * reserva continua esperando as duas respostas.
+ *
+ * <p>
+ * Habilitada por {@code ecommerce.compra.pipeline.habilitado=true}. As chamadas
+ * externas rodam num pool limitado; quando a fila enche, a própria thread da
+ * requisição executa a chamada. As etapas entram nas mesmas métricas
+ * {@code compra.*} da finalização sequencial ({@link MetricasCompra}).
+ */
+@Service
+public class CompraPipelineService
+{
+	private static final Logger log = LoggerFactory.getLogger(CompraPipelineService.class);
+
+	private final CarrinhoDeComprasService carrinhoService;
+	private final ClienteService clienteService;
+	private final CompraService compraService;
+
+	private final IEstoqueExternal estoqueExternal;
+	private final IPagamentoExternal pagamentoExternal;
+
+	private final ExecutorService executor;
+
+	/** Sem compensações, o cancelamento após falha na baixa é feito na hora. */
+	private final CompensacoesPagamento compensacoes;
+
+	private final MetricasCompra metricas;
+
+	@Autowired
+	public CompraPipelineService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			CompensacoesPagamento compensacoes, MetricasCompra metricas,
+			@Value("${ecommerce.compra.pipeline.threads:16}") int threads,
+			@Value("${ecommerce.compra.pipeline.fila:256}") int capacidadeFila)
+	{
+		this(carrinhoService, clienteService, compraService, estoqueExternal, pagamentoExternal,
+				criarExecutor(threads, capacidadeFila), compensacoes, metricas);
+	}
+
+	CompraPipelineService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			ExecutorService executor)
+	{
+		this(carrinhoService, clienteService, compraService, estoqueExternal, pagamentoExternal, executor,
+				MetricasCompra.desligadas());
+	}
+
+	CompraPipelineService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			ExecutorService executor, MetricasCompra metricas)
+	{
+		this(carrinhoService, clienteService, compraService, estoqueExternal, pagamentoExternal, executor, null,
+				metricas);
+	}
+
+	private CompraPipelineService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			ExecutorService executor, CompensacoesPagamento compensacoes, MetricasCompra metricas)
+	{
+		this.carrinhoService = carrinhoService;
+		this.clienteService = clienteService;
+		this.compraService = compraService;
+		this.estoqueExternal = estoqueExternal;
+		this.pagamentoExternal = pagamentoExternal;
+		this.executor = executor;
+		this.compensacoes = compensacoes;
+		this.metricas = metricas;
+	}
+
+	private static ExecutorService criarExecutor(int threads, int capacidadeFila)
+	{
+		AtomicInteger contador = new AtomicInteger();
+		return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(capacidadeFila), tarefa -> {
+					Thread thread = new Thread(tarefa, "compra-pipeline-" + contador.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Mesmos desfechos e mesmas métricas de
+	 * {@link CompraService#finalizar(Long, Long)}. Reserva e autorização são
+	 * medidas na thread do pool, pelo tempo da chamada, e não pela espera.
+	 */
+	@Transactional
+	public ResultadoCompra finalizar(Long carrinhoId, Long clienteId)
+	{
+		long inicio = System.nanoTime();
+		Resultado resultado = Resultado.ERRO;
+		try
+		{
+			Cliente cliente = metricas.medir(Etapa.CLIENTE, () -> clienteService.buscarPorId(clienteId));
+			CarrinhoDeCompras carrinho = metricas.medir(Etapa.CARRINHO,
+					() -> carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente));
+
+			LinhasCarrinho linhas = LinhasCarrinho.de(carrinho);
+
+			CompletableFuture<ResultadoEstoqueDTO> reservaFutura = CompletableFuture.supplyAsync(
+					() -> metricas.medir(Etapa.DISPONIBILIDADE, () -> estoqueExternal.reservarLinhas(
+							linhas.produtosIds(), linhas.quantidades(), CompraService.VALIDADE_RESERVA),
+							ResultadoEstoqueDTO::sucesso),
+					executor);
+
+			long valorCentavos;
+			try
+			{
+				BigDecimal custoTotal = metricas.medir(Etapa.PRECIFICACAO,
+						() -> compraService.calcularValorCobranca(carrinho));
+				valorCentavos = MotorPrecificacao.paraPontoFixo(custoTotal, MotorPrecificacao.ESCALA_PRECO);
+			}
+			catch (RuntimeException e)
+			{
+				liberarReserva(reservaFutura);
+				throw e;
+			}
+
+			CompletableFuture<PagamentoDTO> pagamentoFuturo = CompletableFuture.supplyAsync(
+					() -> metricas.medir(Etapa.PAGAMENTO,
+							() -> pagamentoExternal.autorizarPagamento(cliente.getId().longValue(), valorCentavos),
+							PagamentoDTO::autorizado),
+					executor);
+
+			ResultadoEstoqueDTO reserva;
+			try
+			{
+				reserva = aguardar(reservaFutura);
+			}
+			catch (RuntimeException e)
+			{
+				anularAutorizacao(cliente.getId(), pagamentoFuturo);
+				throw e;
+			}
+
+			if (!reserva.sucesso())
+			{
+				anularAutorizacao(cliente.getId(), pagamentoFuturo);
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.ESTOQUE_INDISPONIVEL);
+			}
+
+			PagamentoDTO pagamento;
+			try
+			{
+				pagamento = aguardar(pagamentoFuturo);
+			}
+			catch (RuntimeException e)
+			{
+				metricas.falha(Motivo.ERRO_PAGAMENTO);
+				liberar(reserva.reservaId());
+				throw e;
+			}
+
+			if (!pagamento.autorizado())
+			{
+				liberar(reserva.reservaId());
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.PAGAMENTO_NAO_AUTORIZADO);
+			}
+
+			ResultadoEstoqueDTO baixa;
+			try
+			{
+				baixa = metricas.medir(Etapa.BAIXA, () -> estoqueExternal.confirmarLinhas(reserva.reservaId(),
+						linhas.produtosIds(), linhas.quantidades()), ResultadoEstoqueDTO::sucesso);
+			}
+			catch (RuntimeException e)
+			{
+				// Como em CompraService: depois do pagamento autorizado, a exceção na baixa não pode deixar cobrança
+				log.warn("Falha na baixa da reserva {}; pagamento cancelado", reserva.reservaId(), e);
+				cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+				liberarReservaFeita(reserva.reservaId());
+				return falha(MotivoFalha.ERRO_BAIXA_ESTOQUE);
+			}
+
+			if (!baixa.sucesso())
+			{
+				cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.ERRO_BAIXA_ESTOQUE);
+			}
+
+			resultado = Resultado.SUCESSO;
+			return ResultadoCompra.sucesso(pagamento.transacaoId());
+		}
+		finally
+		{
+			metricas.finalizacao(inicio, resultado);
+		}
+	}
+
+	/** Falhas de negócio lançadas como {@link CompraRecusada}, como em {@link CompraService#finalizarCompra}. */
+	// A recusa já foi decidida e gravada (inclusive compensações): só ela não desfaz a transação
+	@Transactional(dontRollbackOn = CompraRecusada.class)
+	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId)
+	{
+		ResultadoCompra resultado = finalizar(carrinhoId, clienteId);
+		if (!resultado.sucesso())
+		{
+			throw new CompraRecusada(resultado.motivo());
+		}
+		return resultado.paraDTO();
+	}
+
+	/**
+	 * Cancela a autorização especulativa quando ela terminar, sem segurar a
+	 * resposta ao cliente. O cancelamento passa pelas compensações, como após
+	 * falha na baixa; como ninguém espera por esta etapa, as falhas ficam
+	 * registradas em log.
+	 */
+	private void anularAutorizacao(Long clienteId, CompletableFuture<PagamentoDTO> pagamentoFuturo)
+	{
+		pagamentoFuturo.whenComplete((pagamento, erro) -> {
+			if (erro != null)
+			{
+				log.warn("Autorização especulativa do cliente {} terminou com erro: {}", clienteId, erro.toString());
+				return;
+			}
+			if (!Boolean.TRUE.equals(pagamento.autorizado()))
+			{
+				return;
+			}
+			try
+			{
+				cancelarPagamento(clienteId, pagamento.transacaoId());
+			}
+			catch (RuntimeException e)
+			{
+				log.error("Falha ao anular a autorização especulativa {} do cliente {}", pagamento.transacaoId(),
+						clienteId, e);
+			}
+		});
+	}
+
+	private ResultadoCompra falha(MotivoFalha motivo)
+	{
+		metricas.falha(motivo);
+		return ResultadoCompra.falha(motivo);
+	}
+
+	private void cancelarPagamento(Long clienteId, Long transacaoId)
+	{
+		metricas.medir(Etapa.COMPENSACAO, () -> {
+			if (compensacoes == null)
+			{
+				pagamentoExternal.cancelarPagamento(clienteId, transacaoId);
+				return;
+			}
+			compensacoes.registrar(clienteId, transacaoId);
+		});
+	}
+
+	private void liberar(Long reservaId)
+	{
+		metricas.medir(Etapa.COMPENSACAO, () -> estoqueExternal.liberarReserva(reservaId));
+	}
+
+	/** Sem resposta, a reserva expira sozinha em {@link CompraService#VALIDADE_RESERVA}. */
+	private void liberarReservaFeita(Long reservaId)
+	{
+		try
+		{
+			liberar(reservaId);
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Reserva {} não liberada, expira sozinha: {}", reservaId, e.toString());
+		}
+	}
+
+	/** Libera a reserva quando ela terminar, se tiver sido feita. */
+	private void liberarReserva(CompletableFuture<ResultadoEstoqueDTO> reservaFutura)
+	{
+		reservaFutura.thenAccept(reserva -> {
+			if (reserva.sucesso())
+			{
+				liberar(reserva.reservaId());
+			}
+		});
+	}
+
+	private static <T> T aguardar(CompletableFuture<T> futuro)
+	{
+		try
+		{
+			return futuro.join();
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof RuntimeException causa)
+			{
+				throw causa;
+			}
+			throw e;
+		}
+	}
+
+	@PreDestroy
+	public void encerrar()
+	{
+		executor.shutdown();
+	}
+}
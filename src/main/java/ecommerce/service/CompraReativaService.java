@@ -0,0 +1,212 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.external.IEstoqueReativo;
+import ecommerce.external.IPagamentoReativo;
+import ecommerce.service.MetricasCompra.Etapa;
+import ecommerce.service.MetricasCompra.Motivo;
+import ecommerce.service.MetricasCompra.Resultado;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link CompraService#finalizar} sem prender thread durante as chamadas
+ * externas. Cliente, carrinho e preço são lidos no agendador bloqueante
+ * (limitado); reserva, autorização e confirmação usam os gateways
+ * reativos. Uma compra em andamento só ocupa thread enquanto há trabalho a
+ * fazer.
+ *
+ * <p>
+ * Mesma semântica da versão bloqueante: a reserva é liberada se o pagamento
+ * falhar ou for recusado; o pagamento é cancelado (pelo outbox, quando houver)
+ * se a confirmação falhar, inclusive com erro, caso em que a reserva também é
+ * liberada; e as recusas chegam como {@link ResultadoCompra}
+ * com o motivo, não como erro do {@link Mono}. As etapas e a finalização
+ * entram nas mesmas métricas {@code compra.*} ({@link MetricasCompra}), cada
+ * chamada reativa medida da assinatura até a resposta.
+ */
+@Service
+public class CompraReativaService
+{
+	private static final Logger log = LoggerFactory.getLogger(CompraReativaService.class);
+
+	private final CarrinhoDeComprasService carrinhoService;
+	private final ClienteService clienteService;
+	private final CompraService compraService;
+
+	private final IEstoqueReativo estoque;
+	private final IPagamentoReativo pagamento;
+
+	private final Scheduler agendadorBloqueante;
+
+	/** Sem compensações, o cancelamento após falha na baixa é feito na hora. */
+	private final CompensacoesPagamento compensacoes;
+
+	private final MetricasCompra metricas;
+
+	public CompraReativaService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueReativo estoque, IPagamentoReativo pagamento,
+			Scheduler agendadorBloqueante, CompensacoesPagamento compensacoes)
+	{
+		this(carrinhoService, clienteService, compraService, estoque, pagamento, agendadorBloqueante, compensacoes,
+				MetricasCompra.desligadas());
+	}
+
+	@Autowired
+	public CompraReativaService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			CompraService compraService, IEstoqueReativo estoque, IPagamentoReativo pagamento,
+			@Qualifier("agendadorBloqueante") Scheduler agendadorBloqueante, CompensacoesPagamento compensacoes,
+			MetricasCompra metricas)
+	{
+		this.carrinhoService = carrinhoService;
+		this.clienteService = clienteService;
+		this.compraService = compraService;
+		this.estoque = estoque;
+		this.pagamento = pagamento;
+		this.agendadorBloqueante = agendadorBloqueante;
+		this.compensacoes = compensacoes;
+		this.metricas = metricas;
+	}
+
+	public Mono<ResultadoCompra> finalizarCompra(Long carrinhoId, Long clienteId)
+	{
+		return Mono.defer(() -> {
+			long inicio = System.nanoTime();
+			return Mono.fromCallable(() -> preparar(carrinhoId, clienteId)).subscribeOn(agendadorBloqueante)
+					.flatMap(this::reservar)
+					.doOnSuccess(resultado -> metricas.finalizacao(inicio,
+							resultado.sucesso() ? Resultado.SUCESSO : Resultado.RECUSA))
+					.doOnError(erro -> metricas.finalizacao(inicio, Resultado.ERRO));
+		});
+	}
+
+	private Pedido preparar(Long carrinhoId, Long clienteId)
+	{
+		Cliente cliente = metricas.medir(Etapa.CLIENTE, () -> clienteService.buscarPorId(clienteId));
+		CarrinhoDeCompras carrinho = metricas.medir(Etapa.CARRINHO,
+				() -> carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente));
+
+		BigDecimal custoTotal = metricas.medir(Etapa.PRECIFICACAO,
+				() -> compraService.calcularValorCobranca(carrinho));
+		long valorCentavos = MotorPrecificacao.paraPontoFixo(custoTotal, MotorPrecificacao.ESCALA_PRECO);
+
+		return new Pedido(cliente.getId(), LinhasCarrinho.de(carrinho), valorCentavos);
+	}
+
+	private Mono<ResultadoCompra> reservar(Pedido pedido)
+	{
+		LinhasCarrinho linhas = pedido.linhas();
+		return medir(Etapa.DISPONIBILIDADE,
+				estoque.reservarLinhas(linhas.produtosIds(), linhas.quantidades(), CompraService.VALIDADE_RESERVA),
+				ResultadoEstoqueDTO::sucesso)
+				.flatMap(reserva -> {
+					if (!reserva.sucesso())
+					{
+						return Mono.just(falha(MotivoFalha.ESTOQUE_INDISPONIVEL));
+					}
+					return autorizar(pedido, reserva);
+				});
+	}
+
+	private Mono<ResultadoCompra> autorizar(Pedido pedido, ResultadoEstoqueDTO reserva)
+	{
+		return medir(Etapa.PAGAMENTO, pagamento.autorizarPagamento(pedido.clienteId(), pedido.valorCentavos()),
+				autorizacao -> Boolean.TRUE.equals(autorizacao.autorizado()))
+				.onErrorResume(e -> {
+					metricas.falha(Motivo.ERRO_PAGAMENTO);
+					return liberarReserva(reserva.reservaId()).then(Mono.error(e));
+				})
+				.flatMap(autorizacao -> {
+					if (!Boolean.TRUE.equals(autorizacao.autorizado()))
+					{
+						return liberarReserva(reserva.reservaId())
+								.then(Mono.fromSupplier(() -> falha(MotivoFalha.PAGAMENTO_NAO_AUTORIZADO)));
+					}
+					return confirmar(pedido, reserva, autorizacao);
+				});
+	}
+
+	private Mono<ResultadoCompra> confirmar(Pedido pedido, ResultadoEstoqueDTO reserva, PagamentoDTO autorizacao)
+	{
+		LinhasCarrinho linhas = pedido.linhas();
+		return medir(Etapa.BAIXA,
+				estoque.confirmarLinhas(reserva.reservaId(), linhas.produtosIds(), linhas.quantidades()),
+				ResultadoEstoqueDTO::sucesso)
+				.map(ResultadoEstoqueDTO::sucesso)
+				// Como em CompraService: depois do pagamento autorizado, o erro na baixa não pode deixar cobrança
+				.onErrorResume(erro -> liberarAposFalhaNaBaixa(reserva.reservaId(), erro).thenReturn(false))
+				.flatMap(baixado -> {
+					if (!baixado)
+					{
+						return cancelarPagamento(pedido.clienteId(), autorizacao.transacaoId())
+								.then(Mono.fromSupplier(() -> falha(MotivoFalha.ERRO_BAIXA_ESTOQUE)));
+					}
+					return Mono.just(ResultadoCompra.sucesso(autorizacao.transacaoId()));
+				});
+	}
+
+	/** Sem resposta, a reserva expira sozinha em {@link CompraService#VALIDADE_RESERVA}. */
+	private Mono<Void> liberarAposFalhaNaBaixa(Long reservaId, Throwable erro)
+	{
+		log.warn("Falha na baixa da reserva {}; pagamento cancelado", reservaId, erro);
+		return liberarReserva(reservaId).onErrorResume(e -> {
+			log.warn("Reserva {} não liberada, expira sozinha: {}", reservaId, e.toString());
+			return Mono.empty();
+		});
+	}
+
+	private Mono<Void> cancelarPagamento(Long clienteId, Long transacaoId)
+	{
+		if (compensacoes == null)
+		{
+			return medir(Etapa.COMPENSACAO, pagamento.cancelarPagamento(clienteId, transacaoId), valor -> true);
+		}
+		// A gravação no outbox é JPA: vai para o agendador bloqueante
+		return Mono.<Void>fromRunnable(() -> metricas.medir(Etapa.COMPENSACAO,
+				() -> compensacoes.registrar(clienteId, transacaoId))).subscribeOn(agendadorBloqueante);
+	}
+
+	private Mono<Void> liberarReserva(Long reservaId)
+	{
+		return medir(Etapa.COMPENSACAO, estoque.liberarReserva(reservaId), valor -> true);
+	}
+
+	private ResultadoCompra falha(MotivoFalha motivo)
+	{
+		metricas.falha(motivo);
+		return ResultadoCompra.falha(motivo);
+	}
+
+	/**
+	 * Mede a etapa da assinatura até a resposta, como {@link MetricasCompra#medir}
+	 * faz com as chamadas bloqueantes. Sem valor ({@code Mono<Void>}) conta
+	 * como sucesso.
+	 */
+	private <T> Mono<T> medir(Etapa etapa, Mono<T> chamada, Predicate<T> sucesso)
+	{
+		return Mono.defer(() -> {
+			long inicio = System.nanoTime();
+			return chamada.doOnSuccess(valor -> metricas.etapa(etapa, inicio,
+					valor == null || sucesso.test(valor) ? Resultado.SUCESSO : Resultado.RECUSA))
+					.doOnError(erro -> metricas.etapa(etapa, inicio, Resultado.ERRO));
+		});
+	}
+
+	private record Pedido(Long clienteId, LinhasCarrinho linhas, long valorCentavos)
+	{
+	}
+}
@@ -0,0 +1,36 @@
+package ecommerce.service;
+
+import ecommerce.dto.MotivoFalha;
+
+/**
+ * Recusa de negócio lançada por {@code finalizarCompra} (estoque em falta,
+ * pagamento recusado, falha na baixa). É a única exceção que não desfaz a
+ * transação da compra: a recusa já foi decidida e as compensações gravadas.
+ * Qualquer outra {@link IllegalStateException} (tempo esgotado, disjuntor
+ * aberto, serviço encerrado) continua desfazendo tudo.
+ *
+ * <p>
+ * Estende {@link IllegalStateException} para que quem já tratava a recusa
+ * assim continue funcionando. Sem pilha, como {@link EntradaInvalida}.
+ */
+public final class CompraRecusada extends IllegalStateException
+{
+	private final transient MotivoFalha motivo;
+
+	CompraRecusada(MotivoFalha motivo)
+	{
+		super(motivo.mensagem());
+		this.motivo = motivo;
+	}
+
+	public MotivoFalha motivo()
+	{
+		return motivo;
+	}
+
+	@Override
+	public Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
@@ -1,128 +1,453 @@
 package ecommerce.service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.CompraLoteDTO;
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.MotivoFalha;
 import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.dto.ResultadoEstoqueDTO;
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.MetricasCompra.Etapa;
+import ecommerce.service.MetricasCompra.Motivo;
+import ecommerce.service.MetricasCompra.Resultado;
 import jakarta.transaction.Transactional;
 
 @Service
 public class CompraService {
 
+	private static final Logger log = LoggerFactory.getLogger(CompraService.class);
+
+	/** Tempo máximo entre reservar o estoque e confirmar a compra. */
+	static final Duration VALIDADE_RESERVA = Duration.ofMinutes(2);
+
 	private final CarrinhoDeComprasService carrinhoService;
 	private final ClienteService clienteService;
 
 	private final IEstoqueExternal estoqueExternal;
 	private final IPagamentoExternal pagamentoExternal;
 
-	@Autowired
+	private final CatalogoPrecificacao catalogo;
+	private final CotacaoCache cotacaoCache;
+
+	/** Sem compensações (construtores antigos), o cancelamento é feito na hora. */
+	private final CompensacoesPagamento compensacoes;
+
+	private final MetricasCompra metricas;
+
 	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
 			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal) {
+		this(carrinhoService, clienteService, estoqueExternal, pagamentoExternal, null, null);
+	}
+
+	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal, CatalogoPrecificacao catalogo,
+			CotacaoCache cotacaoCache) {
+		this(carrinhoService, clienteService, estoqueExternal, pagamentoExternal, catalogo, cotacaoCache, null);
+	}
+
+	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal, CatalogoPrecificacao catalogo,
+			CotacaoCache cotacaoCache, CompensacoesPagamento compensacoes) {
+		this(carrinhoService, clienteService, estoqueExternal, pagamentoExternal, catalogo, cotacaoCache, compensacoes,
+				MetricasCompra.desligadas());
+	}
+
+	@Autowired
+	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
+			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal, CatalogoPrecificacao catalogo,
+			CotacaoCache cotacaoCache, CompensacoesPagamento compensacoes, MetricasCompra metricas) {
 		this.carrinhoService = carrinhoService;
 		this.clienteService = clienteService;
 		this.estoqueExternal = estoqueExternal;
 		this.pagamentoExternal = pagamentoExternal;
+		this.catalogo = catalogo;
+		this.cotacaoCache = cotacaoCache;
+		this.compensacoes = compensacoes;
+		this.metricas = metricas;
 	}
 
+	/**
+	 * Finaliza a compra e devolve o desfecho. Estoque em falta, pagamento
+	 * recusado e falha na baixa não são erros: voltam como
+	 * {@link ResultadoCompra#falha(MotivoFalha)}, sem exceção. Exceções ficam
+	 * para entrada inválida ({@link IllegalArgumentException}) e falhas dos
+	 * serviços externos até a autorização do pagamento. Depois dela, uma
+	 * exceção na baixa também vira falha na baixa: o pagamento é cancelado e a
+	 * reserva liberada, e a transação precisa ser confirmada para que a
+	 * compensação fique gravada.
+	 *
+	 * <p>
+	 * Cada etapa é medida em {@code compra.etapa} e cada motivo de falha conta
+	 * em {@code compra.falhas} (ver {@link MetricasCompra}).
+	 */
 	@Transactional
+	public ResultadoCompra finalizar(Long carrinhoId, Long clienteId) {
+		long inicio = System.nanoTime();
+		Resultado resultado = Resultado.ERRO;
+		try {
+			Cliente cliente = metricas.medir(Etapa.CLIENTE, () -> clienteService.buscarPorId(clienteId));
+			CarrinhoDeCompras carrinho = metricas.medir(Etapa.CARRINHO,
+					() -> carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente));
+
+			// Simplified call - no longer needs region or client type
+			BigDecimal custoTotal = metricas.medir(Etapa.PRECIFICACAO, () -> calcularValorCobranca(carrinho));
+			long valorCentavos = MotorPrecificacao.paraPontoFixo(custoTotal, MotorPrecificacao.ESCALA_PRECO);
+
+			LinhasCarrinho linhas = LinhasCarrinho.de(carrinho);
+
+			// Uma só chamada separa o estoque: não há janela entre verificar e baixar
+			ResultadoEstoqueDTO reserva = metricas.medir(Etapa.DISPONIBILIDADE, () -> estoqueExternal
+					.reservarLinhas(linhas.produtosIds(), linhas.quantidades(), VALIDADE_RESERVA),
+					ResultadoEstoqueDTO::sucesso);
+
+			if (!reserva.sucesso()) {
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.ESTOQUE_INDISPONIVEL);
+			}
+
+			PagamentoDTO pagamento;
+			try {
+				pagamento = metricas.medir(Etapa.PAGAMENTO,
+						() -> pagamentoExternal.autorizarPagamento(cliente.getId().longValue(), valorCentavos),
+						PagamentoDTO::autorizado);
+			} catch (RuntimeException e) {
+				metricas.falha(Motivo.ERRO_PAGAMENTO);
+				liberarReserva(reserva.reservaId());
+				throw e;
+			}
+
+			if (!pagamento.autorizado()) {
+				liberarReserva(reserva.reservaId());
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.PAGAMENTO_NAO_AUTORIZADO);
+			}
+
+			ResultadoEstoqueDTO baixa;
+			try {
+				baixa = metricas.medir(Etapa.BAIXA, () -> estoqueExternal
+						.confirmarLinhas(reserva.reservaId(), linhas.produtosIds(), linhas.quantidades()),
+						ResultadoEstoqueDTO::sucesso);
+			} catch (RuntimeException e) {
+				cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+				liberarAposFalhaNaBaixa(reserva.reservaId(), e);
+				return falha(MotivoFalha.ERRO_BAIXA_ESTOQUE);
+			}
+
+			if (!baixa.sucesso()) {
+				cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+				resultado = Resultado.RECUSA;
+				return falha(MotivoFalha.ERRO_BAIXA_ESTOQUE);
+			}
+
+			resultado = Resultado.SUCESSO;
+			return ResultadoCompra.sucesso(pagamento.transacaoId());
+		} finally {
+			metricas.finalizacao(inicio, resultado);
+		}
+	}
+
+	/**
+	 * Igual a {@link #finalizar(Long, Long)}, mas com as falhas de negócio
+	 * lançadas como {@link CompraRecusada} (uma {@link IllegalStateException}),
+	 * como era antes do {@link ResultadoCompra}.
+	 */
+	// A recusa já foi decidida e gravada (inclusive compensações): só ela não desfaz a transação
+	@Transactional(dontRollbackOn = CompraRecusada.class)
 	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId) {
-		Cliente cliente = clienteService.buscarPorId(clienteId);
-		CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+		ResultadoCompra resultado = finalizar(carrinhoId, clienteId);
+		if (!resultado.sucesso()) {
+			throw new CompraRecusada(resultado.motivo());
+		}
+		return resultado.paraDTO();
+	}
 
-		List<Long> produtosIds = carrinho.getItens().stream().map(i -> i.getProduto().getId())
-				.collect(Collectors.toList());
-		List<Long> produtosQtds = carrinho.getItens().stream().map(i -> i.getQuantidade()).collect(Collectors.toList());
+	private ResultadoCompra falha(MotivoFalha motivo) {
+		metricas.falha(motivo);
+		return ResultadoCompra.falha(motivo);
+	}
+
+	private void liberarReserva(Long reservaId) {
+		metricas.medir(Etapa.COMPENSACAO, () -> estoqueExternal.liberarReserva(reservaId));
+	}
+
+	/**
+	 * Baixa que terminou em exceção (tempo esgotado, serviço encerrado,
+	 * interrupção): o estoque pode ou não ter recebido a confirmação. Na dúvida
+	 * a compra não é concluída e a reserva é liberada; se a confirmação tiver
+	 * chegado, não há mais reserva a liberar e sobra só a diferença no saldo,
+	 * nunca uma cobrança sem compra. Se nem a liberação responder, a reserva
+	 * expira em {@link #VALIDADE_RESERVA}.
+	 */
+	private void liberarAposFalhaNaBaixa(Long reservaId, RuntimeException erro) {
+		log.warn("Falha na baixa da reserva {}; pagamento cancelado", reservaId, erro);
+		try {
+			liberarReserva(reservaId);
+		} catch (RuntimeException e) {
+			log.warn("Reserva {} não liberada, expira sozinha: {}", reservaId, e.toString());
+		}
+	}
+
+	/**
+	 * Finaliza vários carrinhos do mesmo cliente com uma única reserva e uma
+	 * única confirmação de estoque para o lote inteiro, somando as quantidades
+	 * por produto. O pagamento continua sendo autorizado por carrinho, em
+	 * centavos como na finalização individual.
+	 * Cada carrinho recebe o próprio resultado: um carrinho com problema não
+	 * impede os demais, e se a baixa agregada falhar todos os pagamentos
+	 * autorizados no lote são cancelados (pelo outbox de compensações, quando
+	 * houver), inclusive quando a baixa termina em exceção.
+	 *
+	 * <p>
+	 * Se a reserva do lote não couber no saldo, cada carrinho tenta a própria
+	 * reserva, na ordem recebida: os que cabem são atendidos mesmo que
+	 * dividam um produto em falta com outros, e a confirmação passa a ser por
+	 * carrinho. Etapas e falhas entram nas mesmas métricas da finalização
+	 * individual, com uma finalização por carrinho.
+	 */
+	@Transactional
+	public List<CompraLoteDTO> finalizarCompraLote(List<Long> carrinhoIds, Long clienteId) {
+		long inicio = System.nanoTime();
+		Cliente cliente = metricas.medir(Etapa.CLIENTE, () -> clienteService.buscarPorId(clienteId));
 
-		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds);
+		Map<Long, DesfechoLote> resultados = new LinkedHashMap<>();
+		Map<Long, CarrinhoDeCompras> carrinhos = new LinkedHashMap<>();
+		Map<Long, LinhasCarrinho> linhas = new HashMap<>();
+		Map<Long, Long> valores = new HashMap<>();
 
-		if (!disponibilidade.disponivel()) {
-			throw new IllegalStateException("Itens fora de estoque.");
+		for (Long carrinhoId : carrinhoIds) {
+			if (resultados.containsKey(carrinhoId)) {
+				continue;
+			}
+			resultados.put(carrinhoId, null);
+
+			try {
+				CarrinhoDeCompras carrinho = metricas.medir(Etapa.CARRINHO,
+						() -> carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente));
+				BigDecimal custoTotal = metricas.medir(Etapa.PRECIFICACAO, () -> calcularValorCobranca(carrinho));
+				valores.put(carrinhoId, MotorPrecificacao.paraPontoFixo(custoTotal, MotorPrecificacao.ESCALA_PRECO));
+				linhas.put(carrinhoId, LinhasCarrinho.de(carrinho));
+				carrinhos.put(carrinhoId, carrinho);
+			} catch (IllegalArgumentException e) {
+				resultados.put(carrinhoId, DesfechoLote.erro(e.getMessage()));
+			}
 		}
 
-		// Simplified call - no longer needs region or client type
-		BigDecimal custoTotal = calcularCustoTotal(carrinho);
+		ReservaEstoqueDTO reservaLote = null;
+		Map<Long, Long> reservasPorCarrinho = new HashMap<>();
+		if (!carrinhos.isEmpty()) {
+			Map<Long, Long> totais = somarQuantidadesPorProduto(carrinhos.values());
+			ReservaEstoqueDTO reserva = metricas.medir(Etapa.DISPONIBILIDADE,
+					() -> estoqueExternal.reservar(new ArrayList<>(totais.keySet()), new ArrayList<>(totais.values()),
+							VALIDADE_RESERVA),
+					r -> Boolean.TRUE.equals(r.reservado()));
 
-		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+			if (Boolean.TRUE.equals(reserva.reservado())) {
+				reservaLote = reserva;
+			} else {
+				reservarPorCarrinho(carrinhos, linhas, reservasPorCarrinho, resultados);
+			}
+		}
 
-		if (!pagamento.autorizado()) {
-			throw new IllegalStateException("Pagamento não autorizado.");
+		Map<Long, PagamentoDTO> pagamentos = new LinkedHashMap<>();
+		for (Long carrinhoId : carrinhos.keySet()) {
+			try {
+				PagamentoDTO pagamento = metricas.medir(Etapa.PAGAMENTO,
+						() -> pagamentoExternal.autorizarPagamento(cliente.getId().longValue(), valores.get(carrinhoId)),
+						PagamentoDTO::autorizado);
+				if (pagamento.autorizado()) {
+					pagamentos.put(carrinhoId, pagamento);
+				} else {
+					recusarLote(resultados, carrinhoId, MotivoFalha.PAGAMENTO_NAO_AUTORIZADO);
+				}
+			} catch (RuntimeException e) {
+				metricas.falha(Motivo.ERRO_PAGAMENTO);
+				resultados.put(carrinhoId, DesfechoLote.erro("Erro ao processar compra."));
+			}
+
+			if (reservaLote == null && !pagamentos.containsKey(carrinhoId)) {
+				liberarReserva(reservasPorCarrinho.get(carrinhoId));
+			}
 		}
 
-		EstoqueBaixaDTO baixaDTO = estoqueExternal.darBaixa(produtosIds, produtosQtds);
+		if (reservaLote != null) {
+			confirmarLote(reservaLote.reservaId(), cliente, carrinhos, pagamentos, resultados);
+		} else {
+			for (Map.Entry<Long, PagamentoDTO> entrada : pagamentos.entrySet()) {
+				LinhasCarrinho linhasCarrinho = linhas.get(entrada.getKey());
+				Long reservaId = reservasPorCarrinho.get(entrada.getKey());
+				boolean baixado;
+				try {
+					baixado = metricas.medir(Etapa.BAIXA, () -> estoqueExternal
+							.confirmarLinhas(reservaId, linhasCarrinho.produtosIds(), linhasCarrinho.quantidades()),
+							ResultadoEstoqueDTO::sucesso).sucesso();
+				} catch (RuntimeException e) {
+					liberarAposFalhaNaBaixa(reservaId, e);
+					baixado = false;
+				}
+				concluirLote(resultados, cliente, entrada.getKey(), entrada.getValue(), baixado);
+			}
+		}
 
-		if (!baixaDTO.sucesso()) {
-			pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
-			throw new IllegalStateException("Erro ao dar baixa no estoque.");
+		for (DesfechoLote desfecho : resultados.values()) {
+			metricas.finalizacao(inicio, desfecho.resultado());
 		}
 
-		CompraDTO compraDTO = new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
+		return resultados.entrySet().stream()
+				.map(entrada -> new CompraLoteDTO(entrada.getKey(), entrada.getValue().compra()))
+				.collect(Collectors.toList());
+	}
 
-		return compraDTO;
+	/**
+	 * Reserva carrinho a carrinho, na ordem do lote; quem não couber no saldo
+	 * restante sai do lote como estoque indisponível.
+	 */
+	private void reservarPorCarrinho(Map<Long, CarrinhoDeCompras> carrinhos, Map<Long, LinhasCarrinho> linhas,
+			Map<Long, Long> reservas, Map<Long, DesfechoLote> resultados) {
+		carrinhos.keySet().removeIf(carrinhoId -> {
+			LinhasCarrinho linhasCarrinho = linhas.get(carrinhoId);
+			ResultadoEstoqueDTO reserva = metricas.medir(Etapa.DISPONIBILIDADE, () -> estoqueExternal
+					.reservarLinhas(linhasCarrinho.produtosIds(), linhasCarrinho.quantidades(), VALIDADE_RESERVA),
+					ResultadoEstoqueDTO::sucesso);
+			if (!reserva.sucesso()) {
+				recusarLote(resultados, carrinhoId, MotivoFalha.ESTOQUE_INDISPONIVEL);
+				return true;
+			}
+			reservas.put(carrinhoId, reserva.reservaId());
+			return false;
+		});
 	}
 
-	public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho) {
-		if (carrinho == null || carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
-			throw new IllegalArgumentException("Carrinho invalido");
+	/** Confirma só o que foi pago na reserva do lote; o restante volta ao saldo. */
+	private void confirmarLote(Long reservaId, Cliente cliente, Map<Long, CarrinhoDeCompras> carrinhos,
+			Map<Long, PagamentoDTO> pagamentos, Map<Long, DesfechoLote> resultados) {
+		if (pagamentos.isEmpty()) {
+			liberarReserva(reservaId);
+			return;
 		}
 
-		// 1. Subtotal
-		BigDecimal subtotal = BigDecimal.ZERO;
-		for (var item : carrinho.getItens()) {
-			BigDecimal preco = item.getProduto().getPreco();
-			BigDecimal qtd = new BigDecimal(item.getQuantidade());
-			subtotal = subtotal.add(preco.multiply(qtd));
+		List<CarrinhoDeCompras> pagos = pagamentos.keySet().stream().map(carrinhos::get).toList();
+		Map<Long, Long> totais = somarQuantidadesPorProduto(pagos);
+		boolean baixado;
+		try {
+			EstoqueBaixaDTO baixa = metricas.medir(Etapa.BAIXA, () -> estoqueExternal.confirmarReserva(reservaId,
+					new ArrayList<>(totais.keySet()), new ArrayList<>(totais.values())),
+					b -> Boolean.TRUE.equals(b.sucesso()));
+			baixado = Boolean.TRUE.equals(baixa.sucesso());
+		} catch (RuntimeException e) {
+			liberarAposFalhaNaBaixa(reservaId, e);
+			baixado = false;
 		}
 
-		// 2. Desconto
-		BigDecimal desconto = BigDecimal.ZERO;
-		if (subtotal.compareTo(new BigDecimal("1000.00")) >= 0) {
-			desconto = subtotal.multiply(new BigDecimal("0.20"));
-		} else if (subtotal.compareTo(new BigDecimal("500.00")) >= 0) {
-			desconto = subtotal.multiply(new BigDecimal("0.10"));
+		for (Map.Entry<Long, PagamentoDTO> entrada : pagamentos.entrySet()) {
+			concluirLote(resultados, cliente, entrada.getKey(), entrada.getValue(), baixado);
 		}
-		
-		BigDecimal subtotalComDesconto = subtotal.subtract(desconto);
+	}
 
-		// 3. Frete
-		BigDecimal pesoTotal = BigDecimal.ZERO;
-		BigDecimal taxaFrageis = BigDecimal.ZERO;
+	private void concluirLote(Map<Long, DesfechoLote> resultados, Cliente cliente, Long carrinhoId,
+			PagamentoDTO pagamento, boolean baixado) {
+		if (baixado) {
+			resultados.put(carrinhoId, DesfechoLote.de(ResultadoCompra.sucesso(pagamento.transacaoId())));
+			return;
+		}
+		cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+		recusarLote(resultados, carrinhoId, MotivoFalha.ERRO_BAIXA_ESTOQUE);
+	}
 
-		for (var item : carrinho.getItens()) {
-			BigDecimal peso = item.getProduto().getPesoFisico();
-			BigDecimal qtd = new BigDecimal(item.getQuantidade());
-			pesoTotal = pesoTotal.add(peso.multiply(qtd));
+	private void recusarLote(Map<Long, DesfechoLote> resultados, Long carrinhoId, MotivoFalha motivo) {
+		metricas.falha(motivo);
+		resultados.put(carrinhoId, DesfechoLote.de(ResultadoCompra.falha(motivo)));
+	}
+
+	/**
+	 * Resposta de um carrinho do lote junto com o desfecho que ela representa,
+	 * para que as métricas não dependam de reconhecer a resposta.
+	 */
+	private record DesfechoLote(CompraDTO compra, Resultado resultado) {
+
+		static DesfechoLote de(ResultadoCompra resultado) {
+			return new DesfechoLote(resultado.paraDTO(), resultado.sucesso() ? Resultado.SUCESSO : Resultado.RECUSA);
+		}
+
+		static DesfechoLote erro(String mensagem) {
+			return new DesfechoLote(new CompraDTO(false, null, mensagem), Resultado.ERRO);
+		}
+	}
+
+	/** Agenda o cancelamento no outbox, sem esperar o provedor; sem outbox, cancela na hora. */
+	private void cancelarPagamento(Long clienteId, Long transacaoId) {
+		metricas.medir(Etapa.COMPENSACAO, () -> {
+			if (compensacoes == null) {
+				pagamentoExternal.cancelarPagamento(clienteId, transacaoId);
+				return;
+			}
+			compensacoes.registrar(clienteId, transacaoId);
+		});
+	}
 
-			if (Boolean.TRUE.equals(item.getProduto().isFragil())) {
-				taxaFrageis = taxaFrageis.add(new BigDecimal("5.00").multiply(qtd));
+	private static Map<Long, Long> somarQuantidadesPorProduto(Collection<CarrinhoDeCompras> carrinhos) {
+		Map<Long, Long> totais = new LinkedHashMap<>();
+		for (CarrinhoDeCompras carrinho : carrinhos) {
+			for (ItemCompra item : carrinho.getItens()) {
+				totais.merge(item.getProduto().getId(), item.getQuantidade(), Long::sum);
 			}
 		}
+		return totais;
+	}
+
+	public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho) {
+		if (carrinho == null) {
+			throw EntradaInvalida.carrinhoInvalido();
+		}
+
+		if (cotacaoCache == null) {
+			return precificar(carrinho);
+		}
+		return cotacaoCache.obter(carrinho, catalogo, () -> precificar(carrinho));
+	}
 
-		BigDecimal valorFrete = BigDecimal.ZERO;
-		if (pesoTotal.compareTo(new BigDecimal("50.00")) > 0) {
-			valorFrete = pesoTotal.multiply(new BigDecimal("7.00"));
-		} else if (pesoTotal.compareTo(new BigDecimal("10.00")) > 0) {
-			valorFrete = pesoTotal.multiply(new BigDecimal("4.00"));
-		} else if (pesoTotal.compareTo(new BigDecimal("5.00")) > 0) {
-			valorFrete = pesoTotal.multiply(new BigDecimal("2.00"));
+	/**
+	 * Valor cobrado na finalização. Usa preço, peso e fragilidade dos produtos
+	 * que a finalização acabou de carregar, e não o {@link CatalogoPrecificacao}
+	 * nem o {@link CotacaoCache}: o catálogo desta instância pode ainda não ter
+	 * recebido uma alteração feita em outra, e a cobrança não pode usar um
+	 * preço antigo.
+	 */
+	public BigDecimal calcularValorCobranca(CarrinhoDeCompras carrinho) {
+		if (carrinho == null || carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
+			throw EntradaInvalida.carrinhoInvalido();
 		}
-		// Se for <= 5kg, frete é 0 (já inicializado)
 
-		valorFrete = valorFrete.add(taxaFrageis);
+		return MotorPrecificacao.calcular(carrinho.getItens());
+	}
 
-		// 4. Total final
-		BigDecimal total = subtotalComDesconto.add(valorFrete);
+	private BigDecimal precificar(CarrinhoDeCompras carrinho) {
+		// Preço, peso e fragilidade vêm sempre do catálogo atual, nunca de totais gravados no carrinho
+		if (carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
+			throw EntradaInvalida.carrinhoInvalido();
+		}
 
-		return total.setScale(2, java.math.RoundingMode.HALF_UP);
+		return MotorPrecificacao.calcular(carrinho.getItens(), catalogo);
 	}
 }
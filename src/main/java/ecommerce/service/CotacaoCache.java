@@ -0,0 +1,83 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cotações já calculadas, por carrinho. A chave inclui a versão do carrinho e
+ * a época do {@link CatalogoPrecificacao}: uma entrada nunca é invalidada,
+ * apenas deixa de ser encontrada quando uma das duas muda, e sai por tamanho
+ * ou tempo.
+ *
+ * <p>
+ * A versão é gravada no banco e avança com qualquer alteração do carrinho ou
+ * de seus itens, vinda de qualquer nó. A época não: ela é local a cada nó e só
+ * avança com alterações de produto feitas por este nó ou com a recarga
+ * periódica do catálogo. Um preço alterado por outro nó ou por um
+ * {@code UPDATE} direto no banco pode, portanto, devolver a cotação antiga até
+ * a próxima recarga ({@code ecommerce.catalogo.recarga.intervalo}). A cotação
+ * é só exibida: a cobrança é sempre recalculada dos produtos carregados.
+ *
+ * <p>
+ * Carrinhos ainda não gravados ou com alterações em memória não passam pelo
+ * cache. As estatísticas aparecem como {@code cache.gets}, {@code cache.puts}
+ * e {@code cache.evictions} com a tag {@code cache=cotacoes}.
+ */
+@Component
+public class CotacaoCache
+{
+	public static final String NOME = "cotacoes";
+
+	/** Época usada quando não há catálogo e a cotação vem só das entidades. */
+	private static final long SEM_CATALOGO = -1L;
+
+	private final Cache<Chave, BigDecimal> cotacoes;
+
+	@Autowired
+	public CotacaoCache(MeterRegistry registry,
+			@Value("${ecommerce.cotacao.cache.tamanho-maximo:100000}") long tamanhoMaximo,
+			@Value("${ecommerce.cotacao.cache.expiracao:PT30M}") Duration expiracao)
+	{
+		this.cotacoes = Caffeine.newBuilder().maximumSize(tamanhoMaximo).expireAfterAccess(expiracao).recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(registry, cotacoes, NOME);
+	}
+
+	/**
+	 * Devolve a cotação guardada para o estado atual do carrinho ou a calcula e
+	 * guarda. Exceções do cálculo são propagadas e nada é guardado.
+	 */
+	public BigDecimal obter(CarrinhoDeCompras carrinho, CatalogoPrecificacao catalogo, Supplier<BigDecimal> calculo)
+	{
+		if (carrinho.getId() == null || carrinho.getVersao() == null || carrinho.possuiAlteracoesPendentes())
+		{
+			return calculo.get();
+		}
+
+		// Época lida antes do cálculo: uma alteração concorrente de produto deixa a entrada na época antiga
+		long epoca = catalogo == null ? SEM_CATALOGO : catalogo.epoca();
+		return cotacoes.get(new Chave(carrinho.getId(), carrinho.getVersao(), epoca), chave -> calculo.get());
+	}
+
+	/** Quantidade aproximada de entradas. */
+	public long tamanho()
+	{
+		return cotacoes.estimatedSize();
+	}
+
+	private record Chave(long carrinhoId, long versao, long epoca)
+	{
+	}
+}
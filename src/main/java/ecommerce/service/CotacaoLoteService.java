@@ -0,0 +1,148 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cotação de muitos carrinhos por chamada (reprecificação após mudança de
+ * catálogo, campanhas etc.).
+ *
+ * <p>
+ * Os carrinhos são carregados em blocos, já com itens e produtos, e cada bloco é
+ * precificado em paralelo num {@link ForkJoinPool} do tamanho do número de
+ * núcleos enquanto o bloco seguinte é carregado do banco. Os resultados são
+ * entregues bloco a bloco, na ordem dos ids recebidos; um carrinho com problema
+ * vira uma {@link CotacaoDTO} com erro, sem interromper o lote. Se a carga de
+ * um bloco falhar, o bloco já enviado ao pool é aguardado antes de a exceção
+ * sair. O pool é encerrado junto com o contexto.
+ */
+@Service
+public class CotacaoLoteService
+{
+	private static final Logger log = LoggerFactory.getLogger(CotacaoLoteService.class);
+
+	private static final Duration TEMPO_ENCERRAMENTO = Duration.ofSeconds(10);
+
+	private final CarrinhoDeComprasRepository carrinhoRepository;
+	private final CompraService compraService;
+	private final int tamanhoBloco;
+	private final ForkJoinPool pool;
+
+	@Autowired
+	public CotacaoLoteService(CarrinhoDeComprasRepository carrinhoRepository, CompraService compraService,
+			@Value("${ecommerce.cotacao-lote.tamanho-bloco:500}") int tamanhoBloco)
+	{
+		this.carrinhoRepository = carrinhoRepository;
+		this.compraService = compraService;
+		this.tamanhoBloco = tamanhoBloco;
+		this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	public void cotar(List<Long> carrinhoIds, Consumer<List<CotacaoDTO>> porBloco)
+	{
+		ForkJoinTask<List<CotacaoDTO>> pendente = null;
+
+		try
+		{
+			for (int inicio = 0; inicio < carrinhoIds.size(); inicio += tamanhoBloco)
+			{
+				List<Long> bloco = carrinhoIds.subList(inicio, Math.min(inicio + tamanhoBloco, carrinhoIds.size()));
+				Map<Long, CarrinhoDeCompras> carregados = carregar(bloco);
+
+				if (pendente != null)
+				{
+					ForkJoinTask<List<CotacaoDTO>> anterior = pendente;
+					pendente = null;
+					porBloco.accept(anterior.join());
+				}
+
+				pendente = pool.submit(() -> bloco.parallelStream().map(id -> cotar(id, carregados.get(id))).toList());
+			}
+
+			if (pendente != null)
+			{
+				ForkJoinTask<List<CotacaoDTO>> ultimo = pendente;
+				pendente = null;
+				porBloco.accept(ultimo.join());
+			}
+		}
+		finally
+		{
+			// Só sobra bloco pendente se a carga do seguinte falhou
+			if (pendente != null)
+			{
+				descartar(pendente);
+			}
+		}
+	}
+
+	/**
+	 * Espera o bloco terminar, para que nenhuma cotação continue rodando depois
+	 * de {@link #cotar} sair. Não adianta cancelar: o cancelamento de uma
+	 * {@link ForkJoinTask} já iniciada a dá por concluída sem interrompê-la.
+	 */
+	private static void descartar(ForkJoinTask<List<CotacaoDTO>> bloco)
+	{
+		bloco.quietlyJoin();
+		if (bloco.isCompletedAbnormally())
+		{
+			log.warn("Bloco de cotações descartado terminou com erro", bloco.getException());
+		}
+	}
+
+	private Map<Long, CarrinhoDeCompras> carregar(List<Long> ids)
+	{
+		return carrinhoRepository.findAllComItensByIdIn(ids).stream()
+				.collect(Collectors.toMap(CarrinhoDeCompras::getId, Function.identity(), (a, b) -> a));
+	}
+
+	private CotacaoDTO cotar(Long carrinhoId, CarrinhoDeCompras carrinho)
+	{
+		if (carrinho == null)
+		{
+			return new CotacaoDTO(carrinhoId, null, "Carrinho não encontrado.");
+		}
+
+		try
+		{
+			return new CotacaoDTO(carrinhoId, compraService.calcularCustoTotal(carrinho), null);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return new CotacaoDTO(carrinhoId, null, e.getMessage());
+		}
+		catch (RuntimeException e)
+		{
+			return new CotacaoDTO(carrinhoId, null, "Erro ao cotar carrinho.");
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() throws InterruptedException
+	{
+		pool.shutdown();
+		if (!pool.awaitTermination(TEMPO_ENCERRAMENTO.toMillis(), TimeUnit.MILLISECONDS))
+		{
+			log.warn("Cotações em lote ainda em execução após {}; interrompendo", TEMPO_ENCERRAMENTO);
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package ecommerce.service;
+
+/**
+ * Erros de entrada da compra e da importação de carrinhos (cliente, carrinho
+ * ou produto inexistente, carrinho inválido), sem pilha: são respondidos com
+ * 400 e nunca investigados pelo rastro. Cada lançamento cria a sua instância,
+ * para que causas e exceções suprimidas não passem de uma requisição a outra.
+ */
+final class EntradaInvalida extends IllegalArgumentException
+{
+	static EntradaInvalida clienteNaoEncontrado()
+	{
+		return new EntradaInvalida("Cliente não encontrado");
+	}
+
+	static EntradaInvalida carrinhoNaoEncontrado()
+	{
+		return new EntradaInvalida("Carrinho não encontrado.");
+	}
+
+	static EntradaInvalida carrinhoInvalido()
+	{
+		return new EntradaInvalida("Carrinho invalido");
+	}
+
+	static EntradaInvalida produtoNaoEncontrado()
+	{
+		return new EntradaInvalida("Produto não encontrado.");
+	}
+
+	private EntradaInvalida(String mensagem)
+	{
+		super(mensagem);
+	}
+
+	@Override
+	public Throwable fillInStackTrace()
+	{
+		return this;
+	}
+}
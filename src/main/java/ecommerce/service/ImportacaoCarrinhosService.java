@@ -0,0 +1,146 @@
+package ecommerce.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.CarrinhoImportacaoDTO;
+import ecommerce.dto.ItemImportacaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Cria carrinhos em massa. Clientes e produtos são lidos numa consulta cada;
+ * carrinhos e itens recebem ids de sequência já reservados e são gravados em
+ * lotes JDBC ({@code hibernate.jdbc.batch_size}), de modo que milhares de
+ * itens custam dezenas de comandos em vez de um insert por item.
+ *
+ * <p>
+ * A cada {@code ecommerce.carrinho.importacao.itens-por-descarga} itens o
+ * contexto de persistência é descarregado e limpo, para que a verificação de
+ * alterações no flush não cresça com a importação. Tudo roda numa transação:
+ * um cliente ou produto inexistente rejeita a importação inteira.
+ */
+@Service
+public class ImportacaoCarrinhosService
+{
+	private final ClienteRepository clienteRepository;
+	private final ProdutoRepository produtoRepository;
+	private final EntityManager entityManager;
+
+	private final int itensPorDescarga;
+
+	@Autowired
+	public ImportacaoCarrinhosService(ClienteRepository clienteRepository, ProdutoRepository produtoRepository,
+			EntityManager entityManager,
+			@Value("${ecommerce.carrinho.importacao.itens-por-descarga:1000}") int itensPorDescarga)
+	{
+		this.clienteRepository = clienteRepository;
+		this.produtoRepository = produtoRepository;
+		this.entityManager = entityManager;
+		this.itensPorDescarga = itensPorDescarga;
+	}
+
+	/** @return ids dos carrinhos criados, na ordem recebida */
+	@Transactional
+	public List<Long> importar(List<CarrinhoImportacaoDTO> carrinhos)
+	{
+		Set<Long> clientesIds = new HashSet<>();
+		Set<Long> produtosIds = new HashSet<>();
+		for (CarrinhoImportacaoDTO carrinho : carrinhos)
+		{
+			validar(carrinho);
+			clientesIds.add(carrinho.clienteId());
+			for (ItemImportacaoDTO item : carrinho.itens())
+			{
+				produtosIds.add(item.produtoId());
+			}
+		}
+
+		Map<Long, Cliente> clientes = porId(clienteRepository.findAllById(clientesIds), Cliente::getId);
+		Map<Long, Produto> produtos = porId(produtoRepository.findAllById(produtosIds), Produto::getId);
+		if (clientes.size() < clientesIds.size())
+		{
+			throw EntradaInvalida.clienteNaoEncontrado();
+		}
+		if (produtos.size() < produtosIds.size())
+		{
+			throw EntradaInvalida.produtoNaoEncontrado();
+		}
+
+		LocalDate hoje = LocalDate.now();
+		List<Long> ids = new ArrayList<>(carrinhos.size());
+		int pendentes = 0;
+		for (CarrinhoImportacaoDTO importacao : carrinhos)
+		{
+			CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+			carrinho.setCliente(clientes.get(importacao.clienteId()));
+			carrinho.setData(hoje);
+			for (ItemImportacaoDTO item : importacao.itens())
+			{
+				carrinho.adicionarItem(new ItemCompra(null, produtos.get(item.produtoId()), item.quantidade()));
+			}
+
+			// O id vem do bloco reservado da sequência; o insert fica para o flush
+			entityManager.persist(carrinho);
+			ids.add(carrinho.getId());
+
+			pendentes += importacao.itens().size();
+			if (pendentes >= itensPorDescarga)
+			{
+				descarregar();
+				pendentes = 0;
+			}
+		}
+		entityManager.flush();
+
+		return ids;
+	}
+
+	private static void validar(CarrinhoImportacaoDTO carrinho)
+	{
+		if (carrinho == null || carrinho.clienteId() == null || carrinho.itens() == null
+				|| carrinho.itens().isEmpty())
+		{
+			throw EntradaInvalida.carrinhoInvalido();
+		}
+		for (ItemImportacaoDTO item : carrinho.itens())
+		{
+			if (item == null || item.produtoId() == null || item.quantidade() == null || item.quantidade() <= 0)
+			{
+				throw EntradaInvalida.carrinhoInvalido();
+			}
+		}
+	}
+
+	private static <T> Map<Long, T> porId(List<T> entidades, Function<T, Long> id)
+	{
+		return entidades.stream().collect(Collectors.toMap(id, Function.identity()));
+	}
+
+	/**
+	 * Envia os inserts pendentes e solta as entidades gravadas. Clientes e
+	 * produtos ficam destacados, o que basta para as chaves estrangeiras dos
+	 * próximos carrinhos.
+	 */
+	private void descarregar()
+	{
+		entityManager.flush();
+		entityManager.clear();
+	}
+}
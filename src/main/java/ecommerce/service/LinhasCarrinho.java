@@ -0,0 +1,34 @@
+package ecommerce.service;
+
+import java.util.List;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+
+/**
+ * Ids de produto e quantidades dos itens de um carrinho em arrays paralelos,
+ * montados numa única passada, no formato das operações por linhas de
+ * {@link ecommerce.external.IEstoqueExternal}.
+ */
+record LinhasCarrinho(long[] produtosIds, long[] quantidades)
+{
+	static LinhasCarrinho de(CarrinhoDeCompras carrinho)
+	{
+		List<ItemCompra> itens = carrinho.getItens();
+		long[] produtosIds = new long[itens.size()];
+		long[] quantidades = new long[itens.size()];
+
+		for (int i = 0; i < itens.size(); i++)
+		{
+			ItemCompra item = itens.get(i);
+			if (item.getProduto() == null || item.getProduto().getId() == null || item.getQuantidade() == null)
+			{
+				throw EntradaInvalida.carrinhoInvalido();
+			}
+			produtosIds[i] = item.getProduto().getId();
+			quantidades[i] = item.getQuantidade();
+		}
+
+		return new LinhasCarrinho(produtosIds, quantidades);
+	}
+}
@@ -0,0 +1,165 @@
+package ecommerce.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import ecommerce.dto.MotivoFalha;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Métricas da finalização de compra. Cada etapa tem um timer
+ * {@code compra.etapa}, com as tags {@code etapa} e {@code resultado}:
+ * {@code sucesso}, {@code recusa} (o serviço respondeu que não) ou
+ * {@code erro} (exceção). A compra inteira fica em {@code compra.finalizacao}.
+ * Os timers publicam p50, p95 e p99 e o histograma de percentis, visíveis em
+ * {@code /actuator/metrics/compra.etapa.percentile}.
+ *
+ * <p>
+ * Cada motivo de falha da compra conta em {@code compra.falhas}, com a tag
+ * {@code motivo}. Os timers são registrados de antemão: medir uma etapa não
+ * consulta o registro.
+ */
+@Component
+public class MetricasCompra
+{
+	private static final double[] PERCENTIS = { 0.5, 0.95, 0.99 };
+
+	public enum Etapa
+	{
+		CLIENTE, CARRINHO, PRECIFICACAO, DISPONIBILIDADE, PAGAMENTO, BAIXA, COMPENSACAO;
+
+		String tag()
+		{
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	public enum Resultado
+	{
+		SUCESSO, RECUSA, ERRO;
+
+		String tag()
+		{
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	public enum Motivo
+	{
+		ESTOQUE_INDISPONIVEL, PAGAMENTO_NAO_AUTORIZADO, ERRO_PAGAMENTO, ERRO_BAIXA_ESTOQUE;
+
+		String tag()
+		{
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private final Map<Etapa, Map<Resultado, Timer>> etapas = new EnumMap<>(Etapa.class);
+	private final Map<Resultado, Timer> finalizacoes = new EnumMap<>(Resultado.class);
+	private final Map<Motivo, Counter> falhas = new EnumMap<>(Motivo.class);
+
+	@Autowired
+	public MetricasCompra(MeterRegistry registry)
+	{
+		for (Etapa etapa : Etapa.values())
+		{
+			Map<Resultado, Timer> timers = new EnumMap<>(Resultado.class);
+			for (Resultado resultado : Resultado.values())
+			{
+				timers.put(resultado, timer("compra.etapa", resultado).tag("etapa", etapa.tag()).register(registry));
+			}
+			etapas.put(etapa, timers);
+		}
+		for (Resultado resultado : Resultado.values())
+		{
+			finalizacoes.put(resultado, timer("compra.finalizacao", resultado).register(registry));
+		}
+		for (Motivo motivo : Motivo.values())
+		{
+			falhas.put(motivo, Counter.builder("compra.falhas").tag("motivo", motivo.tag()).register(registry));
+		}
+	}
+
+	/** Métricas que não são publicadas em lugar nenhum (construtores antigos e testes). */
+	public static MetricasCompra desligadas()
+	{
+		return new MetricasCompra(new CompositeMeterRegistry());
+	}
+
+	private static Timer.Builder timer(String nome, Resultado resultado)
+	{
+		return Timer.builder(nome).tag("resultado", resultado.tag()).publishPercentiles(PERCENTIS)
+				.publishPercentileHistogram();
+	}
+
+	/** Mede a etapa; exceções contam como {@code erro} e seguem adiante. */
+	public <T> T medir(Etapa etapa, Supplier<T> acao)
+	{
+		return medir(etapa, acao, valor -> true);
+	}
+
+	/** Mede a etapa; a resposta que não passa em {@code sucesso} conta como {@code recusa}. */
+	public <T> T medir(Etapa etapa, Supplier<T> acao, Predicate<T> sucesso)
+	{
+		long inicio = System.nanoTime();
+		Resultado resultado = Resultado.ERRO;
+		try
+		{
+			T valor = acao.get();
+			resultado = sucesso.test(valor) ? Resultado.SUCESSO : Resultado.RECUSA;
+			return valor;
+		}
+		finally
+		{
+			etapa(etapa, inicio, resultado);
+		}
+	}
+
+	public void medir(Etapa etapa, Runnable acao)
+	{
+		medir(etapa, () -> {
+			acao.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Registra uma etapa iniciada em {@code inicio} ({@link System#nanoTime()}),
+	 * para chamadas que não cabem num {@link Supplier}, como as reativas.
+	 */
+	public void etapa(Etapa etapa, long inicio, Resultado resultado)
+	{
+		etapas.get(etapa).get(resultado).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+	}
+
+	/** Registra o tempo da compra inteira, iniciada em {@code inicio} ({@link System#nanoTime()}). */
+	public void finalizacao(long inicio, Resultado resultado)
+	{
+		finalizacoes.get(resultado).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+	}
+
+	public void falha(Motivo motivo)
+	{
+		falhas.get(motivo).increment();
+	}
+
+	public void falha(MotivoFalha motivo)
+	{
+		falha(switch (motivo)
+		{
+			case ESTOQUE_INDISPONIVEL -> Motivo.ESTOQUE_INDISPONIVEL;
+			case PAGAMENTO_NAO_AUTORIZADO -> Motivo.PAGAMENTO_NAO_AUTORIZADO;
+			case ERRO_BAIXA_ESTOQUE -> Motivo.ERRO_BAIXA_ESTOQUE;
+		});
+	}
+}
@@ -0,0 +1,242 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+
+/**
+ * Regras de preço do carrinho (subtotal, desconto por faixa, frete por peso e
+ * taxa de itens frágeis) calculadas em ponto fixo.
+ *
+ * <p>
+ * Preços são acumulados em centavos e pesos em gramas, numa única passada pelos
+ * itens e sem alocar {@link BigDecimal} intermediários. Só o total final é
+ * convertido para {@link BigDecimal}, com escala 2 e arredondamento HALF_UP,
+ * exatamente como no cálculo original. Valores que não cabem nessas escalas
+ * (mais de 2 casas no preço ou 3 no peso) ou que estouram {@code long} caem no
+ * cálculo com {@link BigDecimal}.
+ */
+public final class MotorPrecificacao
+{
+	static final int ESCALA_PRECO = 2;
+	static final int ESCALA_PESO = 3;
+
+	/** Subtotal (centavos) a partir do qual se aplica 20% de desconto: R$ 1000,00. */
+	static final long DESCONTO_20_A_PARTIR_DE = 100_000L;
+	/** Subtotal (centavos) a partir do qual se aplica 10% de desconto: R$ 500,00. */
+	static final long DESCONTO_10_A_PARTIR_DE = 50_000L;
+
+	/** Peso (gramas) acima do qual o frete é R$ 7,00/kg: 50 kg. */
+	static final long FRETE_7_ACIMA_DE = 50_000L;
+	/** Peso (gramas) acima do qual o frete é R$ 4,00/kg: 10 kg. */
+	static final long FRETE_4_ACIMA_DE = 10_000L;
+	/** Peso (gramas) acima do qual o frete é R$ 2,00/kg: 5 kg. */
+	static final long FRETE_2_ACIMA_DE = 5_000L;
+
+	static final long TAXA_FRAGIL_CENTAVOS = 500L;
+
+	private static final BigDecimal LIMITE_DESCONTO_20 = new BigDecimal("1000.00");
+	private static final BigDecimal LIMITE_DESCONTO_10 = new BigDecimal("500.00");
+	private static final BigDecimal FATOR_DESCONTO_20 = new BigDecimal("0.80");
+	private static final BigDecimal FATOR_DESCONTO_10 = new BigDecimal("0.90");
+	private static final BigDecimal LIMITE_FRETE_7 = new BigDecimal("50.00");
+	private static final BigDecimal LIMITE_FRETE_4 = new BigDecimal("10.00");
+	private static final BigDecimal LIMITE_FRETE_2 = new BigDecimal("5.00");
+	private static final BigDecimal TARIFA_FRETE_7 = new BigDecimal("7.00");
+	private static final BigDecimal TARIFA_FRETE_4 = new BigDecimal("4.00");
+	private static final BigDecimal TARIFA_FRETE_2 = new BigDecimal("2.00");
+	private static final BigDecimal TAXA_FRAGIL = new BigDecimal("5.00");
+
+	private MotorPrecificacao()
+	{
+	}
+
+	/**
+	 * Calcula o custo total dos itens. A lista deve ser não vazia; a validação
+	 * fica a cargo do chamador.
+	 */
+	public static BigDecimal calcular(List<ItemCompra> itens)
+	{
+		return calcular(itens, null);
+	}
+
+	/**
+	 * Como {@link #calcular(List)}, mas lendo preço, peso e fragilidade do
+	 * catálogo quando o produto estiver nele; da entidade usa-se só o id. Produtos
+	 * fora do catálogo são lidos da entidade.
+	 */
+	public static BigDecimal calcular(List<ItemCompra> itens, CatalogoPrecificacao catalogo)
+	{
+		CatalogoPrecificacao.Indice indice = catalogo == null ? null : catalogo.indice();
+
+		long subtotalCentavos = 0;
+		long pesoGramas = 0;
+		long unidadesFrageis = 0;
+
+		try
+		{
+			for (ItemCompra item : itens)
+			{
+				Produto produto = item.getProduto();
+				long quantidade = item.getQuantidade();
+
+				long precoCentavos;
+				long pesoUnitarioGramas;
+				boolean fragil;
+
+				Long produtoId = indice == null ? null : produto.getId();
+				int posicao = produtoId == null ? -1 : indice.posicao(produtoId);
+
+				if (posicao >= 0)
+				{
+					precoCentavos = indice.precoCentavos(posicao);
+					pesoUnitarioGramas = indice.pesoGramas(posicao);
+					fragil = indice.fragil(posicao);
+				}
+				else
+				{
+					precoCentavos = paraPontoFixo(produto.getPreco(), ESCALA_PRECO);
+					pesoUnitarioGramas = paraPontoFixo(produto.getPesoFisico(), ESCALA_PESO);
+					fragil = Boolean.TRUE.equals(produto.isFragil());
+				}
+
+				subtotalCentavos = Math.addExact(subtotalCentavos, Math.multiplyExact(precoCentavos, quantidade));
+				pesoGramas = Math.addExact(pesoGramas, Math.multiplyExact(pesoUnitarioGramas, quantidade));
+
+				if (fragil)
+				{
+					unidadesFrageis = Math.addExact(unidadesFrageis, quantidade);
+				}
+			}
+
+			return calcular(subtotalCentavos, pesoGramas, unidadesFrageis);
+		}
+		catch (ArithmeticException e)
+		{
+			return calcularComBigDecimal(itens);
+		}
+	}
+
+	/**
+	 * Aplica as faixas de desconto e frete sobre totais já agregados.
+	 *
+	 * @throws ArithmeticException se o total não couber em {@code long}
+	 */
+	public static BigDecimal calcular(long subtotalCentavos, long pesoGramas, long unidadesFrageis)
+	{
+		long percentualDesconto = 0;
+		if (subtotalCentavos >= DESCONTO_20_A_PARTIR_DE)
+		{
+			percentualDesconto = 20;
+		}
+		else if (subtotalCentavos >= DESCONTO_10_A_PARTIR_DE)
+		{
+			percentualDesconto = 10;
+		}
+
+		long tarifaFretePorKg = 0;
+		if (pesoGramas > FRETE_7_ACIMA_DE)
+		{
+			tarifaFretePorKg = 7;
+		}
+		else if (pesoGramas > FRETE_4_ACIMA_DE)
+		{
+			tarifaFretePorKg = 4;
+		}
+		else if (pesoGramas > FRETE_2_ACIMA_DE)
+		{
+			tarifaFretePorKg = 2;
+		}
+
+		// Tudo na escala 4 (centésimos de centavo), onde o desconto
+		// percentual sobre centavos e a tarifa por grama são exatos.
+		long subtotalComDesconto = Math.multiplyExact(subtotalCentavos, 100 - percentualDesconto);
+		long frete = Math.multiplyExact(Math.multiplyExact(pesoGramas, tarifaFretePorKg), 10);
+		long taxaFrageis = Math.multiplyExact(Math.multiplyExact(unidadesFrageis, TAXA_FRAGIL_CENTAVOS), 100);
+
+		long total = Math.addExact(Math.addExact(subtotalComDesconto, frete), taxaFrageis);
+
+		return BigDecimal.valueOf(arredondarParaCentavos(total), ESCALA_PRECO);
+	}
+
+	/**
+	 * Converte para inteiro na escala informada (centavos, gramas).
+	 *
+	 * @throws ArithmeticException se houver casas decimais além da escala ou
+	 *                             estouro de {@code long}
+	 */
+	static long paraPontoFixo(BigDecimal valor, int escala)
+	{
+		return valor.movePointRight(escala).longValueExact();
+	}
+
+	/** HALF_UP de escala 4 para escala 2, simétrico em torno de zero. */
+	private static long arredondarParaCentavos(long valorEscala4)
+	{
+		long centavos = valorEscala4 / 100;
+		long resto = valorEscala4 % 100;
+
+		if (Math.abs(resto) >= 50)
+		{
+			centavos += Long.signum(valorEscala4);
+		}
+
+		return centavos;
+	}
+
+	/** Cálculo exato para valores fora das escalas do ponto fixo. */
+	static BigDecimal calcularComBigDecimal(List<ItemCompra> itens)
+	{
+		BigDecimal subtotal = BigDecimal.ZERO;
+		BigDecimal pesoTotal = BigDecimal.ZERO;
+		BigDecimal taxaFrageis = BigDecimal.ZERO;
+
+		for (ItemCompra item : itens)
+		{
+			Produto produto = item.getProduto();
+			BigDecimal quantidade = BigDecimal.valueOf(item.getQuantidade());
+
+			subtotal = subtotal.add(produto.getPreco().multiply(quantidade));
+			pesoTotal = pesoTotal.add(produto.getPesoFisico().multiply(quantidade));
+
+			if (Boolean.TRUE.equals(produto.isFragil()))
+			{
+				taxaFrageis = taxaFrageis.add(TAXA_FRAGIL.multiply(quantidade));
+			}
+		}
+
+		return aplicarFaixas(subtotal, pesoTotal, taxaFrageis);
+	}
+
+	private static BigDecimal aplicarFaixas(BigDecimal subtotal, BigDecimal pesoTotal, BigDecimal taxaFrageis)
+	{
+		BigDecimal subtotalComDesconto = subtotal;
+		if (subtotal.compareTo(LIMITE_DESCONTO_20) >= 0)
+		{
+			subtotalComDesconto = subtotal.multiply(FATOR_DESCONTO_20);
+		}
+		else if (subtotal.compareTo(LIMITE_DESCONTO_10) >= 0)
+		{
+			subtotalComDesconto = subtotal.multiply(FATOR_DESCONTO_10);
+		}
+
+		BigDecimal valorFrete = BigDecimal.ZERO;
+		if (pesoTotal.compareTo(LIMITE_FRETE_7) > 0)
+		{
+			valorFrete = pesoTotal.multiply(TARIFA_FRETE_7);
+		}
+		else if (pesoTotal.compareTo(LIMITE_FRETE_4) > 0)
+		{
+			valorFrete = pesoTotal.multiply(TARIFA_FRETE_4);
+		}
+		else if (pesoTotal.compareTo(LIMITE_FRETE_2) > 0)
+		{
+			valorFrete = pesoTotal.multiply(TARIFA_FRETE_2);
+		}
+
+		return subtotalComDesconto.add(valorFrete).add(taxaFrageis).setScale(ESCALA_PRECO, RoundingMode.HALF_UP);
+	}
+}
@@ -0,0 +1,146 @@
+package ecommerce.carga;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import ecommerce.carga.GeradorCarga.Configuracao;
+import ecommerce.carga.GeradorCarga.Modelo;
+import ecommerce.carga.GeradorCarga.Relatorio;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Carga sobre {@code POST /finalizar}, com estoque e pagamento simulados (sem
+ * rede além do próprio servidor). Só roda com {@code -Dcarga=true}:
+ *
+ * <pre>
+ * mvn test -Dtest=CargaFinalizarTest -Dcarga=true -Dcarga.modelo=ABERTO -Dcarga.taxa=500
+ * </pre>
+ *
+ * Parâmetros ({@code -Dcarga.*}): {@code clientes}, {@code produtos},
+ * {@code itens} (por carrinho), {@code modelo} ({@code ABERTO} ou
+ * {@code FECHADO}), {@code concorrencia}, {@code taxa} (requisições por
+ * segundo), {@code aquecimento} e {@code duracao} (ISO-8601). O relatório sai
+ * na saída padrão e em {@code target/carga/finalizar-<modelo>.hgrm}, que pode
+ * ser comparado entre versões no HdrHistogram Plotter.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "ecommerce.estoque.modo=simulado", "ecommerce.pagamento.modo=simulado" })
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class CargaFinalizarTest {
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhoRepository;
+
+    private final List<long[]> carrinhos = new ArrayList<>();
+
+    private static int inteiro(String nome, int padrao) {
+        return Integer.getInteger("carga." + nome, padrao);
+    }
+
+    private static String texto(String nome, String padrao) {
+        return System.getProperty("carga." + nome, padrao);
+    }
+
+    @BeforeEach
+    void popularBanco() {
+        carrinhoRepository.deleteAll();
+        int quantidadeClientes = inteiro("clientes", 200);
+        int quantidadeProdutos = inteiro("produtos", 500);
+        int itensPorCarrinho = inteiro("itens", 5);
+
+        List<Produto> produtos = new ArrayList<>();
+        for (int i = 0; i < quantidadeProdutos; i++) {
+            produtos.add(new Produto(null, "Produto " + i, null, BigDecimal.valueOf(10 + i % 90),
+                    BigDecimal.valueOf(1 + i % 10), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, i % 7 == 0,
+                    TipoProduto.values()[i % TipoProduto.values().length]));
+        }
+        produtos = produtoRepository.saveAll(produtos);
+
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        for (int i = 0; i < quantidadeClientes; i++) {
+            Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente " + i,
+                    Regiao.values()[i % Regiao.values().length], TipoCliente.values()[i % TipoCliente.values().length]));
+
+            List<ItemCompra> itens = new ArrayList<>();
+            for (int j = 0; j < itensPorCarrinho; j++) {
+                itens.add(new ItemCompra(null, produtos.get(aleatorio.nextInt(produtos.size())),
+                        1L + aleatorio.nextInt(3)));
+            }
+            CarrinhoDeCompras carrinho = carrinhoRepository
+                    .save(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+            carrinhos.add(new long[] { carrinho.getId(), cliente.getId() });
+        }
+    }
+
+    @Test
+    void testeCargaFinalizar() throws Exception {
+        Modelo modelo = Modelo.valueOf(texto("modelo", "ABERTO").toUpperCase(Locale.ROOT));
+        Configuracao configuracao = new Configuracao(modelo, inteiro("concorrencia", 32),
+                Double.parseDouble(texto("taxa", "500")), Duration.parse(texto("aquecimento", "PT5S")),
+                Duration.parse(texto("duracao", "PT30S")));
+
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + porta + "/finalizar";
+
+        Relatorio relatorio = GeradorCarga.executar(configuracao, () -> {
+            long[] carrinho = carrinhos.get(ThreadLocalRandom.current().nextInt(carrinhos.size()));
+            HttpRequest requisicao = HttpRequest
+                    .newBuilder(URI.create(base + "?carrinhoId=" + carrinho[0] + "&clienteId=" + carrinho[1]))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build();
+            return cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        });
+
+        relatorio.imprimir(System.out);
+        gravar(relatorio, modelo);
+
+        assertTrue(relatorio.requisicoes() > 0);
+    }
+
+    private static void gravar(Relatorio relatorio, Modelo modelo) throws IOException {
+        Path arquivo = Path.of("target", "carga", "finalizar-" + modelo.name().toLowerCase(Locale.ROOT) + ".hgrm");
+        Files.createDirectories(arquivo.getParent());
+        try (PrintStream saida = new PrintStream(Files.newOutputStream(arquivo))) {
+            relatorio.latencias().outputPercentileDistribution(saida, 1e6);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ecommerce.carga;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Gerador de carga com latências em HdrHistogram.
+ *
+ * <p>
+ * No modelo {@link Modelo#ABERTO}, as requisições chegam a uma taxa fixa,
+ * divididas entre {@code concorrencia} threads. Cada uma tem um horário
+ * previsto de saída, e a latência é contada a partir desse horário, não de
+ * quando a requisição saiu de fato. Assim, uma requisição lenta não esconde a
+ * fila que se formou atrás dela (omissão coordenada).
+ *
+ * <p>
+ * No modelo {@link Modelo#FECHADO}, cada thread envia a próxima requisição
+ * assim que recebe a resposta da anterior. Com {@code taxaPorSegundo} maior
+ * que zero, as threads seguem esse ritmo, e a latência é registrada com
+ * {@link Histogram#recordValueWithExpectedInterval}, que repõe as amostras
+ * que deixaram de ser enviadas durante as respostas lentas. Sem taxa, o
+ * histograma mede só o tempo de serviço.
+ *
+ * <p>
+ * As requisições feitas durante o aquecimento não entram no relatório.
+ */
+final class GeradorCarga {
+
+    enum Modelo {
+        ABERTO, FECHADO
+    }
+
+    record Configuracao(Modelo modelo, int concorrencia, double taxaPorSegundo, Duration aquecimento,
+            Duration duracao) {
+
+        Configuracao {
+            if (concorrencia < 1) {
+                throw new IllegalArgumentException("Concorrência deve ser positiva");
+            }
+            if (modelo == Modelo.ABERTO && taxaPorSegundo <= 0) {
+                throw new IllegalArgumentException("O modelo aberto precisa de uma taxa de chegada");
+            }
+        }
+
+        /** Intervalo entre as requisições de uma mesma thread, ou 0 sem ritmo. */
+        long intervaloPorThreadNanos() {
+            return taxaPorSegundo <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) * concorrencia / taxaPorSegundo);
+        }
+    }
+
+    record Relatorio(Configuracao configuracao, long requisicoes, long falhas, Duration duracao,
+            Histogram latencias) {
+
+        double vazao() {
+            return requisicoes / (duracao.toNanos() / 1e9);
+        }
+
+        double percentilMs(double percentil) {
+            return latencias.getValueAtPercentile(percentil) / 1e6;
+        }
+
+        void imprimir(PrintStream saida) {
+            saida.printf("Modelo %s, %d threads, taxa %.0f/s%n", configuracao.modelo(), configuracao.concorrencia(),
+                    configuracao.taxaPorSegundo());
+            saida.printf("Requisições: %d (%d falhas) em %.1f s, vazão %.1f/s%n", requisicoes, falhas,
+                    duracao.toNanos() / 1e9, vazao());
+            saida.printf("Latência (ms): p50 %.3f  p90 %.3f  p99 %.3f  p999 %.3f  máx %.3f%n", percentilMs(50),
+                    percentilMs(90), percentilMs(99), percentilMs(99.9), latencias.getMaxValue() / 1e6);
+            latencias.outputPercentileDistribution(saida, 1e6);
+        }
+    }
+
+    private GeradorCarga() {
+    }
+
+    /**
+     * Executa {@code requisicao} segundo a configuração. A requisição devolve
+     * {@code false} (ou lança exceção) quando falha; as falhas também entram no
+     * histograma.
+     */
+    static Relatorio executar(Configuracao configuracao, Callable<Boolean> requisicao) throws InterruptedException {
+        int threads = configuracao.concorrencia();
+        long intervalo = configuracao.intervaloPorThreadNanos();
+        long inicio = System.nanoTime();
+        long inicioMedicao = inicio + configuracao.aquecimento().toNanos();
+        long fim = inicioMedicao + configuracao.duracao().toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Parcial>> parciais = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            // As threads saem defasadas, para que as chegadas fiquem espalhadas
+            long primeiraSaida = inicio + intervalo * i / threads;
+            parciais.add(executor.submit(() -> executarThread(configuracao, requisicao, primeiraSaida,
+                    inicioMedicao, fim, intervalo)));
+        }
+        executor.shutdown();
+
+        Histogram latencias = novoHistograma();
+        long requisicoes = 0;
+        long falhas = 0;
+        for (Future<Parcial> futuro : parciais) {
+            try {
+                Parcial parcial = futuro.get();
+                latencias.add(parcial.latencias());
+                requisicoes += parcial.requisicoes();
+                falhas += parcial.falhas();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha no gerador de carga", e.getCause());
+            }
+        }
+        return new Relatorio(configuracao, requisicoes, falhas, configuracao.duracao(), latencias);
+    }
+
+    private static Parcial executarThread(Configuracao configuracao, Callable<Boolean> requisicao, long primeiraSaida,
+            long inicioMedicao, long fim, long intervalo) {
+        Histogram latencias = novoHistograma();
+        long requisicoes = 0;
+        long falhas = 0;
+        boolean aberto = configuracao.modelo() == Modelo.ABERTO;
+
+        long previsto = primeiraSaida;
+        while (true) {
+            long agora = System.nanoTime();
+            if (intervalo > 0 && previsto > agora) {
+                LockSupport.parkNanos(previsto - agora);
+                agora = System.nanoTime();
+            }
+            if (agora >= fim || (aberto && previsto >= fim)) {
+                break;
+            }
+
+            // No modelo aberto o relógio corre desde o horário previsto, mesmo atrasado
+            long saida = aberto ? previsto : agora;
+            boolean sucesso;
+            try {
+                sucesso = requisicao.call();
+            } catch (Exception e) {
+                sucesso = false;
+            }
+            long latencia = System.nanoTime() - saida;
+
+            if (saida >= inicioMedicao) {
+                requisicoes++;
+                if (!sucesso) {
+                    falhas++;
+                }
+                if (aberto || intervalo == 0) {
+                    latencias.recordValue(latencia);
+                } else {
+                    latencias.recordValueWithExpectedInterval(latencia, intervalo);
+                }
+            }
+
+            // No modelo fechado, a próxima sai um intervalo depois do início desta (ou logo, sem ritmo)
+            previsto = aberto ? previsto + intervalo : saida + intervalo;
+        }
+        return new Parcial(latencias, requisicoes, falhas);
+    }
+
+    private static Histogram novoHistograma() {
+        // Em nanossegundos, com redimensionamento automático e 3 dígitos significativos
+        return new Histogram(3);
+    }
+
+    private record Parcial(Histogram latencias, long requisicoes, long falhas) {
+    }
+}
@@ -0,0 +1,83 @@
+package ecommerce.carga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.carga.GeradorCarga.Configuracao;
+import ecommerce.carga.GeradorCarga.Modelo;
+import ecommerce.carga.GeradorCarga.Relatorio;
+
+class GeradorCargaTest {
+
+    private static final long CEM_MS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** Responde na hora, exceto uma vez, que trava por 400 ms depois de 200 ms de carga. */
+    private static Callable<Boolean> comUmaPausa() {
+        long inicio = System.nanoTime();
+        AtomicBoolean pausou = new AtomicBoolean();
+        return () -> {
+            if (System.nanoTime() - inicio > TimeUnit.MILLISECONDS.toNanos(200) && pausou.compareAndSet(false, true)) {
+                Thread.sleep(400);
+            }
+            return true;
+        };
+    }
+
+    @Test
+    void testeModeloAbertoContaAFilaAtrasDaPausa() throws Exception {
+        Configuracao configuracao = new Configuracao(Modelo.ABERTO, 1, 200, Duration.ZERO, Duration.ofSeconds(1));
+
+        Relatorio relatorio = GeradorCarga.executar(configuracao, comUmaPausa());
+
+        // As requisições previstas para durante a pausa esperam por ela e entram como lentas
+        long lentas = relatorio.latencias().getCountBetweenValues(CEM_MS, Long.MAX_VALUE);
+        assertTrue(lentas > 20, "Requisições acima de 100 ms: " + lentas);
+        assertEquals(0, relatorio.falhas());
+    }
+
+    @Test
+    void testeModeloFechadoSemRitmoMedeSoOTempoDeServico() throws Exception {
+        Configuracao configuracao = new Configuracao(Modelo.FECHADO, 1, 0, Duration.ZERO, Duration.ofSeconds(1));
+
+        Relatorio relatorio = GeradorCarga.executar(configuracao, comUmaPausa());
+
+        assertEquals(1, relatorio.latencias().getCountBetweenValues(CEM_MS, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testeModeloFechadoComRitmoRepoeAsAmostrasPerdidas() throws Exception {
+        Configuracao configuracao = new Configuracao(Modelo.FECHADO, 1, 200, Duration.ZERO, Duration.ofSeconds(1));
+
+        Relatorio relatorio = GeradorCarga.executar(configuracao, comUmaPausa());
+
+        long lentas = relatorio.latencias().getCountBetweenValues(CEM_MS, Long.MAX_VALUE);
+        assertTrue(lentas > 20, "Requisições acima de 100 ms: " + lentas);
+    }
+
+    @Test
+    void testeFalhasEntramNoRelatorio() throws Exception {
+        Configuracao configuracao = new Configuracao(Modelo.ABERTO, 2, 100, Duration.ZERO, Duration.ofMillis(300));
+
+        Relatorio relatorio = GeradorCarga.executar(configuracao, () -> {
+            throw new IllegalStateException("Serviço indisponível");
+        });
+
+        assertTrue(relatorio.requisicoes() > 0);
+        assertEquals(relatorio.requisicoes(), relatorio.falhas());
+        assertEquals(relatorio.requisicoes(), relatorio.latencias().getTotalCount());
+    }
+
+    @Test
+    void testeModeloAbertoExigeTaxa() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Configuracao(Modelo.ABERTO, 4, 0, Duration.ZERO, Duration.ofSeconds(1)));
+    }
+}
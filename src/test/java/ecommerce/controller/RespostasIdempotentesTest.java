@@ -0,0 +1,162 @@
+package ecommerce.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import ecommerce.dto.CompraDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RespostasIdempotentesTest {
+
+    private SimpleMeterRegistry registry;
+    private RespostasIdempotentes respostas;
+    private AtomicInteger execucoes;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        respostas = new RespostasIdempotentes(registry, 1_000, Duration.ofHours(1), Duration.ofMillis(300));
+        execucoes = new AtomicInteger();
+    }
+
+    private Supplier<ResponseEntity<CompraDTO>> responder(HttpStatus status) {
+        return () -> {
+            int execucao = execucoes.incrementAndGet();
+            return ResponseEntity.status(status)
+                    .body(new CompraDTO(status.is2xxSuccessful(), (long) execucao, "Execução " + execucao));
+        };
+    }
+
+    @Test
+    void testeRepeticaoRecebeARespostaOriginal() {
+        ResponseEntity<CompraDTO> primeira = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        assertSame(primeira, repeticao);
+        assertEquals(1, execucoes.get());
+        assertEquals(1.0, registry.get("compra.idempotencia.repeticoes").counter().count());
+    }
+
+    @Test
+    void testeRepeticaoDuranteAExecucaoEsperaPelaPrimeira() throws Exception {
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Supplier<ResponseEntity<CompraDTO>> lenta = () -> {
+            emExecucao.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return responder(HttpStatus.OK).get();
+        };
+        CompletableFuture<ResponseEntity<CompraDTO>> primeira = CompletableFuture
+                .supplyAsync(() -> respostas.executar(1L, "abc", 10L, lenta));
+        emExecucao.await(5, TimeUnit.SECONDS);
+
+        CompletableFuture<ResponseEntity<CompraDTO>> repeticao = CompletableFuture
+                .supplyAsync(() -> respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK)));
+        liberar.countDown();
+
+        assertSame(primeira.get(5, TimeUnit.SECONDS), repeticao.get(5, TimeUnit.SECONDS));
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeMesmaChaveComOutroCarrinhoEhRejeitada() {
+        respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        ResponseEntity<CompraDTO> outra = respostas.executar(1L, "abc", 11L, responder(HttpStatus.OK));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, outra.getStatusCode());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeChaveValePorCliente() {
+        respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+        respostas.executar(2L, "abc", 10L, responder(HttpStatus.OK));
+
+        assertEquals(2, execucoes.get());
+    }
+
+    @Test
+    void testeRecusaFicaGuardada() {
+        ResponseEntity<CompraDTO> recusa = respostas.executar(1L, "abc", 10L, responder(HttpStatus.CONFLICT));
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        assertSame(recusa, repeticao);
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeErroDeixaAChaveEmEstadoDesconhecido() {
+        ResponseEntity<CompraDTO> erro = respostas.executar(1L, "abc", 10L,
+                responder(HttpStatus.INTERNAL_SERVER_ERROR));
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        // O pagamento pode ter sido autorizado: a compra não é executada de novo
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, erro.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, repeticao.getStatusCode());
+        assertEquals("Compra com a mesma chave terminou em estado desconhecido.", repeticao.getBody().mensagem());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeExcecaoDeixaAChaveEmEstadoDesconhecido() {
+        assertThrows(IllegalStateException.class, () -> respostas.executar(1L, "abc", 10L, () -> {
+            execucoes.incrementAndGet();
+            throw new IllegalStateException("Falha inesperada");
+        }));
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        assertEquals(HttpStatus.CONFLICT, repeticao.getStatusCode());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeRequisicaoInvalidaFicaGuardada() {
+        respostas.executar(1L, "abc", 10L, responder(HttpStatus.BAD_REQUEST));
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+
+        assertEquals(HttpStatus.BAD_REQUEST, repeticao.getStatusCode());
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    void testeEsperaLimitadaRespondeConflito() throws Exception {
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<CompraDTO>> primeira = CompletableFuture
+                .supplyAsync(() -> respostas.executar(1L, "abc", 10L, () -> {
+                    emExecucao.countDown();
+                    try {
+                        liberar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return responder(HttpStatus.OK).get();
+                }));
+        emExecucao.await(5, TimeUnit.SECONDS);
+
+        ResponseEntity<CompraDTO> repeticao = respostas.executar(1L, "abc", 10L, responder(HttpStatus.OK));
+        liberar.countDown();
+
+        assertEquals(HttpStatus.CONFLICT, repeticao.getStatusCode());
+        assertEquals(HttpStatus.OK, primeira.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(1, execucoes.get());
+    }
+}
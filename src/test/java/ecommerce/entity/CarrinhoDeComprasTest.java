@@ -0,0 +1,90 @@
+package ecommerce.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.service.CompraService;
+import ecommerce.service.MotorPrecificacao;
+
+class CarrinhoDeComprasTest {
+
+    private CarrinhoDeCompras carrinho;
+    private CompraService compraService;
+
+    @BeforeEach
+    void setUp() {
+        carrinho = new CarrinhoDeCompras();
+        compraService = new CompraService(null, null, null, null);
+    }
+
+    private ItemCompra criarItem(String preco, String peso, Long quantidade, boolean fragil) {
+        Produto produto = new Produto();
+        produto.setPreco(new BigDecimal(preco));
+        produto.setPesoFisico(new BigDecimal(peso));
+        produto.setFragil(fragil);
+        return new ItemCompra(null, produto, quantidade);
+    }
+
+    @Test
+    void testeOperacoesAlteramItensEMarcamOCarrinho() {
+        ItemCompra livro = criarItem("300.00", "2.00", 2L, false);
+        ItemCompra vaso = criarItem("50.00", "3.50", 1L, true);
+
+        carrinho.adicionarItem(livro);
+        carrinho.adicionarItem(vaso);
+        assertTrue(carrinho.possuiAlteracoesPendentes());
+        assertEquals(2, carrinho.getItens().size());
+
+        carrinho.atualizarQuantidade(vaso, 3L);
+        assertEquals(3L, vaso.getQuantidade());
+
+        carrinho.removerItem(livro);
+        assertEquals(List.of(vaso), carrinho.getItens());
+        assertEquals(MotorPrecificacao.calcular(carrinho.getItens()), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeReajusteDepoisDeAdicionarValeNaCotacao() {
+        ItemCompra item = criarItem("300.00", "2.00", 2L, false);
+        carrinho.adicionarItem(item);
+        assertEquals(new BigDecimal("540.00"), compraService.calcularCustoTotal(carrinho));
+
+        // Preço, peso e fragilidade mudam depois que o item entrou no carrinho
+        item.getProduto().setPreco(new BigDecimal("200.00"));
+        item.getProduto().setPesoFisico(new BigDecimal("6.00"));
+        item.getProduto().setFragil(true);
+
+        // R$ 400,00 sem desconto + 12 kg a R$ 4,00/kg + 2 frágeis a R$ 5,00
+        assertEquals(new BigDecimal("458.00"), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeSetItensTrocaOsItens() {
+        carrinho.adicionarItem(criarItem("10.00", "1.00", 1L, false));
+
+        ArrayList<ItemCompra> itens = new ArrayList<>();
+        itens.add(criarItem("20.00", "1.00", 1L, false));
+        carrinho.setItens(itens);
+        assertEquals(new BigDecimal("20.00"), compraService.calcularCustoTotal(carrinho));
+
+        carrinho.adicionarItem(criarItem("5.00", "1.00", 3L, false));
+        assertEquals(new BigDecimal("35.00"), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeCarrinhoEsvaziadoEhInvalido() {
+        ItemCompra item = criarItem("10.00", "1.00", 1L, false);
+        carrinho.adicionarItem(item);
+        carrinho.removerItem(item);
+
+        assertThrows(IllegalArgumentException.class, () -> compraService.calcularCustoTotal(carrinho));
+    }
+}
@@ -0,0 +1,146 @@
+package ecommerce.external.agrupamento;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EstoqueAgrupadoTest {
+
+    private SimpleMeterRegistry registry;
+    private EstoqueContado memoria;
+    private EstoqueAgrupado estoque;
+    private ExecutorService compras;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        memoria = new EstoqueContado();
+        estoque = new EstoqueAgrupado(memoria, 100, Duration.ofMillis(50), 2, registry);
+        compras = Executors.newFixedThreadPool(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        compras.shutdownNow();
+        estoque.destroy();
+    }
+
+    /** Dispara as baixas ao mesmo tempo e devolve o resultado de cada uma, na ordem. */
+    private List<Boolean> baixarEmParalelo(List<long[][]> pedidos) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<ResultadoEstoqueDTO>> futuros = new ArrayList<>();
+        for (long[][] pedido : pedidos) {
+            futuros.add(compras.submit(() -> {
+                largada.await();
+                return estoque.confirmarLinhas(null, pedido[0], pedido[1]);
+            }));
+        }
+        largada.countDown();
+
+        List<Boolean> resultados = new ArrayList<>();
+        for (Future<ResultadoEstoqueDTO> futuro : futuros) {
+            resultados.add(futuro.get(10, TimeUnit.SECONDS).sucesso());
+        }
+        return resultados;
+    }
+
+    @Test
+    void testeBaixasConcorrentesNoMesmoProdutoViramPoucasChamadas() throws Exception {
+        memoria.definirSaldo(1L, 1_000L);
+        memoria.definirSaldo(2L, 1_000L);
+        List<long[][]> pedidos = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            pedidos.add(new long[][] { { 1L, 2L }, { 2L, 1L } });
+        }
+
+        List<Boolean> resultados = baixarEmParalelo(pedidos);
+
+        assertTrue(resultados.stream().allMatch(Boolean::booleanValue));
+        assertEquals(900L, memoria.saldo(1L));
+        assertEquals(950L, memoria.saldo(2L));
+        assertTrue(memoria.baixas.get() < 50, "Chamadas ao estoque: " + memoria.baixas.get());
+        assertEquals(50.0, registry.get("estoque.lote.tamanho").summary().totalAmount());
+    }
+
+    @Test
+    void testeFalhaDoLoteAtingeSoQuemFicouSemSaldo() throws Exception {
+        memoria.definirSaldo(1L, 5L);
+        memoria.definirSaldo(2L, 100L);
+        List<long[][]> pedidos = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pedidos.add(new long[][] { { 1L }, { 1L } });
+            pedidos.add(new long[][] { { 2L }, { 3L } });
+        }
+
+        List<Boolean> resultados = baixarEmParalelo(pedidos);
+
+        int produtoEscasso = 0;
+        for (int i = 0; i < resultados.size(); i++) {
+            if (i % 2 == 0) {
+                produtoEscasso += resultados.get(i) ? 1 : 0;
+            } else {
+                // Compras só do produto com saldo nunca falham por causa das outras
+                assertTrue(resultados.get(i));
+            }
+        }
+        assertEquals(5, produtoEscasso);
+        assertEquals(0L, memoria.saldo(1L));
+        assertEquals(70L, memoria.saldo(2L));
+    }
+
+    @Test
+    void testeConfirmacaoDeReservaNaoEhAgrupada() {
+        memoria.definirSaldo(1L, 10L);
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(1L), List.of(4L), Duration.ofMinutes(1));
+
+        assertTrue(estoque.confirmarReserva(reserva.reservaId(), List.of(1L), List.of(4L)).sucesso());
+
+        assertEquals(6L, memoria.saldo(1L));
+        assertEquals(0, memoria.baixas.get());
+    }
+
+    @Test
+    void testeDarBaixaPorListasPassaPeloAgrupamento() {
+        memoria.definirSaldo(1L, 10L);
+
+        assertTrue(estoque.darBaixa(List.of(1L, 1L), List.of(2L, 3L)).sucesso());
+
+        assertEquals(5L, memoria.saldo(1L));
+        assertEquals(1, memoria.baixas.get());
+        assertEquals(1L, registry.get("estoque.lote.tamanho").summary().count());
+    }
+
+    /** Estoque em memória que conta as baixas diretas recebidas. */
+    private static class EstoqueContado extends EstoqueEmMemoria {
+
+        final AtomicInteger baixas = new AtomicInteger();
+
+        EstoqueContado() {
+            super(0);
+        }
+
+        @Override
+        public ResultadoEstoqueDTO baixarLinhas(long[] produtosIds, long[] produtosQuantidades) {
+            baixas.incrementAndGet();
+            return super.baixarLinhas(produtosIds, produtosQuantidades);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ecommerce.external.agrupamento;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PagamentoAgrupadoTest {
+
+    private SimpleMeterRegistry registry;
+    private ProvedorEmLote provedor;
+    private PagamentoAgrupado pagamento;
+    private ExecutorService chamadores;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        provedor = new ProvedorEmLote();
+        chamadores = Executors.newFixedThreadPool(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chamadores.shutdownNow();
+        if (pagamento != null) {
+            pagamento.destroy();
+        }
+    }
+
+    private List<Future<PagamentoDTO>> autorizarEmParalelo(int quantidade) {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<PagamentoDTO>> resultados = new ArrayList<>();
+        for (long cliente = 1; cliente <= quantidade; cliente++) {
+            long clienteId = cliente;
+            resultados.add(chamadores.submit(() -> {
+                largada.await();
+                return pagamento.autorizarPagamento(clienteId, clienteId * 10.0);
+            }));
+        }
+        largada.countDown();
+        return resultados;
+    }
+
+    @Test
+    void testeChamadasConcorrentesSaoAgrupadasECadaUmRecebeASua() throws Exception {
+        pagamento = new PagamentoAgrupado(provedor, 20, Duration.ofMillis(100), 4, registry);
+
+        List<Future<PagamentoDTO>> resultados = autorizarEmParalelo(60);
+
+        for (int i = 0; i < resultados.size(); i++) {
+            // O provedor devolve o próprio cliente como transação
+            assertEquals(Long.valueOf(i + 1), resultados.get(i).get(10, TimeUnit.SECONDS).transacaoId());
+        }
+        assertTrue(provedor.lotes.get() < 60, "Lotes enviados: " + provedor.lotes.get());
+        assertTrue(provedor.maiorLote.get() <= 20);
+        assertEquals(provedor.lotes.get(), registry.get("pagamento.lote.tamanho").summary().count());
+        assertEquals(60.0, registry.get("pagamento.lote.tamanho").summary().totalAmount());
+        assertEquals(60, registry.get("pagamento.lote.espera").timer().count());
+    }
+
+    @Test
+    void testeChamadaIsoladaSaiAoFimDaJanela() {
+        pagamento = new PagamentoAgrupado(provedor, 20, Duration.ofMillis(20), 4, registry);
+
+        long inicio = System.nanoTime();
+        PagamentoDTO resultado = pagamento.autorizarPagamento(7L, 70.0);
+
+        assertEquals(7L, resultado.transacaoId());
+        assertEquals(1, provedor.lotes.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - inicio).toMillis() < 1000);
+    }
+
+    @Test
+    void testeFalhaDoLoteChegaATodosOsChamadores() throws Exception {
+        pagamento = new PagamentoAgrupado(provedor, 10, Duration.ofMillis(100), 4, registry);
+        provedor.falhando = true;
+
+        for (Future<PagamentoDTO> resultado : autorizarEmParalelo(10)) {
+            ExecutionException erro = assertThrows(ExecutionException.class,
+                    () -> resultado.get(10, TimeUnit.SECONDS));
+            assertEquals("Provedor fora do ar", erro.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void testeTempoLimiteLiberaOChamadorECancelaAAutorizacaoTardia() throws InterruptedException {
+        pagamento = new PagamentoAgrupado(provedor, 20, Duration.ofMillis(10), 4, Duration.ofMillis(200), registry);
+        provedor.liberacao = new CountDownLatch(1);
+
+        IllegalStateException erro = assertThrows(IllegalStateException.class,
+                () -> pagamento.autorizarPagamento(7L, 70.0));
+        assertEquals("Tempo limite da autorização de pagamento esgotado.", erro.getMessage());
+
+        provedor.liberacao.countDown();
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (provedor.cancelamentos.isEmpty() && System.nanoTime() < prazo) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of(7L), provedor.cancelamentos);
+    }
+
+    @Test
+    void testeEncerrarNaoDeixaChamadoresPresos() throws Exception {
+        // Um envio por vez e fila curta: com o provedor parado, o próprio coletor fica preso num lote
+        pagamento = new PagamentoAgrupado(provedor, 1, Duration.ZERO, 1, registry);
+        provedor.liberacao = new CountDownLatch(1);
+
+        List<Future<PagamentoDTO>> resultados = autorizarEmParalelo(10);
+        long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (provedor.lotes.get() < 2 && System.nanoTime() < prazo) {
+            Thread.sleep(10);
+        }
+
+        pagamento.destroy();
+        provedor.liberacao.countDown();
+
+        int encerrados = 0;
+        for (Future<PagamentoDTO> resultado : resultados) {
+            try {
+                assertTrue(resultado.get(5, TimeUnit.SECONDS).autorizado());
+            } catch (ExecutionException e) {
+                assertEquals("Serviço de pagamento encerrado.", e.getCause().getMessage());
+                encerrados++;
+            }
+        }
+        assertTrue(encerrados > 0);
+    }
+
+    @Test
+    void testeImplementacaoPadraoAutorizaUmAUm() {
+        AtomicInteger chamadas = new AtomicInteger();
+        IPagamentoExternal semLote = new IPagamentoExternal() {
+            @Override
+            public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+                chamadas.incrementAndGet();
+                return new PagamentoDTO(custoTotal < 100.0, clienteId);
+            }
+
+            @Override
+            public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+            }
+        };
+
+        List<PagamentoDTO> resultados = semLote.autorizarPagamentos(List.of(
+                new AutorizacaoPagamentoDTO(1L, 50.0, null), new AutorizacaoPagamentoDTO(2L, 150.0, "k")));
+
+        assertEquals(List.of(new PagamentoDTO(true, 1L), new PagamentoDTO(false, 2L)), resultados);
+        assertEquals(2, chamadas.get());
+    }
+
+    /** Provedor que só atende em lote e devolve o id do cliente como transação. */
+    private static class ProvedorEmLote implements IPagamentoExternal {
+
+        final AtomicInteger lotes = new AtomicInteger();
+        final AtomicInteger maiorLote = new AtomicInteger();
+        final List<Long> cancelamentos = new CopyOnWriteArrayList<>();
+        volatile boolean falhando;
+        /** Quando presente, cada lote só é respondido depois da liberação. */
+        volatile CountDownLatch liberacao;
+
+        @Override
+        public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+            throw new UnsupportedOperationException("Somente em lote");
+        }
+
+        @Override
+        public List<PagamentoDTO> autorizarPagamentos(List<AutorizacaoPagamentoDTO> autorizacoes) {
+            lotes.incrementAndGet();
+            maiorLote.accumulateAndGet(autorizacoes.size(), Math::max);
+            aguardarLiberacao();
+            if (falhando) {
+                throw new IllegalStateException("Provedor fora do ar");
+            }
+            List<PagamentoDTO> pagamentos = new ArrayList<>();
+            for (AutorizacaoPagamentoDTO autorizacao : autorizacoes) {
+                pagamentos.add(new PagamentoDTO(true, autorizacao.clienteId()));
+            }
+            return pagamentos;
+        }
+
+        @Override
+        public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+            cancelamentos.add(pagamentoTransacaoId);
+        }
+
+        /** Ignora interrupções, como um cliente HTTP bloqueado no socket. */
+        private void aguardarLiberacao() {
+            CountDownLatch latch = liberacao;
+            while (latch != null) {
+                try {
+                    latch.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // Segue esperando
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package ecommerce.external.fake;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.fake.PerfilSimulacao.Distribuicao;
+
+class SimuladorTest {
+
+    private static PerfilSimulacao latencia(Distribuicao distribuicao, long ms, long maximaMs, double sigma,
+            double cauda) {
+        return new PerfilSimulacao(distribuicao, Duration.ofMillis(ms), Duration.ofMillis(maximaMs), sigma, cauda, 0,
+                0, null, 0);
+    }
+
+    private static PerfilSimulacao taxas(double falhas, double recusa) {
+        return new PerfilSimulacao(null, null, null, 0, 0, falhas, 0, null, recusa);
+    }
+
+    @Test
+    void testeSemPerfilRespondeNaHoraComSucesso() {
+        EstoqueSimulado estoque = new EstoqueSimulado();
+
+        ResultadoEstoqueDTO reserva = estoque.reservarLinhas(new long[] { 1L, 2L }, new long[] { 1L, 1L },
+                Duration.ofMinutes(1));
+
+        assertTrue(reserva.sucesso());
+        assertTrue(new PagamentoSimulado().autorizarPagamento(1L, 100L).autorizado());
+    }
+
+    @Test
+    void testeDistribuicoesFicamDentroDosLimites() {
+        Random aleatorio = new Random(42);
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+
+        assertEquals(20 * ms, latencia(Distribuicao.FIXA, 20, 0, 0, 0).sortearLatenciaNanos(aleatorio));
+
+        PerfilSimulacao uniforme = latencia(Distribuicao.UNIFORME, 10, 30, 0, 0);
+        PerfilSimulacao logNormal = latencia(Distribuicao.LOG_NORMAL, 10, 200, 1.0, 0);
+        for (int i = 0; i < 1_000; i++) {
+            long sorteada = uniforme.sortearLatenciaNanos(aleatorio);
+            assertTrue(sorteada >= 10 * ms && sorteada <= 30 * ms, "Uniforme: " + sorteada);
+            assertTrue(logNormal.sortearLatenciaNanos(aleatorio) <= 200 * ms);
+        }
+    }
+
+    @Test
+    void testeBimodalSorteiaACaudaNaProporcaoPedida() {
+        Random aleatorio = new Random(42);
+        PerfilSimulacao bimodal = latencia(Distribuicao.BIMODAL, 5, 500, 0, 0.1);
+
+        int cauda = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (bimodal.sortearLatenciaNanos(aleatorio) == TimeUnit.MILLISECONDS.toNanos(500)) {
+                cauda++;
+            }
+        }
+
+        assertTrue(cauda > 800 && cauda < 1_200, "Sorteios na cauda: " + cauda);
+    }
+
+    @Test
+    void testeLatenciaFixaAtrasaAResposta() {
+        Simulador simulador = new Simulador(Map.of("pagamento.autorizar", latencia(Distribuicao.FIXA, 50, 0, 0, 0)));
+        PagamentoSimulado pagamento = new PagamentoSimulado(simulador);
+
+        long inicio = System.nanoTime();
+        assertTrue(pagamento.autorizarPagamento(1L, 10.0).autorizado());
+
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void testeFalhasERecusas() {
+        Simulador simulador = new Simulador(Map.of("pagamento.autorizar", taxas(1.0, 0), "estoque.reservar",
+                taxas(0, 1.0)));
+
+        assertThrows(IllegalStateException.class, () -> new PagamentoSimulado(simulador).autorizarPagamento(1L, 10.0));
+
+        EstoqueSimulado estoque = new EstoqueSimulado(simulador);
+        ResultadoEstoqueDTO reserva = estoque.reservarLinhas(new long[] { 1L, 2L }, new long[] { 1L, 1L },
+                Duration.ofMinutes(1));
+        assertFalse(reserva.sucesso());
+        assertEquals(1, reserva.linhasIndisponiveis().cardinality());
+        assertEquals(1, estoque.reservar(List.of(1L, 2L), List.of(1L, 1L), Duration.ofMinutes(1))
+                .idsProdutosIndisponiveis().size());
+    }
+
+    @Test
+    void testeTempoEsgotadoEsperaOLimiteEFalha() {
+        Simulador simulador = new Simulador(Map.of("estoque.confirmar",
+                new PerfilSimulacao(null, null, null, 0, 0, 0, 1.0, Duration.ofMillis(30), 0)));
+        EstoqueSimulado estoque = new EstoqueSimulado(simulador);
+
+        long inicio = System.nanoTime();
+        assertThrows(IllegalStateException.class,
+                () -> estoque.confirmarLinhas(null, new long[] { 1L }, new long[] { 1L }));
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    void testePerfisVemDasPropriedades() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("ecommerce.simulador.estoque.reservar.distribuicao", "UNIFORME")
+                .withProperty("ecommerce.simulador.estoque.reservar.latencia", "10ms")
+                .withProperty("ecommerce.simulador.estoque.reservar.latencia-maxima", "PT0.03S")
+                .withProperty("ecommerce.simulador.pagamento.autorizar.taxa-recusa", "0.25");
+
+        Simulador simulador = new Simulador(environment);
+
+        PerfilSimulacao reserva = simulador.perfil("estoque.reservar");
+        assertEquals(Distribuicao.UNIFORME, reserva.distribuicao());
+        assertEquals(Duration.ofMillis(30), reserva.latenciaMaxima());
+        assertEquals(0.25, simulador.perfil("pagamento.autorizar").taxaRecusa());
+        assertEquals(2, simulador.perfis().size());
+    }
+
+    @Test
+    void testeEndpointAlteraSoOsCamposEnviados() {
+        Simulador simulador = new Simulador(Map.of("pagamento.autorizar", latencia(Distribuicao.FIXA, 20, 0, 0, 0)));
+        EndpointSimulador endpoint = new EndpointSimulador(simulador);
+
+        endpoint.alterar("pagamento.autorizar", null, null, null, null, null, 0.5, null, null, null);
+
+        PerfilSimulacao perfil = simulador.perfil("pagamento.autorizar");
+        assertEquals(Distribuicao.FIXA, perfil.distribuicao());
+        assertEquals(Duration.ofMillis(20), perfil.latencia());
+        assertEquals(0.5, perfil.taxaFalhas());
+
+        endpoint.remover("pagamento.autorizar");
+        assertEquals(PerfilSimulacao.NENHUM, simulador.perfil("pagamento.autorizar"));
+        assertThrows(IllegalArgumentException.class,
+                () -> endpoint.alterar("estoque.inexistente", null, null, null, null, null, 0.5, null, null, null));
+    }
+}
@@ -0,0 +1,129 @@
+package ecommerce.external.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import feign.RetryableException;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("http")
+class ClientesHttpTest {
+
+    private static final ServidorStub STUB = ServidorStub.iniciar(0);
+
+    @DynamicPropertySource
+    static void apontarParaOStub(DynamicPropertyRegistry registry) {
+        registry.add("ecommerce.estoque.http.url", STUB::url);
+        registry.add("ecommerce.pagamento.http.url", STUB::url);
+        registry.add("spring.cloud.openfeign.client.config.pagamento.read-timeout", () -> 300);
+        // Aqui interessa o cliente Feign em si, sem hedge nem agrupamento por cima
+        registry.add("ecommerce.pagamento.resiliencia.habilitada", () -> false);
+        registry.add("ecommerce.pagamento.agrupamento.habilitado", () -> false);
+    }
+
+    @AfterAll
+    static void pararStub() {
+        STUB.close();
+    }
+
+    @Autowired
+    private IEstoqueExternal estoque;
+
+    @Autowired
+    private IPagamentoExternal pagamento;
+
+    @BeforeEach
+    void setUp() {
+        STUB.latencia(Duration.ZERO);
+        STUB.zerarConexoes();
+        STUB.estoque().definirSaldo(10L, 5L);
+    }
+
+    @Test
+    void testePerfilHttpUsaOsClientesFeign() {
+        assertInstanceOf(EstoqueHttp.class, estoque);
+        assertInstanceOf(PagamentoHttp.class, pagamento);
+    }
+
+    @Test
+    void testeReservaConfirmacaoEPagamento() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(10L), List.of(2L), Duration.ofMinutes(1));
+        assertTrue(reserva.reservado());
+        assertNotNull(reserva.reservaId());
+        assertEquals(3L, STUB.estoque().saldo(10L));
+
+        PagamentoDTO autorizacao = pagamento.autorizarPagamento(1L, 20.0);
+        assertTrue(autorizacao.autorizado());
+
+        assertTrue(estoque.confirmarReserva(reserva.reservaId(), List.of(10L), List.of(2L)).sucesso());
+        pagamento.cancelarPagamento(1L, autorizacao.transacaoId());
+
+        assertEquals(3L, STUB.estoque().saldo(10L));
+        assertTrue(STUB.cancelamentos().contains(autorizacao.transacaoId()));
+    }
+
+    @Test
+    void testeIndisponiveisChegamPeloHttp() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(10L, 20L), List.of(1L, 1L), Duration.ofMinutes(1));
+
+        assertEquals(List.of(20L), reserva.idsProdutosIndisponiveis());
+        assertEquals(5L, STUB.estoque().saldo(10L));
+    }
+
+    @Test
+    void testeLoteDeAutorizacoesRespeitaAChave() {
+        long lotes = STUB.lotes();
+
+        List<PagamentoDTO> pagamentos = pagamento.autorizarPagamentos(List.of(
+                new AutorizacaoPagamentoDTO(1L, 10.0, "lote-a"), new AutorizacaoPagamentoDTO(2L, 20.0, "lote-b"),
+                new AutorizacaoPagamentoDTO(1L, 10.0, "lote-a")));
+
+        assertEquals(3, pagamentos.size());
+        assertEquals(pagamentos.get(0), pagamentos.get(2));
+        assertNotEquals(pagamentos.get(0).transacaoId(), pagamentos.get(1).transacaoId());
+        assertEquals(lotes + 1, STUB.lotes());
+    }
+
+    @Test
+    void testeConexoesSaoReaproveitadas() {
+        for (int i = 0; i < 50; i++) {
+            estoque.verificarDisponibilidade(List.of(10L), List.of(1L));
+            pagamento.autorizarPagamento(1L, 10.0);
+        }
+
+        // Chamadas sequenciais para o mesmo host usam sempre a mesma conexão do pool
+        assertEquals(1, STUB.conexoes());
+    }
+
+    @Test
+    void testePagamentoLentoEstouraOTempoLimite() {
+        STUB.latencia(Duration.ofSeconds(2));
+
+        long inicio = System.nanoTime();
+        assertThrows(RetryableException.class, () -> pagamento.autorizarPagamento(1L, 10.0));
+        long decorridoMs = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+
+        assertTrue(decorridoMs < 1_500, "esperou " + decorridoMs + " ms");
+    }
+}
@@ -0,0 +1,190 @@
+package ecommerce.external.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import ecommerce.dto.AutorizacaoPagamentoDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+
+/**
+ * Servidor HTTP local que atende as APIs de {@link EstoqueClient} e
+ * {@link PagamentoClient}, para testes e benchmarks. O estoque é um
+ * {@link EstoqueEmMemoria}; o pagamento autoriza tudo, também em lote, e respeita a
+ * chave de idempotência. Uma latência fixa pode
+ * ser injetada em todas as respostas, e as conexões TCP atendidas são
+ * contadas para conferir o reaproveitamento pelo pool.
+ */
+public class ServidorStub implements AutoCloseable {
+
+    private static final Object NAO_ENCONTRADO = new Object();
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final ObjectMapper json = new ObjectMapper();
+
+    private final EstoqueEmMemoria estoque;
+    private final AtomicLong transacoes = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final Map<String, PagamentoDTO> autorizacoesPorChave = new ConcurrentHashMap<>();
+    private final Set<Long> cancelamentos = ConcurrentHashMap.newKeySet();
+    private final Set<InetSocketAddress> conexoes = ConcurrentHashMap.newKeySet();
+    private volatile Duration latencia = Duration.ZERO;
+
+    private ServidorStub(long saldoInicial) throws IOException {
+        this.estoque = new EstoqueEmMemoria(saldoInicial);
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newFixedThreadPool(32);
+        servidor.setExecutor(executor);
+        servidor.createContext("/", this::atender);
+        servidor.start();
+    }
+
+    /** Sobe o servidor numa porta livre; produtos sem saldo definido começam com {@code saldoInicial}. */
+    public static ServidorStub iniciar(long saldoInicial) {
+        try {
+            return new ServidorStub(saldoInicial);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String url() {
+        return "http://" + servidor.getAddress().getHostString() + ":" + servidor.getAddress().getPort();
+    }
+
+    public void latencia(Duration latencia) {
+        this.latencia = latencia;
+    }
+
+    public EstoqueEmMemoria estoque() {
+        return estoque;
+    }
+
+    /** Autorizações efetivamente criadas (chamadas repetidas com a mesma chave contam uma vez). */
+    public long autorizacoes() {
+        return transacoes.get();
+    }
+
+    /** Chamadas recebidas na rota de autorização em lote. */
+    public long lotes() {
+        return lotes.get();
+    }
+
+    public Set<Long> cancelamentos() {
+        return cancelamentos;
+    }
+
+    /** Conexões TCP distintas desde a última chamada a {@link #zerarConexoes()}. */
+    public int conexoes() {
+        return conexoes.size();
+    }
+
+    public void zerarConexoes() {
+        conexoes.clear();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void atender(HttpExchange troca) throws IOException {
+        try (troca) {
+            conexoes.add(troca.getRemoteAddress());
+            byte[] corpo = troca.getRequestBody().readAllBytes();
+
+            if (!latencia.isZero()) {
+                Thread.sleep(latencia.toMillis());
+            }
+
+            Object resposta = responder(troca.getRequestMethod(), troca.getRequestURI(),
+                    troca.getRequestHeaders().getFirst("Idempotency-Key"), corpo);
+            if (resposta == NAO_ENCONTRADO) {
+                troca.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (resposta == null) {
+                troca.sendResponseHeaders(204, -1);
+                return;
+            }
+
+            byte[] bytes = json.writeValueAsBytes(resposta);
+            troca.getResponseHeaders().set("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, bytes.length);
+            troca.getResponseBody().write(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object responder(String metodo, URI uri, String chaveIdempotencia, byte[] corpo) throws IOException {
+        String[] segmentos = uri.getPath().split("/");
+        String rota = metodo + " " + uri.getPath().replaceAll("/\\d+", "/*");
+
+        switch (rota) {
+            case "POST /estoque/disponibilidade": {
+                EstoqueClient.Itens itens = json.readValue(corpo, EstoqueClient.Itens.class);
+                return estoque.verificarDisponibilidade(itens.produtosIds(), itens.produtosQuantidades());
+            }
+            case "POST /estoque/baixa": {
+                EstoqueClient.Itens itens = json.readValue(corpo, EstoqueClient.Itens.class);
+                return estoque.darBaixa(itens.produtosIds(), itens.produtosQuantidades());
+            }
+            case "POST /estoque/reservas": {
+                EstoqueClient.Reserva reserva = json.readValue(corpo, EstoqueClient.Reserva.class);
+                return estoque.reservar(reserva.produtosIds(), reserva.produtosQuantidades(),
+                        Duration.ofMillis(reserva.validadeMillis()));
+            }
+            case "POST /estoque/reservas/*/confirmacao": {
+                EstoqueClient.Itens itens = json.readValue(corpo, EstoqueClient.Itens.class);
+                return estoque.confirmarReserva(Long.valueOf(segmentos[3]), itens.produtosIds(),
+                        itens.produtosQuantidades());
+            }
+            case "DELETE /estoque/reservas/*":
+                estoque.liberarReserva(Long.valueOf(segmentos[3]));
+                return null;
+            case "POST /pagamentos/autorizacoes":
+                return autorizar(chaveIdempotencia);
+            case "POST /pagamentos/autorizacoes/lote": {
+                lotes.incrementAndGet();
+                AutorizacaoPagamentoDTO[] autorizacoes = json.readValue(corpo, AutorizacaoPagamentoDTO[].class);
+                List<PagamentoDTO> pagamentos = new ArrayList<>(autorizacoes.length);
+                for (AutorizacaoPagamentoDTO autorizacao : autorizacoes) {
+                    pagamentos.add(autorizar(autorizacao.chaveIdempotencia()));
+                }
+                return pagamentos;
+            }
+            case "DELETE /pagamentos/*":
+                cancelamentos.add(Long.valueOf(segmentos[2]));
+                return null;
+            default:
+                return NAO_ENCONTRADO;
+        }
+    }
+
+    private PagamentoDTO autorizar(String chaveIdempotencia) {
+        if (chaveIdempotencia == null) {
+            return new PagamentoDTO(true, transacoes.incrementAndGet());
+        }
+        return autorizacoesPorChave.computeIfAbsent(chaveIdempotencia,
+                chave -> new PagamentoDTO(true, transacoes.incrementAndGet()));
+    }
+}
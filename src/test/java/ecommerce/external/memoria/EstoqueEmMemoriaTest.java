@@ -0,0 +1,227 @@
+package ecommerce.external.memoria;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.external.IEstoqueExternal;
+
+class EstoqueEmMemoriaTest {
+
+    private EstoqueEmMemoria estoque;
+
+    @BeforeEach
+    void setUp() {
+        estoque = new EstoqueEmMemoria(0);
+        estoque.definirSaldo(1L, 10L);
+        estoque.definirSaldo(2L, 5L);
+        estoque.definirSaldo(3L, 0L);
+    }
+
+    @Test
+    void testeDisponibilidadeInformaExatamenteOsIndisponiveis() {
+        DisponibilidadeDTO disponibilidade = estoque.verificarDisponibilidade(List.of(1L, 2L, 3L, 4L),
+                List.of(10L, 6L, 1L, 1L));
+
+        assertFalse(disponibilidade.disponivel());
+        assertEquals(List.of(2L, 3L, 4L), disponibilidade.idsProdutosIndisponiveis());
+    }
+
+    @Test
+    void testeLinhasRepetidasSaoSomadas() {
+        DisponibilidadeDTO disponibilidade = estoque.verificarDisponibilidade(List.of(2L, 2L), List.of(3L, 3L));
+
+        assertFalse(disponibilidade.disponivel());
+        assertEquals(List.of(2L), disponibilidade.idsProdutosIndisponiveis());
+        assertFalse(estoque.darBaixa(List.of(2L, 2L), List.of(3L, 3L)).sucesso());
+        assertEquals(5L, estoque.saldo(2L));
+    }
+
+    @Test
+    void testeBaixaParcialEhDesfeita() {
+        assertFalse(estoque.darBaixa(List.of(1L, 2L), List.of(4L, 6L)).sucesso());
+
+        assertEquals(10L, estoque.saldo(1L));
+        assertEquals(5L, estoque.saldo(2L));
+    }
+
+    @Test
+    void testeBaixaComSucesso() {
+        assertTrue(estoque.darBaixa(List.of(1L, 2L), List.of(4L, 5L)).sucesso());
+
+        assertEquals(6L, estoque.saldo(1L));
+        assertEquals(0L, estoque.saldo(2L));
+    }
+
+    @Test
+    void testePedidoInvalidoNaoBaixa() {
+        assertFalse(estoque.darBaixa(List.of(1L), List.of(0L)).sucesso());
+        assertFalse(estoque.darBaixa(List.of(1L, 2L), List.of(1L)).sucesso());
+        assertFalse(estoque.verificarDisponibilidade(List.of(1L), List.of(-1L)).disponivel());
+        assertEquals(10L, estoque.saldo(1L));
+    }
+
+    @Test
+    void testeSaldoInicialParaProdutoDesconhecido() {
+        EstoqueEmMemoria comSaldoInicial = new EstoqueEmMemoria(3);
+
+        assertTrue(comSaldoInicial.darBaixa(List.of(99L), List.of(2L)).sucesso());
+        assertEquals(1L, comSaldoInicial.saldo(99L));
+        assertFalse(estoque.darBaixa(List.of(99L), List.of(1L)).sucesso());
+    }
+
+    @Test
+    void testeLinhasIndisponiveisPorPosicao() {
+        long[] ids = { 2L, 1L, 3L, 2L };
+        long[] quantidades = { 3L, 1L, 1L, 3L };
+
+        ResultadoEstoqueDTO resultado = estoque.reservarLinhas(ids, quantidades, Duration.ofMinutes(1));
+
+        assertFalse(resultado.sucesso());
+        BitSet esperadas = new BitSet();
+        esperadas.set(0);
+        esperadas.set(2);
+        esperadas.set(3);
+        assertEquals(esperadas, resultado.linhasIndisponiveis());
+        assertEquals(10L, estoque.saldo(1L));
+    }
+
+    @Test
+    void testeImplementacaoPadraoMapeiaIdsParaPosicoes() {
+        IEstoqueExternal porListas = new IEstoqueExternal() {
+            @Override
+            public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+                return new EstoqueBaixaDTO(true);
+            }
+
+            @Override
+            public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+                return new DisponibilidadeDTO(false, List.of(7L));
+            }
+        };
+
+        ResultadoEstoqueDTO resultado = porListas.verificarLinhas(new long[] { 5L, 7L, 7L }, new long[] { 1L, 1L, 1L });
+
+        assertFalse(resultado.sucesso());
+        assertEquals(BitSet.valueOf(new long[] { 0b110 }), resultado.linhasIndisponiveis());
+    }
+
+    @Test
+    void testeReservaSeparaOSaldoAteAConfirmacao() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(1L, 2L), List.of(4L, 5L), Duration.ofMinutes(1));
+
+        assertTrue(reserva.reservado());
+        assertEquals(6L, estoque.saldo(1L));
+        assertFalse(estoque.reservar(List.of(2L), List.of(1L), Duration.ofMinutes(1)).reservado());
+
+        // Confirma só parte: o restante volta ao saldo
+        assertTrue(estoque.confirmarReserva(reserva.reservaId(), List.of(1L), List.of(3L)).sucesso());
+        assertEquals(7L, estoque.saldo(1L));
+        assertEquals(5L, estoque.saldo(2L));
+        assertEquals(0, estoque.reservasAbertas());
+    }
+
+    @Test
+    void testeReservaRecusadaInformaOsIndisponiveis() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(1L, 2L, 3L), List.of(1L, 6L, 1L), Duration.ofMinutes(1));
+
+        assertFalse(reserva.reservado());
+        assertNull(reserva.reservaId());
+        assertEquals(List.of(2L, 3L), reserva.idsProdutosIndisponiveis());
+        assertEquals(10L, estoque.saldo(1L));
+    }
+
+    @Test
+    void testeLiberarDevolveOSaldo() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(1L), List.of(10L), Duration.ofMinutes(1));
+
+        estoque.liberarReserva(reserva.reservaId());
+        estoque.liberarReserva(reserva.reservaId());
+
+        assertEquals(10L, estoque.saldo(1L));
+    }
+
+    @Test
+    void testeReservaExpiradaEhDevolvidaPelaVarredura() {
+        estoque.reservar(List.of(1L), List.of(10L), Duration.ZERO);
+        estoque.reservar(List.of(2L), List.of(5L), Duration.ofMinutes(1));
+
+        assertEquals(1, estoque.liberarExpiradas());
+        assertEquals(10L, estoque.saldo(1L));
+        assertEquals(0L, estoque.saldo(2L));
+        assertEquals(1, estoque.reservasAbertas());
+    }
+
+    @Test
+    void testeConfirmarReservaExpiradaTentaABaixaDireta() {
+        ReservaEstoqueDTO reserva = estoque.reservar(List.of(2L), List.of(5L), Duration.ZERO);
+        estoque.liberarExpiradas();
+        estoque.definirSaldo(2L, 2L);
+
+        assertFalse(estoque.confirmarReserva(reserva.reservaId(), List.of(2L), List.of(5L)).sucesso());
+        assertEquals(2L, estoque.saldo(2L));
+    }
+
+    @Test
+    void testeConcorrenciaEmPoucosProdutosNaoVendeAlemDoSaldo() throws Exception {
+        int produtos = 3;
+        long saldoPorProduto = 200;
+        int compras = 500;
+        for (long id = 100; id < 100 + produtos; id++) {
+            estoque.definirSaldo(id, saldoPorProduto);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<long[]>> resultados = new ArrayList<>();
+
+        for (int i = 0; i < compras; i++) {
+            resultados.add(executor.submit(() -> {
+                // Carrinho com um ou dois produtos quentes, em ordem aleatória
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                long primeiro = 100 + aleatorio.nextInt(produtos);
+                long segundo = 100 + aleatorio.nextInt(produtos);
+                long quantidade = 1 + aleatorio.nextInt(3);
+                largada.await();
+
+                boolean sucesso = estoque.darBaixa(List.of(primeiro, segundo), List.of(quantidade, 1L)).sucesso();
+                return sucesso ? new long[] { primeiro, quantidade, segundo, 1L } : new long[0];
+            }));
+        }
+
+        largada.countDown();
+        long[] vendidos = new long[produtos];
+        for (Future<long[]> resultado : resultados) {
+            long[] baixa = resultado.get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < baixa.length; i += 2) {
+                vendidos[(int) (baixa[i] - 100)] += baixa[i + 1];
+            }
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < produtos; i++) {
+            long saldo = estoque.saldo(100L + i);
+            assertTrue(saldo >= 0);
+            assertEquals(saldoPorProduto, saldo + vendidos[i]);
+        }
+    }
+}
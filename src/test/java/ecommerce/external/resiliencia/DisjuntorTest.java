@@ -0,0 +1,60 @@
+package ecommerce.external.resiliencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DisjuntorTest {
+
+    private AtomicLong relogio;
+    private Disjuntor disjuntor;
+
+    @BeforeEach
+    void setUp() {
+        relogio = new AtomicLong();
+        disjuntor = new Disjuntor(4, 4, 0.5, Duration.ofSeconds(10), relogio::get, () -> {
+        });
+    }
+
+    private void abrir() {
+        for (int i = 0; i < 4; i++) {
+            disjuntor.registrarFalha(disjuntor.permitir());
+        }
+        assertEquals(Disjuntor.Estado.ABERTO, disjuntor.estado());
+    }
+
+    @Test
+    void testeSucessoAtrasadoDeAntesDaAberturaNaoFechaOCircuito() {
+        long lenta = disjuntor.permitir();
+        abrir();
+
+        relogio.addAndGet(Duration.ofSeconds(11).toNanos());
+        long sonda = disjuntor.permitir();
+        assertNotEquals(Disjuntor.RECUSADA, sonda);
+        assertEquals(Disjuntor.Estado.MEIO_ABERTO, disjuntor.estado());
+
+        // A resposta da chamada lenta chega durante a sonda e é ignorada
+        disjuntor.registrarSucesso(lenta);
+        assertEquals(Disjuntor.Estado.MEIO_ABERTO, disjuntor.estado());
+        assertEquals(Disjuntor.RECUSADA, disjuntor.permitir());
+
+        disjuntor.registrarFalha(sonda);
+        assertEquals(Disjuntor.Estado.ABERTO, disjuntor.estado());
+    }
+
+    @Test
+    void testeSondaBemSucedidaFechaOCircuito() {
+        abrir();
+        assertEquals(Disjuntor.RECUSADA, disjuntor.permitir());
+
+        relogio.addAndGet(Duration.ofSeconds(11).toNanos());
+        disjuntor.registrarSucesso(disjuntor.permitir());
+
+        assertEquals(Disjuntor.Estado.FECHADO, disjuntor.estado());
+    }
+}
@@ -0,0 +1,221 @@
+package ecommerce.external.resiliencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PagamentoResilienteTest {
+
+    private SimpleMeterRegistry registry;
+    private ProvedorLento provedor;
+    private PagamentoResiliente pagamento;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        provedor = new ProvedorLento(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pagamento != null) {
+            pagamento.destroy();
+        }
+    }
+
+    private PagamentoResiliente decorar(IPagamentoExternal delegado, Duration tempoLimite, int janela) {
+        PagamentoResiliente.Parametros parametros = new PagamentoResiliente.Parametros(0.95, Duration.ofMillis(50),
+                Duration.ofMillis(10), tempoLimite, janela, janela, 0.5, Duration.ofMillis(200), 4);
+        pagamento = new PagamentoResiliente(delegado, parametros, registry);
+        return pagamento;
+    }
+
+    private double contador(String nome) {
+        return registry.get(nome).counter().count();
+    }
+
+    @Test
+    void testeHedgeRespondeQuandoAPrimeiraTentativaDemora() {
+        decorar(provedor, Duration.ofSeconds(5), 10);
+        provedor.latencias.add(Duration.ofSeconds(2));
+        provedor.latencias.add(Duration.ZERO);
+
+        long inicio = System.nanoTime();
+        PagamentoDTO resultado = pagamento.autorizarPagamento(1L, 100.0);
+        long decorrido = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+
+        assertTrue(resultado.autorizado());
+        assertTrue(decorrido < 1000, "Autorização levou " + decorrido + " ms");
+        assertEquals(2, provedor.chamadas.get());
+        // As duas tentativas usam a mesma chave: uma única autorização no provedor
+        assertEquals(1, provedor.autorizacoes.get());
+        assertEquals(1.0, contador("pagamento.hedge.disparos"));
+        assertEquals(1.0, contador("pagamento.hedge.vitorias"));
+    }
+
+    @Test
+    void testeRespostaRapidaNaoDisparaHedge() {
+        decorar(provedor, Duration.ofSeconds(5), 10);
+
+        for (int i = 0; i < 5; i++) {
+            pagamento.autorizarPagamento(1L, 100.0);
+        }
+
+        assertEquals(5, provedor.chamadas.get());
+        assertEquals(0.0, contador("pagamento.hedge.disparos"));
+    }
+
+    @Test
+    void testeSemIdempotenciaNaoHaSegundaTentativa() {
+        ProvedorLento semIdempotencia = new ProvedorLento(false);
+        semIdempotencia.latencias.add(Duration.ofMillis(300));
+        decorar(semIdempotencia, Duration.ofSeconds(5), 10);
+
+        assertTrue(pagamento.autorizarPagamento(1L, 100.0).autorizado());
+
+        assertEquals(1, semIdempotencia.chamadas.get());
+        assertEquals(0.0, contador("pagamento.hedge.disparos"));
+    }
+
+    @Test
+    void testeTempoLimiteEsgotado() {
+        decorar(provedor, Duration.ofMillis(300), 10);
+        provedor.latencias.add(Duration.ofSeconds(3));
+        provedor.latencias.add(Duration.ofSeconds(3));
+
+        long inicio = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> pagamento.autorizarPagamento(1L, 100.0));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - inicio).toMillis() < 1000);
+    }
+
+    @Test
+    void testeAutorizacaoDepoisDoTempoLimiteEhAnulada() throws InterruptedException {
+        decorar(provedor, Duration.ofMillis(200), 10);
+        provedor.latencias.add(Duration.ofMillis(600));
+        provedor.latencias.add(Duration.ofMillis(600));
+
+        assertThrows(IllegalStateException.class, () -> pagamento.autorizarPagamento(1L, 100.0));
+        assertEquals(0, provedor.cancelamentos.get());
+
+        // Primeira tentativa e hedge terminam depois do limite com a mesma autorização: um único cancelamento
+        long prazo = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (provedor.cancelamentos.get() == 0 && System.nanoTime() < prazo) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(200);
+        assertEquals(1, provedor.autorizacoes.get());
+        assertEquals(1, provedor.cancelamentos.get());
+        assertEquals(1.0, contador("pagamento.autorizacoes.tardias"));
+    }
+
+    @Test
+    void testeDisjuntorAbreFalhaNaHoraEFechaAposASonda() throws InterruptedException {
+        decorar(provedor, Duration.ofSeconds(5), 4);
+        provedor.falhando = true;
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> pagamento.autorizarPagamento(1L, 100.0));
+        }
+        int chamadasAteAbrir = provedor.chamadas.get();
+
+        IllegalStateException rejeicao = assertThrows(IllegalStateException.class,
+                () -> pagamento.autorizarPagamento(1L, 100.0));
+        assertEquals("Serviço de pagamento indisponível.", rejeicao.getMessage());
+        assertEquals(0, rejeicao.getStackTrace().length);
+        assertEquals(chamadasAteAbrir, provedor.chamadas.get());
+        assertEquals(1.0, contador("pagamento.disjuntor.aberturas"));
+        assertEquals(1.0, contador("pagamento.disjuntor.rejeicoes"));
+
+        // Passada a espera, a sonda chega ao provedor recuperado e o circuito fecha
+        Thread.sleep(250);
+        provedor.falhando = false;
+        assertTrue(pagamento.autorizarPagamento(1L, 100.0).autorizado());
+        assertTrue(pagamento.autorizarPagamento(1L, 100.0).autorizado());
+        assertEquals(1.0, contador("pagamento.disjuntor.aberturas"));
+    }
+
+    @Test
+    void testeCancelamentoPassaComOCircuitoAberto() {
+        decorar(provedor, Duration.ofSeconds(5), 4);
+        provedor.falhando = true;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> pagamento.autorizarPagamento(1L, 100.0));
+        }
+
+        pagamento.cancelarPagamento(1L, 7L);
+
+        assertEquals(1, provedor.cancelamentos.get());
+    }
+
+    /**
+     * Provedor local com latência injetada por chamada (na ordem da fila) e
+     * deduplicação pela chave de idempotência.
+     */
+    private static class ProvedorLento implements IPagamentoExternal {
+
+        final Queue<Duration> latencias = new ConcurrentLinkedQueue<>();
+        final Map<String, PagamentoDTO> porChave = new ConcurrentHashMap<>();
+        final AtomicInteger chamadas = new AtomicInteger();
+        final AtomicInteger autorizacoes = new AtomicInteger();
+        final AtomicInteger cancelamentos = new AtomicInteger();
+        final boolean idempotente;
+        volatile boolean falhando;
+
+        ProvedorLento(boolean idempotente) {
+            this.idempotente = idempotente;
+        }
+
+        @Override
+        public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+            return autorizarPagamento(clienteId, custoTotal, null);
+        }
+
+        @Override
+        public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal, String chaveIdempotencia) {
+            chamadas.incrementAndGet();
+            Duration latencia = latencias.poll();
+            if (latencia != null) {
+                try {
+                    Thread.sleep(latencia.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrompido", e);
+                }
+            }
+            if (falhando) {
+                throw new IllegalStateException("Provedor fora do ar");
+            }
+            if (!idempotente || chaveIdempotencia == null) {
+                return new PagamentoDTO(true, (long) autorizacoes.incrementAndGet());
+            }
+            return porChave.computeIfAbsent(chaveIdempotencia,
+                    chave -> new PagamentoDTO(true, (long) autorizacoes.incrementAndGet()));
+        }
+
+        @Override
+        public boolean suportaIdempotencia() {
+            return idempotente;
+        }
+
+        @Override
+        public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+            cancelamentos.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ecommerce.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.MotorPrecificacao;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CarrinhoDeComprasRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CarrinhoDeComprasRepository repository;
+
+    private Statistics estatisticas() {
+        return entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private CarrinhoDeCompras persistirCarrinho(Cliente cliente, int tamanho) {
+        List<ItemCompra> itens = new ArrayList<>();
+        for (int i = 0; i < tamanho; i++) {
+            Produto produto = entityManager.persist(new Produto(null, "Produto " + i, null, new BigDecimal("10.00"),
+                    new BigDecimal("1.00"), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, i % 2 == 0,
+                    TipoProduto.LIVRO));
+            itens.add(new ItemCompra(null, produto, 1L));
+        }
+
+        CarrinhoDeCompras carrinho = entityManager
+                .persist(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+        entityManager.flush();
+        entityManager.clear();
+        return carrinho;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 10, 200 })
+    void testeCarrinhoItensEProdutosEmUmaConsulta(int tamanho) {
+        Cliente cliente = entityManager.persist(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.OURO));
+        CarrinhoDeCompras carrinho = persistirCarrinho(cliente, tamanho);
+
+        Statistics estatisticas = estatisticas();
+        estatisticas.clear();
+
+        CarrinhoDeCompras carregado = repository.findComItensByIdAndCliente(carrinho.getId(), cliente).orElseThrow();
+
+        // Percorre itens e produtos como a finalização da compra faz
+        MotorPrecificacao.calcular(carregado.getItens());
+        carregado.getItens().forEach(item -> item.getProduto().getNome());
+
+        assertEquals(tamanho, carregado.getItens().size());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void testeAlteracaoDeItemAvancaAVersaoDoCarrinho() {
+        Cliente cliente = entityManager.persist(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.OURO));
+        CarrinhoDeCompras carrinho = persistirCarrinho(cliente, 1);
+        CarrinhoDeCompras carregado = repository.findComItensByIdAndCliente(carrinho.getId(), cliente).orElseThrow();
+        Long versao = carregado.getVersao();
+
+        carregado.getItens().get(0).setQuantidade(5L);
+        entityManager.flush();
+        entityManager.clear();
+
+        CarrinhoDeCompras gravado = repository.findComItensByIdAndCliente(carrinho.getId(), cliente).orElseThrow();
+        assertTrue(gravado.getVersao() > versao);
+        assertEquals(5L, gravado.getItens().get(0).getQuantidade());
+    }
+}
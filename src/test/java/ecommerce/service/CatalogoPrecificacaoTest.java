@@ -0,0 +1,223 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.ProdutoRepository;
+
+class CatalogoPrecificacaoTest {
+
+    private static final int QUANTIDADE_PRODUTOS = 3_000;
+
+    private CatalogoPrecificacao catalogo;
+
+    @BeforeEach
+    void setUp() {
+        List<Produto> produtos = new ArrayList<>();
+        for (long id = 1; id <= QUANTIDADE_PRODUTOS; id++) {
+            produtos.add(criarProduto(id, BigDecimal.valueOf(id, 2), new BigDecimal("0.500"), id % 2 == 0));
+        }
+
+        ProdutoRepository repositoryMock = mock(ProdutoRepository.class);
+        when(repositoryMock.findAll(any(Pageable.class))).thenAnswer(invocacao -> {
+            Pageable pagina = invocacao.getArgument(0);
+            int inicio = (int) pagina.getOffset();
+            int fim = Math.min(inicio + pagina.getPageSize(), produtos.size());
+            return new PageImpl<>(produtos.subList(inicio, fim), pagina, produtos.size());
+        });
+
+        catalogo = new CatalogoPrecificacao(repositoryMock);
+        catalogo.recarregar();
+    }
+
+    private Produto criarProduto(Long id, BigDecimal preco, BigDecimal peso, boolean fragil) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setPreco(preco);
+        produto.setPesoFisico(peso);
+        produto.setFragil(fragil);
+        return produto;
+    }
+
+    @Test
+    void testeCarregaTodosOsProdutos() {
+        CatalogoPrecificacao.Indice indice = catalogo.indice();
+
+        assertEquals(QUANTIDADE_PRODUTOS, indice.tamanho());
+        for (long id = 1; id <= QUANTIDADE_PRODUTOS; id++) {
+            int posicao = indice.posicao(id);
+            assertTrue(posicao >= 0);
+            assertEquals(id, indice.precoCentavos(posicao));
+            assertEquals(500L, indice.pesoGramas(posicao));
+            assertEquals(id % 2 == 0, indice.fragil(posicao));
+        }
+        assertEquals(-1, indice.posicao(QUANTIDADE_PRODUTOS + 1));
+    }
+
+    @Test
+    void testeAtualizacaoIncremental() {
+        catalogo.atualizar(criarProduto(7L, new BigDecimal("99.90"), new BigDecimal("2"), true));
+        catalogo.atualizar(criarProduto(50_000L, new BigDecimal("1.00"), new BigDecimal("0.1"), false));
+
+        CatalogoPrecificacao.Indice indice = catalogo.indice();
+        assertEquals(9_990L, indice.precoCentavos(indice.posicao(7L)));
+        assertEquals(2_000L, indice.pesoGramas(indice.posicao(7L)));
+        assertTrue(indice.fragil(indice.posicao(7L)));
+        assertEquals(100L, indice.precoCentavos(indice.posicao(50_000L)));
+        assertEquals(QUANTIDADE_PRODUTOS + 1, indice.tamanho());
+    }
+
+    @Test
+    void testeRemocaoEReinclusao() {
+        catalogo.remover(10L);
+        assertEquals(-1, catalogo.indice().posicao(10L));
+
+        catalogo.atualizar(criarProduto(10L, new BigDecimal("3.00"), new BigDecimal("1.000"), false));
+        assertEquals(300L, catalogo.indice().precoCentavos(catalogo.indice().posicao(10L)));
+    }
+
+    @Test
+    void testeRemocoesCompactamOIndice() {
+        for (long id = 1; id <= QUANTIDADE_PRODUTOS; id += 2) {
+            catalogo.remover(id);
+        }
+
+        CatalogoPrecificacao.Indice indice = catalogo.indice();
+        assertEquals(QUANTIDADE_PRODUTOS / 2, indice.tamanho());
+        for (long id = 1; id <= QUANTIDADE_PRODUTOS; id++) {
+            int posicao = indice.posicao(id);
+            if (id % 2 == 1) {
+                assertEquals(-1, posicao);
+            } else {
+                // Posições continuam contíguas depois das remoções
+                assertTrue(posicao >= 0 && posicao < indice.tamanho());
+                assertEquals(id, indice.precoCentavos(posicao));
+            }
+        }
+
+        catalogo.atualizar(criarProduto(1L, new BigDecimal("4.00"), new BigDecimal("1.000"), false));
+        assertEquals(400L, catalogo.indice().precoCentavos(catalogo.indice().posicao(1L)));
+        assertEquals(QUANTIDADE_PRODUTOS / 2 + 1, catalogo.indice().tamanho());
+    }
+
+    @Test
+    void testeEscritaNaoAlteraIndicePublicado() {
+        CatalogoPrecificacao.Indice antes = catalogo.indice();
+
+        catalogo.atualizar(criarProduto(3L, new BigDecimal("9.00"), new BigDecimal("1.000"), true));
+        catalogo.remover(4L);
+        catalogo.atualizar(criarProduto(60_000L, new BigDecimal("1.00"), new BigDecimal("1.000"), false));
+
+        assertEquals(3L, antes.precoCentavos(antes.posicao(3L)));
+        assertTrue(antes.posicao(4L) >= 0);
+        assertEquals(-1, antes.posicao(60_000L));
+        assertEquals(QUANTIDADE_PRODUTOS, antes.tamanho());
+        assertEquals(900L, catalogo.indice().precoCentavos(catalogo.indice().posicao(3L)));
+        assertEquals(-1, catalogo.indice().posicao(4L));
+    }
+
+    @Test
+    void testeRecargaSemDiferencasMantemAEpoca() {
+        long epoca = catalogo.epoca();
+
+        catalogo.recarregar();
+        assertEquals(epoca, catalogo.epoca());
+
+        // Alteração feita fora desta instância (outra instância, update em massa): chega na recarga
+        catalogo.remover(8L);
+        long depoisDaRemocao = catalogo.epoca();
+        catalogo.recarregar();
+        assertTrue(catalogo.epoca() > depoisDaRemocao);
+        assertTrue(catalogo.indice().posicao(8L) >= 0);
+    }
+
+    @Test
+    void testeCobrancaUsaOProdutoCarregado() {
+        // O catálogo desta instância ainda tem o produto 301 a R$ 3,01; o banco já tem R$ 5,00
+        Produto atual = criarProduto(301L, new BigDecimal("5.00"), new BigDecimal("0.500"), false);
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(1L, null, List.of(new ItemCompra(1L, atual, 2L)), null);
+        CompraService compraService = new CompraService(null, null, null, null, catalogo, null);
+
+        assertEquals(new BigDecimal("6.02"), compraService.calcularCustoTotal(carrinho));
+        assertEquals(new BigDecimal("10.00"), compraService.calcularValorCobranca(carrinho));
+    }
+
+    @Test
+    void testePrecoForaDoPontoFixoSaiDoCatalogo() {
+        catalogo.atualizar(criarProduto(5L, new BigDecimal("1.005"), new BigDecimal("1.000"), false));
+
+        assertEquals(-1, catalogo.indice().posicao(5L));
+    }
+
+    @Test
+    void testeIndiceLidoNaoMudaComEscritasConcorrentes() throws Exception {
+        CatalogoPrecificacao.Indice antes = catalogo.indice();
+        int posicaoAntes = antes.posicao(7L);
+
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        Thread escritor = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                boolean par = i % 2 == 0;
+                catalogo.atualizar(criarProduto(7L, new BigDecimal(par ? "1.00" : "2.00"),
+                        new BigDecimal(par ? "1.000" : "2.000"), par));
+            }
+            escrevendo.set(false);
+        });
+        escritor.start();
+
+        // Cada índice lido é um retrato: preço, peso e fragilidade do produto 7 sempre da mesma escrita
+        List<String> inconsistencias = new ArrayList<>();
+        while (escrevendo.get()) {
+            CatalogoPrecificacao.Indice indice = catalogo.indice();
+            int posicao = indice.posicao(7L);
+            long preco = indice.precoCentavos(posicao);
+            long peso = indice.pesoGramas(posicao);
+            boolean fragil = indice.fragil(posicao);
+            if (preco == 7L) {
+                continue;
+            }
+            if (peso != preco * 10 || fragil != (preco == 100L)) {
+                inconsistencias.add(preco + "/" + peso + "/" + fragil);
+            }
+        }
+        escritor.join();
+
+        assertTrue(inconsistencias.isEmpty(), "Leituras misturadas: " + inconsistencias);
+        // O índice obtido antes das escritas continua com os valores da carga
+        assertEquals(7L, antes.precoCentavos(posicaoAntes));
+        assertEquals(500L, antes.pesoGramas(posicaoAntes));
+        assertFalse(antes.fragil(posicaoAntes));
+    }
+
+    @Test
+    void testePrecificacaoUsaOCatalogo() {
+        // A entidade carrega valores desatualizados; o catálogo (produto 301: R$ 3,01, 0,5 kg, não frágil) prevalece
+        Produto produto = criarProduto(301L, new BigDecimal("1000.00"), new BigDecimal("100.00"), true);
+        ItemCompra item = new ItemCompra(1L, produto, 2L);
+
+        assertEquals(new BigDecimal("6.02"), MotorPrecificacao.calcular(List.of(item), catalogo));
+
+        // Produto fora do catálogo usa a entidade
+        Produto foraDoCatalogo = criarProduto(null, new BigDecimal("10.00"), new BigDecimal("1.00"), false);
+        assertEquals(new BigDecimal("10.00"),
+                MotorPrecificacao.calcular(List.of(new ItemCompra(2L, foraDoCatalogo, 1L)), catalogo));
+        assertFalse(catalogo.indice().posicao(0L) >= 0);
+    }
+}
@@ -0,0 +1,110 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import ecommerce.entity.Cliente;
+import ecommerce.repository.ClienteRepository;
+
+@SpringJUnitConfig
+class ClienteServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager(ClienteService.CACHE_CLIENTES);
+            cacheManager.setCacheSpecification("maximumSize=100,recordStats");
+            return cacheManager;
+        }
+
+        @Bean
+        ClienteRepository clienteRepository() {
+            return mock(ClienteRepository.class);
+        }
+
+        @Bean
+        ClienteService clienteService(ClienteRepository clienteRepository) {
+            return new ClienteService(clienteRepository);
+        }
+    }
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private ClienteRepository repositoryMock;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cliente cliente;
+
+    @BeforeEach
+    void setUp() {
+        reset(repositoryMock);
+        cacheManager.getCache(ClienteService.CACHE_CLIENTES).clear();
+
+        cliente = new Cliente();
+        cliente.setId(1L);
+        cliente.setNome("Maria");
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(cliente));
+        when(repositoryMock.save(cliente)).thenReturn(cliente);
+    }
+
+    @Test
+    void testeSegundaBuscaVemDoCache() {
+        assertSame(cliente, clienteService.buscarPorId(1L));
+        assertSame(cliente, clienteService.buscarPorId(1L));
+
+        verify(repositoryMock, times(1)).findById(1L);
+    }
+
+    @Test
+    void testeSalvarInvalidaOCliente() {
+        clienteService.buscarPorId(1L);
+        clienteService.salvar(cliente);
+        clienteService.buscarPorId(1L);
+
+        verify(repositoryMock, times(2)).findById(1L);
+    }
+
+    @Test
+    void testeInvalidacaoExplicita() {
+        clienteService.buscarPorId(1L);
+        clienteService.invalidar(1L);
+        clienteService.buscarPorId(1L);
+
+        verify(repositoryMock, times(2)).findById(1L);
+    }
+
+    @Test
+    void testeClienteInexistenteNaoEhCacheado() {
+        when(repositoryMock.findById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> clienteService.buscarPorId(2L));
+        assertThrows(IllegalArgumentException.class, () -> clienteService.buscarPorId(2L));
+
+        verify(repositoryMock, times(2)).findById(2L);
+        assertEquals(null, cacheManager.getCache(ClienteService.CACHE_CLIENTES).get(2L));
+    }
+}
@@ -0,0 +1,115 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.CompensacaoPagamento;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.repository.CompensacaoPagamentoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+// O teste controla as transações da compra: não pode envolver tudo numa só
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CompensacoesPagamentoTest {
+
+    @Autowired
+    private CompensacaoPagamentoRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private IPagamentoExternal pagamentoMock;
+    private SimpleMeterRegistry registry;
+    private CompensacoesPagamento compensacoes;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        pagamentoMock = mock(IPagamentoExternal.class);
+        registry = new SimpleMeterRegistry();
+        // Sem espera entre tentativas, para que cada rodada tente de novo
+        compensacoes = new CompensacoesPagamento(repository, pagamentoMock, transactionManager, registry, 100, 3,
+                Duration.ZERO, Duration.ZERO, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testeCancelamentoConcluidoSaiDaTabela() {
+        compensacoes.registrar(1L, 77L);
+
+        assertEquals(1, compensacoes.processarPendentes());
+
+        verify(pagamentoMock).cancelarPagamento(1L, 77L);
+        assertEquals(0, repository.count());
+        assertEquals(1.0, registry.get("compensacao.concluidas").counter().count());
+    }
+
+    @Test
+    void testeFalhaAgendaNovaTentativa() {
+        doThrow(new IllegalStateException("Provedor fora do ar")).doNothing().when(pagamentoMock)
+                .cancelarPagamento(1L, 77L);
+        compensacoes.registrar(1L, 77L);
+
+        assertEquals(0, compensacoes.processarPendentes());
+        CompensacaoPagamento pendente = repository.findAll().get(0);
+        assertEquals(1, pendente.getTentativas());
+        assertTrue(pendente.getUltimoErro().contains("Provedor fora do ar"));
+
+        assertEquals(1, compensacoes.processarPendentes());
+        verify(pagamentoMock, times(2)).cancelarPagamento(1L, 77L);
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void testeTentativasEsgotadasAbandonam() {
+        doThrow(new IllegalStateException("Provedor fora do ar")).when(pagamentoMock).cancelarPagamento(1L, 77L);
+        compensacoes.registrar(1L, 77L);
+
+        for (int i = 0; i < 5; i++) {
+            compensacoes.processarPendentes();
+        }
+
+        verify(pagamentoMock, times(3)).cancelarPagamento(1L, 77L);
+        List<CompensacaoPagamento> restantes = repository.findAll();
+        assertEquals(CompensacaoPagamento.Situacao.ABANDONADA, restantes.get(0).getSituacao());
+        assertEquals(1.0, registry.get("compensacao.abandonadas").counter().count());
+    }
+
+    @Test
+    void testeRegistroEhConfirmadoComACompra() {
+        TransactionTemplate compra = new TransactionTemplate(transactionManager);
+
+        compra.executeWithoutResult(status -> compensacoes.registrar(1L, 77L));
+
+        assertEquals(1, repository.countBySituacao(CompensacaoPagamento.Situacao.PENDENTE));
+    }
+
+    @Test
+    void testeRegistroEntraNaTransacaoDaCompra() {
+        TransactionTemplate compra = new TransactionTemplate(transactionManager);
+
+        compra.executeWithoutResult(status -> {
+            compensacoes.registrar(1L, 77L);
+            status.setRollbackOnly();
+        });
+
+        // Sem transação própria: desfeita a compra, não sobra compensação
+        assertEquals(0, repository.count());
+    }
+}
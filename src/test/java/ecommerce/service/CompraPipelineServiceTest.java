@@ -0,0 +1,228 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CompraPipelineServiceTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 2L;
+
+    private CompraPipelineService pipelineService;
+    private IEstoqueExternal estoqueMock;
+    private IPagamentoExternal pagamentoMock;
+    private ExecutorService executor;
+    private CarrinhoDeComprasService carrinhoServiceMock;
+    private ClienteService clienteServiceMock;
+
+    @BeforeEach
+    void setUp() {
+        carrinhoServiceMock = mock(CarrinhoDeComprasService.class);
+        clienteServiceMock = mock(ClienteService.class);
+        // Reserva e confirmação usam as implementações padrão sobre verificarDisponibilidade e darBaixa
+        estoqueMock = mock(IEstoqueExternal.class, CALLS_REAL_METHODS);
+        // A autorização em centavos delega para autorizarPagamento(Long, Double)
+        pagamentoMock = mock(IPagamentoExternal.class, CALLS_REAL_METHODS);
+        executor = Executors.newFixedThreadPool(2);
+
+        Cliente cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteServiceMock.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente)).thenReturn(criarCarrinho());
+
+        pipelineService = new CompraPipelineService(carrinhoServiceMock, clienteServiceMock,
+                new CompraService(null, null, null, null), estoqueMock, pagamentoMock, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private CarrinhoDeCompras criarCarrinho() {
+        Produto produto = new Produto();
+        produto.setId(10L);
+        produto.setPreco(new BigDecimal("100.00"));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+
+        ItemCompra item = new ItemCompra();
+        item.setProduto(produto);
+        item.setQuantidade(2L);
+
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        carrinho.setId(CARRINHO_ID);
+        carrinho.setItens(Arrays.asList(item));
+        return carrinho;
+    }
+
+    @Test
+    void testeDisponibilidadeEPagamentoRodamEmParalelo() {
+        // Cada chamada só responde quando a outra também já começou
+        CountDownLatch ambasIniciadas = new CountDownLatch(2);
+
+        when(estoqueMock.verificarDisponibilidade(any(), any())).thenAnswer(invocacao -> {
+            ambasIniciadas.countDown();
+            assertTrue(ambasIniciadas.await(5, TimeUnit.SECONDS));
+            return new DisponibilidadeDTO(true, Arrays.asList(10L));
+        });
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenAnswer(invocacao -> {
+            ambasIniciadas.countDown();
+            assertTrue(ambasIniciadas.await(5, TimeUnit.SECONDS));
+            return new PagamentoDTO(true, 55L);
+        });
+        when(estoqueMock.darBaixa(Arrays.asList(10L), Arrays.asList(2L))).thenReturn(new EstoqueBaixaDTO(true));
+
+        CompraDTO resultado = pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID);
+
+        assertTrue(resultado.sucesso());
+        assertEquals(55L, resultado.transacaoPagamentoId());
+        verify(pagamentoMock).autorizarPagamento(CLIENTE_ID, 200.0);
+    }
+
+    @Test
+    void testeEstoqueIndisponivelAnulaAutorizacaoEspeculativa() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 77L));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        assertEquals("Itens fora de estoque.", ex.getMessage());
+        verify(pagamentoMock, timeout(5_000)).cancelarPagamento(CLIENTE_ID, 77L);
+        verify(estoqueMock, never()).darBaixa(any(), any());
+    }
+
+    @Test
+    void testeFalhaAoAnularAutorizacaoNaoAfetaAResposta() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 77L));
+        doThrow(new IllegalStateException("Provedor fora do ar")).when(pagamentoMock)
+                .cancelarPagamento(CLIENTE_ID, 77L);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        assertEquals("Itens fora de estoque.", ex.getMessage());
+        verify(pagamentoMock, timeout(5_000)).cancelarPagamento(CLIENTE_ID, 77L);
+        verify(estoqueMock, never()).darBaixa(any(), any());
+    }
+
+    @Test
+    void testeEstoqueIndisponivelComPagamentoRecusadoNaoCancela() throws InterruptedException {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+        assertThrows(IllegalStateException.class, () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(pagamentoMock, never()).cancelarPagamento(anyLong(), anyLong());
+    }
+
+    @Test
+    void testePagamentoRecusado() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        assertEquals("Pagamento não autorizado.", ex.getMessage());
+        verify(estoqueMock, never()).darBaixa(any(), any());
+    }
+
+    @Test
+    void testeErroBaixaEstoqueCancelaPagamento() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 88L));
+        when(estoqueMock.darBaixa(any(), any())).thenReturn(new EstoqueBaixaDTO(false));
+
+        CompraRecusada ex = assertThrows(CompraRecusada.class,
+                () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        assertEquals(MotivoFalha.ERRO_BAIXA_ESTOQUE, ex.motivo());
+        assertEquals("Erro ao dar baixa no estoque.", ex.getMessage());
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 88L);
+    }
+
+    @Test
+    void testeExcecaoNaBaixaCancelaPagamento() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 88L));
+        when(estoqueMock.darBaixa(any(), any()))
+                .thenThrow(new IllegalStateException("Tempo limite da baixa de estoque esgotado."));
+
+        ResultadoCompra resultado = pipelineService.finalizar(CARRINHO_ID, CLIENTE_ID);
+
+        assertEquals(ResultadoCompra.falha(MotivoFalha.ERRO_BAIXA_ESTOQUE), resultado);
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 88L);
+    }
+
+    @Test
+    void testeEtapasEntramNasMetricasDaCompra() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        pipelineService = new CompraPipelineService(carrinhoServiceMock, clienteServiceMock,
+                new CompraService(null, null, null, null), estoqueMock, pagamentoMock, executor,
+                new MetricasCompra(registry));
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList(10L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+        assertThrows(CompraRecusada.class, () -> pipelineService.finalizarCompra(CARRINHO_ID, CLIENTE_ID));
+
+        for (String nome : List.of("cliente", "carrinho", "precificacao", "disponibilidade")) {
+            assertEquals(1L, registry.get("compra.etapa").tag("etapa", nome).tag("resultado", "sucesso").timer()
+                    .count(), nome);
+        }
+        assertEquals(1L, registry.get("compra.etapa").tag("etapa", "pagamento").tag("resultado", "recusa").timer()
+                .count());
+        assertEquals(1L, registry.get("compra.etapa").tag("etapa", "compensacao").tag("resultado", "sucesso")
+                .timer().count());
+        assertEquals(1.0, registry.get("compra.falhas").tag("motivo", "pagamento_nao_autorizado").counter().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "recusa").timer().count());
+    }
+}
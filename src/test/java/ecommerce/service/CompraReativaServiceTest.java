@@ -0,0 +1,241 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IEstoqueReativo;
+import ecommerce.external.IPagamentoReativo;
+import ecommerce.external.fake.PagamentoSimuladoReativo;
+import ecommerce.external.fake.PerfilSimulacao;
+import ecommerce.external.fake.PerfilSimulacao.Distribuicao;
+import ecommerce.external.fake.Simulador;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+import ecommerce.external.reativo.EstoqueReativoAdaptado;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+class CompraReativaServiceTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long CARRINHO_ID = 2L;
+    private static final Long PRODUTO_ID = 10L;
+
+    private Scheduler agendador;
+    private CarrinhoDeComprasService carrinhoServiceMock;
+    private ClienteService clienteServiceMock;
+    private EstoqueEmMemoria memoria;
+
+    @BeforeEach
+    void setUp() {
+        // Poucas threads de propósito: as compras em andamento não podem depender delas
+        agendador = Schedulers.newBoundedElastic(2, 10_000, "teste-reativo");
+        carrinhoServiceMock = mock(CarrinhoDeComprasService.class);
+        clienteServiceMock = mock(ClienteService.class);
+        memoria = new EstoqueEmMemoria(0);
+
+        Cliente cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteServiceMock.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(CARRINHO_ID, cliente)).thenReturn(criarCarrinho());
+    }
+
+    @AfterEach
+    void tearDown() {
+        agendador.dispose();
+    }
+
+    private CarrinhoDeCompras criarCarrinho() {
+        Produto produto = new Produto();
+        produto.setId(PRODUTO_ID);
+        produto.setPreco(new BigDecimal("100.00"));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        carrinho.setId(CARRINHO_ID);
+        carrinho.setItens(new ArrayList<>(List.of(new ItemCompra(1L, produto, 2L))));
+        return carrinho;
+    }
+
+    private CompraReativaService servico(IEstoqueReativo estoque, IPagamentoReativo pagamento) {
+        return new CompraReativaService(carrinhoServiceMock, clienteServiceMock, new CompraService(null, null, null,
+                null), estoque, pagamento, agendador, null);
+    }
+
+    private CompraReativaService servico(Simulador simulador) {
+        return servico(new EstoqueReativoAdaptado(memoria, agendador), new PagamentoSimuladoReativo(simulador));
+    }
+
+    private static PerfilSimulacao recusaSempre() {
+        return new PerfilSimulacao(null, null, null, 0, 0, 0, 0, null, 1.0);
+    }
+
+    @Test
+    void testeCompraConcluidaBaixaOEstoque() {
+        memoria.definirSaldo(PRODUTO_ID, 5L);
+
+        StepVerifier.create(servico(Simulador.desligado()).finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .assertNext(compra -> assertTrue(compra.sucesso()))
+                .verifyComplete();
+
+        assertEquals(3L, memoria.saldo(PRODUTO_ID));
+    }
+
+    @Test
+    void testeSemEstoqueNaoAutorizaPagamento() {
+        IPagamentoReativo pagamentoMock = mock(IPagamentoReativo.class);
+
+        StepVerifier.create(servico(new EstoqueReativoAdaptado(memoria, agendador), pagamentoMock)
+                .finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .expectNext(ResultadoCompra.falha(MotivoFalha.ESTOQUE_INDISPONIVEL))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(pagamentoMock, never()).autorizarPagamento(anyLong(), anyLong());
+    }
+
+    @Test
+    void testePagamentoRecusadoDevolveAReserva() {
+        memoria.definirSaldo(PRODUTO_ID, 5L);
+        Simulador simulador = new Simulador(Map.of("pagamento.autorizar", recusaSempre()));
+
+        StepVerifier.create(servico(simulador).finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .expectNext(ResultadoCompra.falha(MotivoFalha.PAGAMENTO_NAO_AUTORIZADO))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(5L, memoria.saldo(PRODUTO_ID));
+    }
+
+    @Test
+    void testeFalhaNaConfirmacaoCancelaOPagamento() {
+        IEstoqueReativo estoqueMock = mock(IEstoqueReativo.class);
+        IPagamentoReativo pagamentoMock = mock(IPagamentoReativo.class);
+        when(estoqueMock.reservarLinhas(any(), any(), any()))
+                .thenReturn(Mono.just(new ResultadoEstoqueDTO(true, 7L, new BitSet())));
+        when(estoqueMock.confirmarLinhas(any(), any(), any()))
+                .thenReturn(Mono.just(new ResultadoEstoqueDTO(false, null, new BitSet())));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyLong()))
+                .thenReturn(Mono.just(new PagamentoDTO(true, 99L)));
+        when(pagamentoMock.cancelarPagamento(CLIENTE_ID, 99L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(servico(estoqueMock, pagamentoMock).finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .expectNext(ResultadoCompra.falha(MotivoFalha.ERRO_BAIXA_ESTOQUE))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 99L);
+    }
+
+    @Test
+    void testeComprasEmAndamentoNaoFicamLimitadasPelasThreads() {
+        memoria.definirSaldo(PRODUTO_ID, 1_000L);
+        Simulador simulador = new Simulador(Map.of("pagamento.autorizar", new PerfilSimulacao(Distribuicao.FIXA,
+                Duration.ofMillis(200), null, 0, 0, 0, 0, null, 0)));
+        CompraReativaService servico = servico(simulador);
+
+        long inicio = System.nanoTime();
+        List<ResultadoCompra> compras = Flux.range(0, 200)
+                .flatMap(i -> servico.finalizarCompra(CARRINHO_ID, CLIENTE_ID), 200)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        long decorrido = System.nanoTime() - inicio;
+
+        // Com duas threads presas em cada autorização, seriam 20 s
+        assertEquals(200, compras.size());
+        assertTrue(compras.stream().allMatch(ResultadoCompra::sucesso));
+        assertTrue(decorrido < Duration.ofSeconds(5).toNanos(), "Decorrido: " + decorrido / 1_000_000 + " ms");
+        assertEquals(600L, memoria.saldo(PRODUTO_ID));
+    }
+
+    @Test
+    void testeErroNaConfirmacaoCancelaOPagamentoELiberaAReserva() {
+        IEstoqueReativo estoqueMock = mock(IEstoqueReativo.class);
+        IPagamentoReativo pagamentoMock = mock(IPagamentoReativo.class);
+        when(estoqueMock.reservarLinhas(any(), any(), any()))
+                .thenReturn(Mono.just(new ResultadoEstoqueDTO(true, 7L, new BitSet())));
+        when(estoqueMock.confirmarLinhas(any(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Tempo limite da baixa de estoque esgotado.")));
+        when(estoqueMock.liberarReserva(7L)).thenReturn(Mono.empty());
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyLong()))
+                .thenReturn(Mono.just(new PagamentoDTO(true, 99L)));
+        when(pagamentoMock.cancelarPagamento(CLIENTE_ID, 99L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(servico(estoqueMock, pagamentoMock).finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .expectNext(ResultadoCompra.falha(MotivoFalha.ERRO_BAIXA_ESTOQUE))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 99L);
+        verify(estoqueMock).liberarReserva(7L);
+    }
+
+    @Test
+    void testeEtapasEntramNasMetricasDaCompra() {
+        memoria.definirSaldo(PRODUTO_ID, 5L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CompraReativaService servico = new CompraReativaService(carrinhoServiceMock, clienteServiceMock,
+                new CompraService(null, null, null, null), new EstoqueReativoAdaptado(memoria, agendador),
+                new PagamentoSimuladoReativo(Simulador.desligado()), agendador, null, new MetricasCompra(registry));
+
+        StepVerifier.create(servico.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .assertNext(compra -> assertTrue(compra.sucesso()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        for (String nome : List.of("cliente", "carrinho", "precificacao", "disponibilidade", "pagamento", "baixa")) {
+            assertEquals(1L, registry.get("compra.etapa").tag("etapa", nome).tag("resultado", "sucesso").timer()
+                    .count(), nome);
+        }
+        assertEquals(0L, registry.get("compra.etapa").tag("etapa", "compensacao").tag("resultado", "sucesso")
+                .timer().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "sucesso").timer().count());
+    }
+
+    @Test
+    void testeSemEstoqueContaAFalha() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CompraReativaService servico = new CompraReativaService(carrinhoServiceMock, clienteServiceMock,
+                new CompraService(null, null, null, null), new EstoqueReativoAdaptado(memoria, agendador),
+                mock(IPagamentoReativo.class), agendador, null, new MetricasCompra(registry));
+
+        StepVerifier.create(servico.finalizarCompra(CARRINHO_ID, CLIENTE_ID))
+                .expectNext(ResultadoCompra.falha(MotivoFalha.ESTOQUE_INDISPONIVEL))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1L, registry.get("compra.etapa").tag("etapa", "disponibilidade").tag("resultado", "recusa")
+                .timer().count());
+        assertEquals(1.0, registry.get("compra.falhas").tag("motivo", "estoque_indisponivel").counter().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "recusa").timer().count());
+    }
+}
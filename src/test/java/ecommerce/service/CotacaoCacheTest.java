@@ -0,0 +1,206 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.ProdutoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CotacaoCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private CotacaoCache cotacaoCache;
+    private CatalogoPrecificacao catalogo;
+    private CompraService compraService;
+    private AtomicInteger calculos;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cotacaoCache = new CotacaoCache(registry, 1_000, Duration.ofMinutes(30));
+
+        ProdutoRepository produtoRepositoryMock = mock(ProdutoRepository.class);
+        when(produtoRepositoryMock.findAll(any(Pageable.class))).thenReturn(Page.empty());
+        catalogo = new CatalogoPrecificacao(produtoRepositoryMock);
+        catalogo.recarregar();
+
+        compraService = new CompraService(null, null, null, null, catalogo, cotacaoCache);
+        calculos = new AtomicInteger();
+    }
+
+    private Produto criarProduto(Long id, String preco) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setPreco(new BigDecimal(preco));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+        return produto;
+    }
+
+    private CarrinhoDeCompras carrinhoGravado(Long id, Long versao, List<ItemCompra> itens) {
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras(id, null, itens, null);
+        ReflectionTestUtils.setField(carrinho, "versao", versao);
+        return carrinho;
+    }
+
+    /** Lista que conta as leituras feitas nos itens. */
+    private static class ItensContados extends ArrayList<ItemCompra> {
+        private int leituras;
+
+        ItensContados(List<ItemCompra> itens) {
+            super(itens);
+        }
+
+        @Override
+        public int size() {
+            leituras++;
+            return super.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            leituras++;
+            return super.isEmpty();
+        }
+
+        @Override
+        public ItemCompra get(int indice) {
+            leituras++;
+            return super.get(indice);
+        }
+
+        @Override
+        public Iterator<ItemCompra> iterator() {
+            leituras++;
+            return super.iterator();
+        }
+
+        @Override
+        public Spliterator<ItemCompra> spliterator() {
+            leituras++;
+            return super.spliterator();
+        }
+
+        @Override
+        public void forEach(Consumer<? super ItemCompra> acao) {
+            leituras++;
+            super.forEach(acao);
+        }
+    }
+
+    private BigDecimal contar(BigDecimal valor) {
+        calculos.incrementAndGet();
+        return valor;
+    }
+
+    @Test
+    void testeCarrinhoInalteradoNaoPercorreItens() {
+        ItensContados itens = new ItensContados(List.of(new ItemCompra(1L, criarProduto(10L, "30.00"), 2L)));
+        CarrinhoDeCompras carrinho = carrinhoGravado(1L, 0L, itens);
+
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+        itens.leituras = 0;
+
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+        assertEquals(0, itens.leituras);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", CotacaoCache.NOME).tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testeNovaVersaoRecalcula() {
+        CarrinhoDeCompras v1 = carrinhoGravado(1L, 1L, null);
+        CarrinhoDeCompras v2 = carrinhoGravado(1L, 2L, null);
+
+        assertEquals(BigDecimal.ONE, cotacaoCache.obter(v1, catalogo, () -> contar(BigDecimal.ONE)));
+        assertEquals(BigDecimal.ONE, cotacaoCache.obter(v1, catalogo, () -> contar(BigDecimal.ONE)));
+        assertEquals(BigDecimal.TEN, cotacaoCache.obter(v2, catalogo, () -> contar(BigDecimal.TEN)));
+
+        assertEquals(2, calculos.get());
+    }
+
+    @Test
+    void testeAlteracaoDeProdutoAvancaAEpoca() {
+        List<ItemCompra> itens = new ArrayList<>(List.of(new ItemCompra(1L, criarProduto(10L, "30.00"), 2L)));
+        CarrinhoDeCompras carrinho = carrinhoGravado(1L, 0L, itens);
+
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+
+        catalogo.atualizar(criarProduto(10L, "40.00"));
+
+        assertEquals(new BigDecimal("80.00"), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeReajusteInvalidaCotacaoDeCarrinhoComTotais() {
+        CarrinhoDeCompras carrinho = carrinhoGravado(1L, 0L, new ArrayList<>());
+        carrinho.adicionarItem(new ItemCompra(1L, criarProduto(10L, "30.00"), 2L));
+        // Simula a gravação: a versão avança e as alterações deixam de estar pendentes
+        ReflectionTestUtils.setField(carrinho, "versao", 1L);
+        ReflectionTestUtils.setField(carrinho, "alteracoesPendentes", false);
+
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+
+        catalogo.atualizar(criarProduto(10L, "40.00"));
+
+        assertEquals(new BigDecimal("80.00"), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeCarrinhoAlteradoOuNaoGravadoNaoUsaCache() {
+        CarrinhoDeCompras carrinho = carrinhoGravado(1L, 0L, new ArrayList<>());
+        carrinho.adicionarItem(new ItemCompra(1L, criarProduto(10L, "30.00"), 1L));
+        CarrinhoDeCompras novo = new CarrinhoDeCompras(null, null, null, null);
+
+        cotacaoCache.obter(carrinho, catalogo, () -> contar(BigDecimal.ONE));
+        cotacaoCache.obter(carrinho, catalogo, () -> contar(BigDecimal.ONE));
+        cotacaoCache.obter(novo, catalogo, () -> contar(BigDecimal.ONE));
+        cotacaoCache.obter(novo, catalogo, () -> contar(BigDecimal.ONE));
+
+        assertEquals(4, calculos.get());
+        assertEquals(0, cotacaoCache.tamanho());
+    }
+
+    @Test
+    void testeItemAlteradoDiretamenteNaoUsaCotacaoGuardada() {
+        ItemCompra item = new ItemCompra(1L, criarProduto(10L, "30.00"), 2L);
+        CarrinhoDeCompras carrinho = carrinhoGravado(1L, 0L, new ArrayList<>(List.of(item)));
+
+        assertEquals(new BigDecimal("60.00"), compraService.calcularCustoTotal(carrinho));
+
+        item.setQuantidade(3L);
+
+        assertEquals(new BigDecimal("90.00"), compraService.calcularCustoTotal(carrinho));
+    }
+
+    @Test
+    void testeErroDeCalculoNaoEhGuardado() {
+        CarrinhoDeCompras vazio = carrinhoGravado(1L, 0L, new ArrayList<>());
+
+        assertThrows(IllegalArgumentException.class, () -> compraService.calcularCustoTotal(vazio));
+        assertThrows(IllegalArgumentException.class, () -> compraService.calcularCustoTotal(vazio));
+        assertEquals(0, cotacaoCache.tamanho());
+    }
+}
@@ -0,0 +1,137 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CotacaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+
+class CotacaoLoteServiceTest {
+
+    private CarrinhoDeComprasRepository repositoryMock;
+    private CotacaoLoteService cotacaoLoteService;
+
+    @BeforeEach
+    void setUp() {
+        repositoryMock = mock(CarrinhoDeComprasRepository.class);
+        cotacaoLoteService = new CotacaoLoteService(repositoryMock, new CompraService(null, null, null, null), 2);
+
+        // Carrinho N tem um item de N * 10.00; o carrinho 3 está vazio e o 4 não existe
+        when(repositoryMock.findAllComItensByIdIn(anyCollection())).thenAnswer(invocacao -> {
+            Collection<Long> ids = invocacao.getArgument(0);
+            List<CarrinhoDeCompras> encontrados = new ArrayList<>();
+            for (Long id : ids) {
+                if (id == 4L) {
+                    continue;
+                }
+                CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+                carrinho.setId(id);
+                carrinho.setItens(id == 3L ? new ArrayList<>() : criarItens(BigDecimal.TEN.multiply(BigDecimal.valueOf(id))));
+                encontrados.add(carrinho);
+            }
+            return encontrados;
+        });
+    }
+
+    private List<ItemCompra> criarItens(BigDecimal preco) {
+        Produto produto = new Produto();
+        produto.setPreco(preco);
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+
+        ItemCompra item = new ItemCompra();
+        item.setProduto(produto);
+        item.setQuantidade(1L);
+
+        List<ItemCompra> itens = new ArrayList<>();
+        itens.add(item);
+        return itens;
+    }
+
+    @Test
+    void testeCotacaoEmBlocosComErrosPorCarrinho() {
+        List<List<CotacaoDTO>> blocos = new ArrayList<>();
+
+        cotacaoLoteService.cotar(List.of(1L, 2L, 3L, 4L, 5L), blocos::add);
+
+        assertEquals(3, blocos.size());
+        verify(repositoryMock, times(3)).findAllComItensByIdIn(anyCollection());
+
+        List<CotacaoDTO> cotacoes = blocos.stream().flatMap(List::stream).toList();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), cotacoes.stream().map(CotacaoDTO::carrinhoId).toList());
+
+        assertEquals(new BigDecimal("10.00"), cotacoes.get(0).custoTotal());
+        assertNull(cotacoes.get(0).erro());
+        assertEquals(new BigDecimal("20.00"), cotacoes.get(1).custoTotal());
+        assertEquals("Carrinho invalido", cotacoes.get(2).erro());
+        assertNull(cotacoes.get(2).custoTotal());
+        assertEquals("Carrinho não encontrado.", cotacoes.get(3).erro());
+        assertEquals(new BigDecimal("50.00"), cotacoes.get(4).custoTotal());
+    }
+
+    @Test
+    void testeFalhaAoCarregarBlocoEsperaOBlocoAnterior() throws InterruptedException {
+        AtomicInteger emAndamento = new AtomicInteger();
+        AtomicInteger cotados = new AtomicInteger();
+        CompraService lenta = new CompraService(null, null, null, null) {
+            @Override
+            public BigDecimal calcularCustoTotal(CarrinhoDeCompras carrinho) {
+                emAndamento.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                    cotados.incrementAndGet();
+                    return super.calcularCustoTotal(carrinho);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } finally {
+                    emAndamento.decrementAndGet();
+                }
+            }
+        };
+        CotacaoLoteService servico = new CotacaoLoteService(repositoryMock, lenta, 2);
+        List<CarrinhoDeCompras> primeiroBloco = repositoryMock.findAllComItensByIdIn(List.of(1L, 2L));
+        when(repositoryMock.findAllComItensByIdIn(anyCollection())).thenReturn(primeiroBloco)
+                .thenThrow(new IllegalStateException("Banco fora do ar"));
+        List<List<CotacaoDTO>> blocos = new ArrayList<>();
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> servico.cotar(List.of(1L, 2L, 3L, 5L), blocos::add));
+
+        assertEquals("Banco fora do ar", ex.getMessage());
+        assertTrue(blocos.isEmpty());
+        // O bloco já enviado terminou antes de a exceção sair; nada continua rodando no pool
+        assertEquals(0, emAndamento.get());
+        int terminados = cotados.get();
+        servico.encerrar();
+        assertEquals(terminados, cotados.get());
+    }
+
+    @Test
+    void testeLoteVazio() {
+        List<List<CotacaoDTO>> blocos = new ArrayList<>();
+
+        cotacaoLoteService.cotar(List.of(), blocos::add);
+
+        assertEquals(0, blocos.size());
+    }
+}
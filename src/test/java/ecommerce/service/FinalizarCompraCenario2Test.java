@@ -1,12 +1,15 @@
 package ecommerce.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -22,7 +25,9 @@ import org.junit.jupiter.api.Test;
 import ecommerce.dto.CompraDTO;
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.MotivoFalha;
 import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
 import ecommerce.entity.ItemCompra;
@@ -40,8 +45,10 @@ class FinalizarCompraCenario2Test {
 
     @BeforeEach
     void setUp() {
-        estoqueMock = mock(IEstoqueExternal.class);
-        pagamentoMock = mock(IPagamentoExternal.class);
+        // Reserva e confirmação usam as implementações padrão sobre verificarDisponibilidade e darBaixa
+        estoqueMock = mock(IEstoqueExternal.class, CALLS_REAL_METHODS);
+        // A autorização em centavos delega para autorizarPagamento(Long, Double)
+        pagamentoMock = mock(IPagamentoExternal.class, CALLS_REAL_METHODS);
         
         carrinhoServiceFake = new FakeCarrinhoService();
         clienteServiceFake = new FakeClienteService();
@@ -125,6 +132,27 @@ class FinalizarCompraCenario2Test {
         verify(pagamentoMock, never()).autorizarPagamento(anyLong(), anyDouble());
     }
     
+    @Test
+    void testeRecusaVoltaComoResultadoSemExcecao() {
+        Long clienteId = 1L;
+        Long carrinhoId = 2L;
+
+        clienteServiceFake.setCliente(criarCliente(clienteId, "Teste"));
+        carrinhoServiceFake.setCarrinho(criarCarrinhoSimples(carrinhoId));
+
+        when(estoqueMock.verificarDisponibilidade(eq(Arrays.asList(10L)), eq(Arrays.asList(2L))))
+            .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(10L)));
+
+        ResultadoCompra resultado = compraService.finalizar(carrinhoId, clienteId);
+
+        assertFalse(resultado.sucesso());
+        assertEquals(MotivoFalha.ESTOQUE_INDISPONIVEL, resultado.motivo());
+        // Recusas não alocam: o resultado e a resposta são sempre os mesmos
+        assertSame(ResultadoCompra.falha(MotivoFalha.ESTOQUE_INDISPONIVEL), resultado);
+        assertEquals("Itens fora de estoque.", resultado.paraDTO().mensagem());
+        verify(pagamentoMock, never()).autorizarPagamento(anyLong(), anyDouble());
+    }
+
     @Test
     void testePagamentoRecusado() {
         Long clienteId = 1L;
@@ -176,6 +204,35 @@ class FinalizarCompraCenario2Test {
         verify(pagamentoMock).cancelarPagamento(clienteId, transacaoId);
     }
 
+    @Test
+    void testeErroBaixaEstoqueAgendaOCancelamento() {
+        CompensacoesPagamento compensacoesMock = mock(CompensacoesPagamento.class);
+        compraService = new CompraService(carrinhoServiceFake, clienteServiceFake, estoqueMock, pagamentoMock,
+            null, null, compensacoesMock);
+        Long clienteId = 1L;
+        Long carrinhoId = 2L;
+
+        clienteServiceFake.setCliente(criarCliente(clienteId, "Teste"));
+        carrinhoServiceFake.setCarrinho(criarCarrinhoSimples(carrinhoId));
+
+        when(estoqueMock.verificarDisponibilidade(eq(Arrays.asList(10L)), eq(Arrays.asList(2L))))
+            .thenReturn(new DisponibilidadeDTO(true, Arrays.asList(10L)));
+        Long transacaoId = 888L;
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+            .thenReturn(new PagamentoDTO(true, transacaoId));
+        when(estoqueMock.darBaixa(eq(Arrays.asList(10L)), eq(Arrays.asList(2L))))
+            .thenReturn(new EstoqueBaixaDTO(false));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> {
+            compraService.finalizarCompra(carrinhoId, clienteId);
+        });
+
+        assertEquals("Erro ao dar baixa no estoque.", ex.getMessage());
+        // A resposta não espera o provedor: o cancelamento fica no outbox
+        verify(compensacoesMock).registrar(clienteId, transacaoId);
+        verify(pagamentoMock, never()).cancelarPagamento(anyLong(), anyLong());
+    }
+
     static class FakeCarrinhoService extends CarrinhoDeComprasService {
         private CarrinhoDeCompras carrinho;
 
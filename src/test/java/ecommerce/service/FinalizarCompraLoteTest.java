@@ -0,0 +1,261 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.CompraLoteDTO;
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ReservaEstoqueDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FinalizarCompraLoteTest {
+
+    private static final Long CLIENTE_ID = 1L;
+
+    private CompraService compraService;
+    private CarrinhoDeComprasService carrinhoServiceMock;
+    private ClienteService clienteServiceMock;
+    private IEstoqueExternal estoqueMock;
+    private IPagamentoExternal pagamentoMock;
+    private Cliente cliente;
+
+    @BeforeEach
+    void setUp() {
+        carrinhoServiceMock = mock(CarrinhoDeComprasService.class);
+        clienteServiceMock = mock(ClienteService.class);
+        // Reserva e confirmação usam as implementações padrão sobre verificarDisponibilidade e darBaixa
+        estoqueMock = mock(IEstoqueExternal.class, CALLS_REAL_METHODS);
+        // A autorização em centavos delega para autorizarPagamento(Long, Double)
+        pagamentoMock = mock(IPagamentoExternal.class, CALLS_REAL_METHODS);
+
+        cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteServiceMock.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, estoqueMock, pagamentoMock);
+
+        // Carrinho 1: produto 10 (x2); carrinho 2: produtos 10 (x1) e 20 (x3); carrinho 3: produto 30 (x1)
+        registrarCarrinho(1L, item(10L, 2L));
+        registrarCarrinho(2L, item(10L, 1L), item(20L, 3L));
+        registrarCarrinho(3L, item(30L, 1L));
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(99L, cliente))
+                .thenThrow(new IllegalArgumentException("Carrinho não encontrado."));
+    }
+
+    private ItemCompra item(Long produtoId, Long quantidade) {
+        Produto produto = new Produto();
+        produto.setId(produtoId);
+        produto.setPreco(new BigDecimal("10.00"));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+
+        ItemCompra item = new ItemCompra();
+        item.setProduto(produto);
+        item.setQuantidade(quantidade);
+        return item;
+    }
+
+    private void registrarCarrinho(Long carrinhoId, ItemCompra... itens) {
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        carrinho.setId(carrinhoId);
+        carrinho.setItens(new ArrayList<>(Arrays.asList(itens)));
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+    }
+
+    @Test
+    void testeLoteComUmaVerificacaoEUmaBaixa() {
+        List<Long> idsEsperados = Arrays.asList(10L, 20L, 30L);
+        List<Long> qtdsEsperadas = Arrays.asList(3L, 3L, 1L);
+
+        when(estoqueMock.verificarDisponibilidade(eq(idsEsperados), eq(qtdsEsperadas)))
+                .thenReturn(new DisponibilidadeDTO(true, idsEsperados));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 7L));
+        when(estoqueMock.darBaixa(eq(idsEsperados), eq(qtdsEsperadas))).thenReturn(new EstoqueBaixaDTO(true));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 2L, 99L, 3L), CLIENTE_ID);
+
+        assertEquals(Arrays.asList(1L, 2L, 99L, 3L), resultados.stream().map(CompraLoteDTO::carrinhoId).toList());
+        assertTrue(resultados.get(0).compra().sucesso());
+        assertTrue(resultados.get(1).compra().sucesso());
+        assertFalse(resultados.get(2).compra().sucesso());
+        assertEquals("Carrinho não encontrado.", resultados.get(2).compra().mensagem());
+        assertTrue(resultados.get(3).compra().sucesso());
+
+        verify(estoqueMock, times(1)).verificarDisponibilidade(any(), any());
+        verify(pagamentoMock, times(3)).autorizarPagamento(eq(CLIENTE_ID), anyDouble());
+        verify(estoqueMock, times(1)).darBaixa(eq(idsEsperados), eq(qtdsEsperadas));
+    }
+
+    @Test
+    void testeProdutoIndisponivelAfetaSoOsCarrinhosQueOContem() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList()));
+        // O lote inteiro e o carrinho 2 pedem o produto 20, que está em falta
+        when(estoqueMock.verificarDisponibilidade(eq(Arrays.asList(10L, 20L, 30L)), any()))
+                .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(20L)));
+        when(estoqueMock.verificarDisponibilidade(eq(Arrays.asList(10L, 20L)), any()))
+                .thenReturn(new DisponibilidadeDTO(false, Arrays.asList(20L)));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 7L));
+        when(estoqueMock.darBaixa(any(), any())).thenReturn(new EstoqueBaixaDTO(true));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 2L, 3L), CLIENTE_ID);
+
+        assertTrue(resultados.get(0).compra().sucesso());
+        assertFalse(resultados.get(1).compra().sucesso());
+        assertEquals("Itens fora de estoque.", resultados.get(1).compra().mensagem());
+        assertTrue(resultados.get(2).compra().sucesso());
+
+        // A baixa, agora por carrinho, só leva os carrinhos 1 e 3
+        verify(estoqueMock).darBaixa(eq(Arrays.asList(10L)), eq(Arrays.asList(2L)));
+        verify(estoqueMock).darBaixa(eq(Arrays.asList(30L)), eq(Arrays.asList(1L)));
+        verify(estoqueMock, times(2)).darBaixa(any(), any());
+        verify(pagamentoMock, times(2)).autorizarPagamento(eq(CLIENTE_ID), anyDouble());
+    }
+
+    @Test
+    void testeFaltaNoLoteAtendeOsCarrinhosQueCabemNoSaldo() {
+        // Saldo do produto 10 atende o carrinho 1 (x2), mas não o lote (x3)
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(0);
+        estoque.definirSaldo(10L, 2L);
+        estoque.definirSaldo(20L, 3L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, estoque, pagamentoMock, null,
+                null, null, new MetricasCompra(registry));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyLong())).thenReturn(new PagamentoDTO(true, 7L));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 2L), CLIENTE_ID);
+
+        assertTrue(resultados.get(0).compra().sucesso());
+        assertEquals("Itens fora de estoque.", resultados.get(1).compra().mensagem());
+        assertEquals(0L, estoque.saldo(10L));
+        // A reserva do carrinho 2 não foi feita: o produto 20 continua inteiro
+        assertEquals(3L, estoque.saldo(20L));
+        assertEquals(0, estoque.reservasAbertas());
+        // O lote também autoriza em centavos
+        verify(pagamentoMock).autorizarPagamento(eq(CLIENTE_ID.longValue()), anyLong());
+        assertEquals(1.0, registry.get("compra.falhas").tag("motivo", "estoque_indisponivel").counter().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "sucesso").timer().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "recusa").timer().count());
+    }
+
+    @Test
+    void testeDesfechosDoLoteSaoClassificadosPorCarrinho() {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(0);
+        estoque.definirSaldo(10L, 10L);
+        estoque.definirSaldo(20L, 10L);
+        estoque.definirSaldo(30L, 10L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, estoque, pagamentoMock, null,
+                null, null, new MetricasCompra(registry));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyLong()))
+                .thenReturn(new PagamentoDTO(false, null))
+                .thenThrow(new IllegalStateException("Provedor fora do ar"))
+                .thenReturn(new PagamentoDTO(true, 9L));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 2L, 3L, 99L),
+                CLIENTE_ID);
+
+        assertEquals("Pagamento não autorizado.", resultados.get(0).compra().mensagem());
+        assertEquals("Erro ao processar compra.", resultados.get(1).compra().mensagem());
+        assertTrue(resultados.get(2).compra().sucesso());
+        assertEquals("Carrinho não encontrado.", resultados.get(3).compra().mensagem());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "sucesso").timer().count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "recusa").timer().count());
+        assertEquals(2L, registry.get("compra.finalizacao").tag("resultado", "erro").timer().count());
+    }
+
+    @Test
+    void testePagamentoRecusadoNaoDerrubaOLote() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList()));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+                .thenReturn(new PagamentoDTO(false, null))
+                .thenReturn(new PagamentoDTO(true, 8L));
+        when(estoqueMock.darBaixa(any(), any())).thenReturn(new EstoqueBaixaDTO(true));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 3L), CLIENTE_ID);
+
+        assertEquals("Pagamento não autorizado.", resultados.get(0).compra().mensagem());
+        assertTrue(resultados.get(1).compra().sucesso());
+        assertEquals(8L, resultados.get(1).compra().transacaoPagamentoId());
+        verify(estoqueMock).darBaixa(eq(Arrays.asList(30L)), eq(Arrays.asList(1L)));
+    }
+
+    @Test
+    void testeFalhaNaBaixaCancelaTodosOsPagamentosDoLote() {
+        when(estoqueMock.verificarDisponibilidade(any(), any()))
+                .thenReturn(new DisponibilidadeDTO(true, Arrays.asList()));
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+                .thenReturn(new PagamentoDTO(true, 1L))
+                .thenReturn(new PagamentoDTO(true, 2L));
+        when(estoqueMock.darBaixa(any(), any())).thenReturn(new EstoqueBaixaDTO(false));
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 3L), CLIENTE_ID);
+
+        assertEquals("Erro ao dar baixa no estoque.", resultados.get(0).compra().mensagem());
+        assertEquals("Erro ao dar baixa no estoque.", resultados.get(1).compra().mensagem());
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 1L);
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 2L);
+    }
+
+    @Test
+    void testeLoteSemCarrinhosValidosNaoChamaServicosExternos() {
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(99L), CLIENTE_ID);
+
+        assertFalse(resultados.get(0).compra().sucesso());
+        verify(estoqueMock, never()).verificarDisponibilidade(any(), any());
+        verify(pagamentoMock, never()).autorizarPagamento(anyLong(), anyDouble());
+        verify(estoqueMock, never()).darBaixa(any(), any());
+    }
+
+    @Test
+    void testeErroNaBaixaDoLoteCancelaOsPagamentosELiberaAReserva() {
+        // doReturn: com CALLS_REAL_METHODS, when(...) chamaria a implementação padrão
+        doReturn(new ReservaEstoqueDTO(true, 40L, List.of())).when(estoqueMock).reservar(any(), any(), any());
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+                .thenReturn(new PagamentoDTO(true, 1L))
+                .thenReturn(new PagamentoDTO(true, 2L));
+        doThrow(new IllegalStateException("Tempo limite da baixa de estoque esgotado.")).when(estoqueMock)
+                .confirmarReserva(eq(40L), any(), any());
+        doNothing().when(estoqueMock).liberarReserva(40L);
+
+        List<CompraLoteDTO> resultados = compraService.finalizarCompraLote(Arrays.asList(1L, 3L), CLIENTE_ID);
+
+        assertEquals("Erro ao dar baixa no estoque.", resultados.get(0).compra().mensagem());
+        assertEquals("Erro ao dar baixa no estoque.", resultados.get(1).compra().mensagem());
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 1L);
+        verify(pagamentoMock).cancelarPagamento(CLIENTE_ID, 2L);
+        verify(estoqueMock).liberarReserva(40L);
+    }
+}
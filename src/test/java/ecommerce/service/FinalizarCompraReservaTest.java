@@ -0,0 +1,146 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.MotivoFalha;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.dto.ResultadoCompra;
+import ecommerce.dto.ResultadoEstoqueDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+
+class FinalizarCompraReservaTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long PRODUTO_ID = 10L;
+
+    private CompraService compraService;
+    private CarrinhoDeComprasService carrinhoServiceMock;
+    private ClienteService clienteServiceMock;
+    private IPagamentoExternal pagamentoMock;
+    private EstoqueEmMemoria estoque;
+    private Cliente cliente;
+
+    @BeforeEach
+    void setUp() {
+        carrinhoServiceMock = mock(CarrinhoDeComprasService.class);
+        clienteServiceMock = mock(ClienteService.class);
+        // A autorização em centavos delega para autorizarPagamento(Long, Double)
+        pagamentoMock = mock(IPagamentoExternal.class, CALLS_REAL_METHODS);
+        estoque = new EstoqueEmMemoria(0);
+        estoque.definirSaldo(PRODUTO_ID, 1L);
+
+        cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteServiceMock.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, estoque, pagamentoMock);
+    }
+
+    private void registrarCarrinho(Long carrinhoId) {
+        Produto produto = new Produto();
+        produto.setId(PRODUTO_ID);
+        produto.setPreco(new BigDecimal("50.00"));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        carrinho.setId(carrinhoId);
+        carrinho.setItens(new ArrayList<>(List.of(new ItemCompra(carrinhoId, produto, 1L))));
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente)).thenReturn(carrinho);
+    }
+
+    @Test
+    void testeUltimaUnidadeSoAutorizaUmPagamento() {
+        registrarCarrinho(1L);
+        registrarCarrinho(2L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 5L));
+
+        assertTrue(compraService.finalizarCompra(1L, CLIENTE_ID).sucesso());
+        CompraRecusada ex = assertThrows(CompraRecusada.class, () -> compraService.finalizarCompra(2L, CLIENTE_ID));
+
+        assertEquals(MotivoFalha.ESTOQUE_INDISPONIVEL, ex.motivo());
+        assertEquals("Itens fora de estoque.", ex.getMessage());
+        verify(pagamentoMock, times(1)).autorizarPagamento(anyLong(), anyDouble());
+        assertEquals(0L, estoque.saldo(PRODUTO_ID));
+        assertEquals(0, estoque.reservasAbertas());
+    }
+
+    @Test
+    void testePagamentoRecusadoLiberaAReserva() {
+        registrarCarrinho(1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+        assertThrows(IllegalStateException.class, () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertEquals(1L, estoque.saldo(PRODUTO_ID));
+        assertEquals(0, estoque.reservasAbertas());
+    }
+
+    @Test
+    void testeErroNoPagamentoLiberaAReserva() {
+        registrarCarrinho(1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenThrow(new RuntimeException("timeout"));
+
+        assertThrows(RuntimeException.class, () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertEquals(1L, estoque.saldo(PRODUTO_ID));
+    }
+
+    @Test
+    void testeFalhaTecnicaNaoEhRecusa() {
+        registrarCarrinho(1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+                .thenThrow(new IllegalStateException("Tempo limite da autorização de pagamento esgotado."));
+
+        // Só a recusa mantém a transação; a falha técnica precisa desfazê-la
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertFalse(ex instanceof CompraRecusada);
+    }
+
+    @Test
+    void testeErroNaBaixaRegistraCompensacaoELiberaAReserva() {
+        EstoqueEmMemoria semResposta = new EstoqueEmMemoria(0) {
+            @Override
+            public ResultadoEstoqueDTO confirmarLinhas(Long reservaId, long[] produtosIds, long[] quantidades) {
+                throw new IllegalStateException("Tempo limite da baixa de estoque esgotado.");
+            }
+        };
+        semResposta.definirSaldo(PRODUTO_ID, 1L);
+        CompensacoesPagamento compensacoesMock = mock(CompensacoesPagamento.class);
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, semResposta, pagamentoMock, null,
+                null, compensacoesMock);
+        registrarCarrinho(1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 5L));
+
+        ResultadoCompra resultado = compraService.finalizar(1L, CLIENTE_ID);
+
+        assertEquals(ResultadoCompra.falha(MotivoFalha.ERRO_BAIXA_ESTOQUE), resultado);
+        verify(compensacoesMock).registrar(CLIENTE_ID, 5L);
+        assertEquals(1L, semResposta.saldo(PRODUTO_ID));
+        assertEquals(0, semResposta.reservasAbertas());
+    }
+}
@@ -0,0 +1,118 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.dto.CarrinhoImportacaoDTO;
+import ecommerce.dto.ItemImportacaoDTO;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+
+@DataJpaTest
+// A importação precisa ser confirmada ou desfeita de verdade: o teste não pode envolver tudo numa só transação
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportacaoCarrinhosRollbackTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transacao;
+    private Cliente cliente;
+    private Produto produto;
+    private Long gravadosAntesDaFalha;
+
+    @BeforeEach
+    void setUp() {
+        transacao = new TransactionTemplate(transactionManager);
+        cliente = clienteRepository.save(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.OURO));
+        produto = produtoRepository.save(new Produto(null, "Produto", null, new BigDecimal("10.00"),
+                new BigDecimal("1.00"), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, false, TipoProduto.LIVRO));
+    }
+
+    @AfterEach
+    void tearDown() {
+        carrinhoRepository.deleteAll();
+        produtoRepository.deleteAll();
+        clienteRepository.deleteAll();
+    }
+
+    private long itensGravados() {
+        return jdbcTemplate.queryForObject("select count(*) from item_compra", Long.class);
+    }
+
+    @Test
+    void testeFalhaDepoisDeUmaDescargaDesfazOsCarrinhosJaEnviados() {
+        // A primeira descarga vai ao banco; a segunda falha como falharia o banco
+        EntityManager falhaNaSegundaDescarga = mock(EntityManager.class, delegatesTo(entityManager));
+        doAnswer(delegatesTo(entityManager)).doAnswer(invocacao -> {
+            gravadosAntesDaFalha = jdbcTemplate.queryForObject("select count(*) from carrinho_de_compras",
+                    Long.class);
+            throw new PersistenceException("Falha simulada no banco");
+        }).when(falhaNaSegundaDescarga).flush();
+        ImportacaoCarrinhosService importacao = new ImportacaoCarrinhosService(clienteRepository,
+                produtoRepository, falhaNaSegundaDescarga, 1);
+        List<CarrinhoImportacaoDTO> carrinhos = List.of(
+                new CarrinhoImportacaoDTO(cliente.getId(), List.of(new ItemImportacaoDTO(produto.getId(), 1L))),
+                new CarrinhoImportacaoDTO(cliente.getId(), List.of(new ItemImportacaoDTO(produto.getId(), 2L))));
+
+        assertThrows(PersistenceException.class, () -> transacao.execute(status -> importacao.importar(carrinhos)));
+
+        assertEquals(1L, gravadosAntesDaFalha);
+        assertEquals(0, carrinhoRepository.count());
+        assertEquals(0, itensGravados());
+    }
+
+    @Test
+    void testeImportacaoConfirmadaGravaTodosOsCarrinhos() {
+        ImportacaoCarrinhosService importacao = new ImportacaoCarrinhosService(clienteRepository,
+                produtoRepository, entityManager, 1);
+        List<CarrinhoImportacaoDTO> carrinhos = List.of(
+                new CarrinhoImportacaoDTO(cliente.getId(), List.of(new ItemImportacaoDTO(produto.getId(), 1L))),
+                new CarrinhoImportacaoDTO(cliente.getId(), List.of(new ItemImportacaoDTO(produto.getId(), 2L))));
+
+        transacao.execute(status -> importacao.importar(carrinhos));
+
+        assertEquals(2, carrinhoRepository.count());
+        assertEquals(2, itensGravados());
+    }
+}
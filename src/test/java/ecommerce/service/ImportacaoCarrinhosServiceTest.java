@@ -0,0 +1,136 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import ecommerce.dto.CarrinhoImportacaoDTO;
+import ecommerce.dto.ItemImportacaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.Regiao;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ImportacaoCarrinhosServiceTest {
+
+    private static final int CARRINHOS = 20;
+    private static final int ITENS_POR_CARRINHO = 100;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ProdutoRepository produtoRepository;
+
+    @Autowired
+    private CarrinhoDeComprasRepository carrinhoRepository;
+
+    private ImportacaoCarrinhosService importacao;
+    private Cliente cliente;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    void setUp() {
+        importacao = new ImportacaoCarrinhosService(clienteRepository, produtoRepository,
+                entityManager.getEntityManager(), 1_000);
+
+        cliente = entityManager.persist(new Cliente(null, "Cliente", Regiao.SUDESTE, TipoCliente.OURO));
+        produtos = new ArrayList<>();
+        for (int i = 0; i < ITENS_POR_CARRINHO; i++) {
+            produtos.add(entityManager.persist(new Produto(null, "Produto " + i, null, new BigDecimal("10.00"),
+                    new BigDecimal("1.00"), BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, i % 2 == 0,
+                    TipoProduto.LIVRO)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Statistics estatisticas() {
+        return entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private List<CarrinhoImportacaoDTO> carrinhos(int quantidade, int itens) {
+        List<CarrinhoImportacaoDTO> carrinhos = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            List<ItemImportacaoDTO> linhas = new ArrayList<>();
+            for (int j = 0; j < itens; j++) {
+                linhas.add(new ItemImportacaoDTO(produtos.get(j).getId(), 1L + j % 3));
+            }
+            carrinhos.add(new CarrinhoImportacaoDTO(cliente.getId(), linhas));
+        }
+        return carrinhos;
+    }
+
+    /** Comandos preparados para importar os carrinhos com o tamanho de lote dado ({@code null}: o configurado). */
+    private long comandos(Integer tamanhoLote) {
+        Session sessao = entityManager.getEntityManager().unwrap(Session.class);
+        sessao.setJdbcBatchSize(tamanhoLote);
+        Statistics estatisticas = estatisticas();
+        estatisticas.clear();
+
+        importacao.importar(carrinhos(CARRINHOS, ITENS_POR_CARRINHO));
+
+        assertEquals(CARRINHOS * (ITENS_POR_CARRINHO + 1), estatisticas.getEntityInsertCount());
+        return estatisticas.getPrepareStatementCount();
+    }
+
+    @Test
+    void testeImportacaoEmLotesReduzOsComandos() {
+        // Lote de 1 equivale a um insert por linha, como era com ids IDENTITY
+        long semLotes = comandos(1);
+        long emLotes = comandos(null);
+
+        assertTrue(semLotes > CARRINHOS * ITENS_POR_CARRINHO, "Comandos sem lotes: " + semLotes);
+        assertTrue(emLotes * 10 < semLotes, "Comandos em lotes: " + emLotes + ", sem lotes: " + semLotes);
+    }
+
+    @Test
+    void testeImportacaoGravaCarrinhosComItens() {
+        List<Long> ids = importacao.importar(carrinhos(2, 3));
+        entityManager.clear();
+
+        assertEquals(2, ids.size());
+        CarrinhoDeCompras carregado = carrinhoRepository.findComItensByIdAndCliente(ids.get(1), cliente)
+                .orElseThrow();
+        assertEquals(3, carregado.getItens().size());
+        // Quantidades 1, 2 e 3
+        assertEquals(6L, carregado.getItens().stream().mapToLong(ItemCompra::getQuantidade).sum());
+    }
+
+    // Rejeitada antes de qualquer gravação; o rollback depois de uma descarga está em ImportacaoCarrinhosRollbackTest
+    @Test
+    void testeProdutoInexistenteRejeitaAImportacao() {
+        List<CarrinhoImportacaoDTO> carrinhos = List.of(new CarrinhoImportacaoDTO(cliente.getId(),
+                List.of(new ItemImportacaoDTO(-1L, 1L))));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> importacao.importar(carrinhos));
+
+        assertEquals("Produto não encontrado.", ex.getMessage());
+        assertEquals(0, carrinhoRepository.count());
+    }
+}
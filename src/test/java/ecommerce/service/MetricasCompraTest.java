@@ -0,0 +1,121 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.memoria.EstoqueEmMemoria;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MetricasCompraTest {
+
+    private static final Long CLIENTE_ID = 1L;
+    private static final Long PRODUTO_ID = 10L;
+
+    private SimpleMeterRegistry registry;
+    private CompraService compraService;
+    private IPagamentoExternal pagamentoMock;
+    private EstoqueEmMemoria estoque;
+
+    @BeforeEach
+    void setUp() {
+        CarrinhoDeComprasService carrinhoServiceMock = mock(CarrinhoDeComprasService.class);
+        ClienteService clienteServiceMock = mock(ClienteService.class);
+        pagamentoMock = mock(IPagamentoExternal.class, CALLS_REAL_METHODS);
+        estoque = new EstoqueEmMemoria(0);
+        registry = new SimpleMeterRegistry();
+
+        Cliente cliente = new Cliente();
+        cliente.setId(CLIENTE_ID);
+        when(clienteServiceMock.buscarPorId(CLIENTE_ID)).thenReturn(cliente);
+
+        Produto produto = new Produto();
+        produto.setId(PRODUTO_ID);
+        produto.setPreco(new BigDecimal("50.00"));
+        produto.setPesoFisico(new BigDecimal("1.00"));
+        produto.setFragil(false);
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        carrinho.setId(1L);
+        carrinho.setItens(new ArrayList<>(List.of(new ItemCompra(1L, produto, 1L))));
+        when(carrinhoServiceMock.buscarPorCarrinhoIdEClienteId(1L, cliente)).thenReturn(carrinho);
+
+        compraService = new CompraService(carrinhoServiceMock, clienteServiceMock, estoque, pagamentoMock, null,
+                null, null, new MetricasCompra(registry));
+    }
+
+    private Timer etapa(String etapa, String resultado) {
+        return registry.get("compra.etapa").tag("etapa", etapa).tag("resultado", resultado).timer();
+    }
+
+    private double falhas(String motivo) {
+        return registry.get("compra.falhas").tag("motivo", motivo).counter().count();
+    }
+
+    @Test
+    void testeCompraConcluidaMedeTodasAsEtapas() {
+        estoque.definirSaldo(PRODUTO_ID, 1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(true, 5L));
+
+        assertTrue(compraService.finalizarCompra(1L, CLIENTE_ID).sucesso());
+
+        for (String nome : List.of("cliente", "carrinho", "precificacao", "disponibilidade", "pagamento", "baixa")) {
+            assertEquals(1L, etapa(nome, "sucesso").count(), nome);
+        }
+        assertEquals(0L, etapa("compensacao", "sucesso").count());
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "sucesso").timer().count());
+    }
+
+    @Test
+    void testeEstoqueIndisponivelContaRecusaEFalha() {
+        assertThrows(IllegalStateException.class, () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertEquals(1L, etapa("disponibilidade", "recusa").count());
+        assertEquals(0L, etapa("pagamento", "sucesso").count());
+        assertEquals(1.0, falhas("estoque_indisponivel"));
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "recusa").timer().count());
+    }
+
+    @Test
+    void testePagamentoRecusadoLiberaAReservaNaCompensacao() {
+        estoque.definirSaldo(PRODUTO_ID, 1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble())).thenReturn(new PagamentoDTO(false, null));
+
+        assertThrows(IllegalStateException.class, () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertEquals(1L, etapa("pagamento", "recusa").count());
+        assertEquals(1L, etapa("compensacao", "sucesso").count());
+        assertEquals(1.0, falhas("pagamento_nao_autorizado"));
+    }
+
+    @Test
+    void testeErroNoPagamentoContaComoErro() {
+        estoque.definirSaldo(PRODUTO_ID, 1L);
+        when(pagamentoMock.autorizarPagamento(anyLong(), anyDouble()))
+                .thenThrow(new IllegalStateException("Serviço de pagamento indisponível."));
+
+        assertThrows(IllegalStateException.class, () -> compraService.finalizarCompra(1L, CLIENTE_ID));
+
+        assertEquals(1L, etapa("pagamento", "erro").count());
+        assertEquals(1.0, falhas("erro_pagamento"));
+        assertEquals(1L, registry.get("compra.finalizacao").tag("resultado", "erro").timer().count());
+    }
+}
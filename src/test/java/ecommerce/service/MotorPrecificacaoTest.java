@@ -0,0 +1,113 @@
+package ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+
+class MotorPrecificacaoTest {
+
+    private ItemCompra criarItem(BigDecimal preco, BigDecimal peso, Long quantidade, boolean fragil) {
+        Produto produto = new Produto();
+        produto.setPreco(preco);
+        produto.setPesoFisico(peso);
+        produto.setFragil(fragil);
+
+        ItemCompra item = new ItemCompra();
+        item.setProduto(produto);
+        item.setQuantidade(quantidade);
+
+        return item;
+    }
+
+    /** Cálculo original com BigDecimal, usado como oráculo. */
+    private BigDecimal calcularReferencia(List<ItemCompra> itens) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (var item : itens) {
+            subtotal = subtotal.add(item.getProduto().getPreco().multiply(new BigDecimal(item.getQuantidade())));
+        }
+
+        BigDecimal desconto = BigDecimal.ZERO;
+        if (subtotal.compareTo(new BigDecimal("1000.00")) >= 0) {
+            desconto = subtotal.multiply(new BigDecimal("0.20"));
+        } else if (subtotal.compareTo(new BigDecimal("500.00")) >= 0) {
+            desconto = subtotal.multiply(new BigDecimal("0.10"));
+        }
+
+        BigDecimal pesoTotal = BigDecimal.ZERO;
+        BigDecimal taxaFrageis = BigDecimal.ZERO;
+        for (var item : itens) {
+            BigDecimal qtd = new BigDecimal(item.getQuantidade());
+            pesoTotal = pesoTotal.add(item.getProduto().getPesoFisico().multiply(qtd));
+            if (Boolean.TRUE.equals(item.getProduto().isFragil())) {
+                taxaFrageis = taxaFrageis.add(new BigDecimal("5.00").multiply(qtd));
+            }
+        }
+
+        BigDecimal valorFrete = BigDecimal.ZERO;
+        if (pesoTotal.compareTo(new BigDecimal("50.00")) > 0) {
+            valorFrete = pesoTotal.multiply(new BigDecimal("7.00"));
+        } else if (pesoTotal.compareTo(new BigDecimal("10.00")) > 0) {
+            valorFrete = pesoTotal.multiply(new BigDecimal("4.00"));
+        } else if (pesoTotal.compareTo(new BigDecimal("5.00")) > 0) {
+            valorFrete = pesoTotal.multiply(new BigDecimal("2.00"));
+        }
+
+        return subtotal.subtract(desconto).add(valorFrete).add(taxaFrageis).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Test
+    void testePontoFixoIgualAoCalculoOriginal() {
+        Random random = new Random(7L);
+
+        for (int carrinho = 0; carrinho < 2_000; carrinho++) {
+            List<ItemCompra> itens = new ArrayList<>();
+            int tamanho = 1 + random.nextInt(20);
+            for (int i = 0; i < tamanho; i++) {
+                BigDecimal preco = BigDecimal.valueOf(random.nextInt(60_000), 2);
+                BigDecimal peso = BigDecimal.valueOf(random.nextInt(8_000), 3);
+                itens.add(criarItem(preco, peso, 1L + random.nextInt(4), random.nextBoolean()));
+            }
+
+            assertEquals(calcularReferencia(itens), MotorPrecificacao.calcular(itens));
+        }
+    }
+
+    @Test
+    void testeArredondamentoMeioCentavo() {
+        // 500.05 * 0.90 = 450.045 -> 450.05
+        List<ItemCompra> itens = List.of(criarItem(new BigDecimal("500.05"), new BigDecimal("1.00"), 1L, false));
+        assertEquals(new BigDecimal("450.05"), MotorPrecificacao.calcular(itens));
+        assertEquals(calcularReferencia(itens), MotorPrecificacao.calcular(itens));
+    }
+
+    @Test
+    void testePrecoComMaisCasasUsaBigDecimal() {
+        // Preço com 3 casas não cabe em centavos
+        List<ItemCompra> itens = List.of(criarItem(new BigDecimal("10.005"), new BigDecimal("0.0005"), 3L, true));
+        assertEquals(calcularReferencia(itens), MotorPrecificacao.calcular(itens));
+    }
+
+    @Test
+    void testeEstouroDeLongUsaBigDecimal() {
+        List<ItemCompra> itens = List.of(
+                criarItem(new BigDecimal("99999999.99"), new BigDecimal("1.00"), Long.MAX_VALUE / 1_000, true));
+        assertEquals(calcularReferencia(itens), MotorPrecificacao.calcular(itens));
+    }
+
+    @Test
+    void testeTotaisAgregados() {
+        // Subtotal 1000.00, 50.000 kg, 2 frágeis: 800 + 200 + 10
+        assertEquals(new BigDecimal("1010.00"), MotorPrecificacao.calcular(100_000L, 50_000L, 2L));
+        // Subtotal 499.99 (sem desconto), 5.001 kg: 499.99 + 10.002 = 509.992 -> 509.99
+        assertEquals(new BigDecimal("509.99"), MotorPrecificacao.calcular(49_999L, 5_001L, 0L));
+    }
+}